@@ -0,0 +1,68 @@
+package io.left.reflect;
+
+import android.os.SystemClock;
+import android.view.View;
+
+import androidx.core.view.ViewCompat;
+
+/**
+ * Runs an action on the next animation frame of a view, no more often than a minimum interval.
+ *
+ * Any number of requests made before the action runs are served by a single run, so callers can
+ * request an update for every event without the UI doing work for every event.
+ *
+ * Must only be used on the UI thread.
+ */
+class FrameCoalescer {
+    private final View view;
+    private final long minIntervalMillis;
+    private final Runnable action;
+
+    private boolean scheduled;
+    private long lastRunMillis;
+
+    private final Runnable run = this::run;
+
+    /**
+     * Creates a coalescer.
+     *
+     * @param view              view whose animation frames the action is aligned to
+     * @param minIntervalMillis minimum time between two runs of the action
+     * @param action            action to run
+     */
+    FrameCoalescer(View view, long minIntervalMillis, Runnable action) {
+        this.view = view;
+        this.minIntervalMillis = minIntervalMillis;
+        this.action = action;
+    }
+
+    /**
+     * Requests that the action runs, on the next frame at least the minimum interval after its
+     * last run.
+     */
+    void request() {
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        long delay = lastRunMillis + minIntervalMillis - SystemClock.uptimeMillis();
+        ViewCompat.postOnAnimationDelayed(view, run, Math.max(0, delay));
+    }
+
+    /**
+     * Runs the action immediately if a run has been requested, for example before changing state
+     * the action depends on.
+     */
+    void runPending() {
+        if (scheduled) {
+            view.removeCallbacks(run);
+            run();
+        }
+    }
+
+    private void run() {
+        scheduled = false;
+        lastRunMillis = SystemClock.uptimeMillis();
+        action.run();
+    }
+}
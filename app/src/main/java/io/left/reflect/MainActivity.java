@@ -2,40 +2,77 @@ package io.left.reflect;
 
 import android.os.Bundle;
 import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
-import android.widget.ArrayAdapter;
-import android.widget.ListView;
 import android.widget.Spinner;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.VisibleForTesting;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DividerItemDecoration;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import io.left.reflect.bulk.BulkCodec;
+import io.left.reflect.bulk.BulkReceiver;
+import io.left.reflect.bulk.BulkTransfer;
+import io.left.reflect.helper.DialogHelper;
 import io.left.reflect.helper.MeshHelper;
+import io.left.reflect.helper.ReflectPreferences;
+import io.left.reflect.metrics.MetricsRegistry;
+import io.left.reflect.ping.PeerStats;
+import io.left.reflect.engine.PingSender;
+import io.left.reflect.ping.PingEvent;
+import io.left.reflect.ping.PingLog;
+import io.left.reflect.ping.PingRecord;
+import io.left.reflect.ping.PingSummary;
+import io.left.reflect.schedule.PayloadSweep;
+import io.left.reflect.schedule.PeerSurvey;
+import io.left.reflect.schedule.PingGenerator;
+import io.left.reflect.schedule.PingWindow;
+import io.left.reflect.session.SessionExporter;
+import io.left.reflect.session.SessionLog;
+import io.left.reflect.session.SessionReader;
+import io.left.reflect.session.SessionStore;
+import io.left.reflect.stats.ClockOffsetEstimator;
+import io.left.reflect.stats.LatencyHistogram;
+import io.left.reflect.transport.TransportException;
+import io.left.reflect.transport.TransportException.TransportDisconnectedException;
 import io.left.rightmesh.id.MeshId;
-import io.left.rightmesh.mesh.MeshManager.DataReceivedEvent;
-import io.left.rightmesh.mesh.MeshManager.RightMeshEvent;
-import io.left.rightmesh.util.RightMeshException;
-import io.left.rightmesh.util.RightMeshException.RightMeshServiceDisconnectedException;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Simple app for testing RightMesh network reach.
  *
  *
  * Device A sends a ping to Device B over a mesh network containing a unique message (a
- * simple timestamp). Device B receives it and echoes it back. Device A displays when the
- * echoed message is received. This makes it easy to leave a device in one spot, roam around
- * with another device, and test if the network still works.
+ * sequence number and send timestamp). Device B receives it and echoes it back. Device A displays
+ * when the echoed message is received, along with the round trip time. This makes it easy to leave
+ * a device in one spot, roam around with another device, and test if the network still works.
  */
 public class MainActivity extends AppCompatActivity implements
         RightMeshRecipientView.RecipientChangedListener {
@@ -47,6 +84,37 @@ public class MainActivity extends AppCompatActivity implements
      */
     public static final int MESH_PORT = 9876;
 
+    // Minimum time between two redraws of the ping log.
+    private static final long LOG_FLUSH_INTERVAL_MILLIS = 100;
+
+    // Time after which an unanswered ping is lost, and stops holding back the next ones of a flood.
+    private static final long PING_TIMEOUT_MILLIS = 5000;
+    // Time after its deadline during which the echo of a lost ping is still logged, as late.
+    private static final long LATE_WINDOW_MILLIS = 60_000;
+
+    // Largest flood window the user can ask for.
+    private static final int MAX_FLOOD_WINDOW = 10_000;
+
+    // Largest payload a sweep may send, and the ratio between the payloads of consecutive steps.
+    // Each ping is encoded into an array of its own size, so a large step holds no memory once
+    // its pings are sent.
+    private static final int MAX_SWEEP_PAYLOAD = 4 << 20;
+    private static final double SWEEP_FACTOR = 2;
+
+    // Largest bandwidth test the user can ask for, and the time without acknowledgement after
+    // which its chunks are resent.
+    private static final long MAX_BULK_BYTES = 1L << 30;
+    private static final int MAX_BULK_CHUNK = 1 << 20;
+    private static final int MAX_BULK_WINDOW = 1024;
+    private static final long BULK_TIMEOUT_MILLIS = 2000;
+
+    // Highest rate at which a survey may ping each peer, and the columns of its results grid.
+    private static final int MAX_SURVEY_RATE = 100;
+    private static final int SURVEY_COLUMNS = 2;
+
+    // Number of session logs kept in app storage, including the current one.
+    private static final int SESSIONS_KEPT = 10;
+
     RightMeshConnector rightMeshConnector;
 
     // Id of this device, stored for UI use.
@@ -59,14 +127,58 @@ public class MainActivity extends AppCompatActivity implements
     // feeds, both mostly powered by `viewRightMeshRecipient`.
     MeshIdAdapter peersListAdapter;
 
-    // List and adapter tracking sent pings and whether or not they have been echoed.
-    List<String> pingsList;
-    ArrayAdapter<String> pingsListAdapter;
+    // Bounded log and adapter tracking sent pings and whether or not they have been echoed.
+    PingLog<MeshId> pingsList;
+    PingLogAdapter pingsListAdapter;
+    // Coalesces log updates into at most one redraw per frame and flush interval.
+    private FrameCoalescer logFlusher;
+
+    // Sends pings from any thread and tracks the ones waiting for an echo.
+    private PingSender<MeshId> pingSender;
 
-    public static final char ALREADY_ECHOED = '0';
-    public static final char ECHO = '1';
+    // Sends flood pings from a background thread, so the UI stays responsive at high rates.
+    private ScheduledExecutorService pingScheduler;
+    private PingGenerator pingGenerator;
+    // Exports sessions, which can take a while, so they never hold up the ping scheduler.
+    private ExecutorService exportExecutor;
+    // Sweep currently running, if any, and its results so far. Only touched on the UI thread.
+    private PayloadSweep payloadSweep;
+    private StringBuilder sweepReport;
+    // Bandwidth test currently running, if any. Read on the lanes handling acknowledgements.
+    private volatile BulkTransfer<MeshId> bulkTransfer;
+    // Acknowledges the chunks of peers' bandwidth tests.
+    private BulkReceiver<MeshId> bulkReceiver;
+    // Survey of all peers currently running, if any, the peers of the last survey, and the grid
+    // showing their results while it is open. Only touched on the UI thread.
+    private PeerSurvey<MeshId> peerSurvey;
+    private List<MeshId> surveyPeers;
+    private SurveyGridAdapter surveyGridAdapter;
+    // Bring pings sent by a flood or sweep, and pings found lost, back to the UI thread to be
+    // logged.
+    private UiBatcher<PingRecord<MeshId>> floodPingBatcher;
+    private UiBatcher<PingRecord<MeshId>> lostPingBatcher;
+
+    // Delivery statistics of each peer pinged, only touched on the UI thread.
+    private final Map<MeshId, PeerStats> peerStats = new HashMap<>();
+    // Estimates of the clock of each peer that returned timed echoes, only touched on the UI
+    // thread.
+    private final Map<MeshId, ClockOffsetEstimator> peerClocks = new HashMap<>();
+    // Delivery statistics of the pings to each peer of the last survey since it started, only
+    // touched on the UI thread.
+    private final Map<MeshId, PeerStats> surveyStats = new HashMap<>();
+
+    // Session logs in app storage, the newest being the current session's.
+    private SessionStore sessionStore;
+    // Records every change to the log on disk, so a session survives the activity. Only touched
+    // on the ping scheduler, as appending may grow and map the file; null until open or after a
+    // write failed.
+    private SessionLog sessionLog;
+    private boolean destroyed;
 
     private TextView tvLibStatus;
+    // Summary of the pings that have been rolled out of the log.
+    private TextView tvLogSummary;
+    private ReflectPreferences preferences;
     // Responsible for allowing the user to select the ping recipient.
     RightMeshRecipientView viewRightMeshRecipient;
     Spinner spinnerPeers;
@@ -76,7 +188,7 @@ public class MainActivity extends AppCompatActivity implements
      */
     public MainActivity() {
         pingsListAdapter = null;
-        pingsList = new ArrayList<>();
+        pingsList = new PingLog<>(PingLog.DEFAULT_CAPACITY);
         spinnerPeers = null;
         peersListAdapter = null;
         recipientId = null;
@@ -93,6 +205,8 @@ public class MainActivity extends AppCompatActivity implements
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        setSupportActionBar((Toolbar) findViewById(R.id.toolbar));
+        preferences = new ReflectPreferences(this);
 
         // Send a ping when the floating send button is tapped.
         FloatingActionButton buttonSend = findViewById(R.id.button_send);
@@ -115,9 +229,58 @@ public class MainActivity extends AppCompatActivity implements
         spinnerPeers = findViewById(R.id.spinner_recipient);
 
         // Set up the rvLogs list.
-        pingsListAdapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, pingsList);
-        ListView listViewLogs = findViewById(R.id.listview_logs);
-        listViewLogs.setAdapter(pingsListAdapter);
+        pingsList.setCapacity(preferences.getLogCapacity());
+        tvLogSummary = findViewById(R.id.text_view_log_summary);
+        pingsListAdapter = new PingLogAdapter(pingsList);
+        RecyclerView rvLogs = findViewById(R.id.recycler_view_logs);
+        rvLogs.setLayoutManager(new LinearLayoutManager(this));
+        rvLogs.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
+        rvLogs.setAdapter(pingsListAdapter);
+        logFlusher = new FrameCoalescer(rvLogs, LOG_FLUSH_INTERVAL_MILLIS, this::flushLog);
+
+        // Set up flood pinging.
+        pingScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reflect-ping-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        exportExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reflect-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pingGenerator = new PingGenerator(pingScheduler);
+        pingSender = new PingSender<>(getRightMeshConnector(), pingScheduler, PING_TIMEOUT_MILLIS,
+                LATE_WINDOW_MILLIS);
+        pingSender.setOnSlotReleasedListener(pingGenerator::wake);
+        floodPingBatcher = new UiBatcher<>(this::runOnUiThread, records -> {
+            for (PingRecord<MeshId> record : records) {
+                logSentPing(record);
+            }
+            logFlusher.request();
+        });
+        lostPingBatcher = new UiBatcher<>(this::runOnUiThread, records -> {
+            for (PingRecord<MeshId> record : records) {
+                logLostPing(record);
+            }
+            logFlusher.request();
+        });
+        pingSender.setOnPingLostListener(lostPingBatcher::post);
+        bulkReceiver = new BulkReceiver<>(getRightMeshConnector(),
+                new BulkReceiver.Listener<MeshId>() {
+                    @Override
+                    public void onTransferReceived(MeshId peer, long bytes, long elapsedNanos) {
+                        runOnUiThread(() -> reportBulkReceived(peer, bytes, elapsedNanos));
+                    }
+
+                    @Override
+                    public void onAckFailed(MeshId peer, TransportException cause) {
+                        Log.e(TAG, "Error occurred acknowledging bandwidth test, with message: "
+                                + cause.getMessage());
+                    }
+                });
+        sessionStore = new SessionStore(new File(getFilesDir(), "sessions"), SESSIONS_KEPT);
+        pingScheduler.execute(this::openSession);
 
         initRightMeshConnector();
     }
@@ -126,11 +289,13 @@ public class MainActivity extends AppCompatActivity implements
      * Initialize and connect RightMesh.
      */
     private void initRightMeshConnector() {
-        getRightMeshConnector().setOnPeerChangedListener(event -> {
-            viewRightMeshRecipient.updatePeersList(event);
-            updateColoursOnPeerChanged(event);
-        });
-        getRightMeshConnector().setOnDataReceiveListener(this::receiveData);
+        getRightMeshConnector().setOnPeerChangedListener(viewRightMeshRecipient::updatePeersList);
+        viewRightMeshRecipient.setOnPeersChangedListener(this::updateColoursOnPeersChanged);
+        MetricsRegistry metrics = getRightMeshConnector().getMetrics();
+        metrics.gauge("peer.list_events", viewRightMeshRecipient::getPeerEventCount);
+        metrics.gauge("peer.list_coalesced", viewRightMeshRecipient::getCoalescedPeerEventCount);
+        getRightMeshConnector().setOnPingEventsListener(this::onPingEvents);
+        getRightMeshConnector().setOnDataReceiveListener(this::onDataReceive);
         getRightMeshConnector().setOnConnectSuccessListener(meshId -> {
             deviceId = meshId;
             // Initialize the peer adapter with this device's MeshId.
@@ -150,31 +315,23 @@ public class MainActivity extends AppCompatActivity implements
      *
      * @param view passed by Android
      */
-    @SuppressWarnings("PMD.SimpleDateFormatNeedsLocale")
     public void sendPing(View view) {
-        DateFormat df = new SimpleDateFormat("MMM dd kk:mm:ss:SSSS");
-
         // Null check, as recipientId has no default value.
         if (recipientId != null) {
-            // Ping content is just the current time, so they are unique and give us some rough
-            // concept of delay.
-            String timestamp = df.format(new Date());
-            String payload = "1" + timestamp;
-
             try {
-                // Attempt to ping the currently selected recipient.
-                // Using StandardCharsets.UTF_8 to remove reliance on default encoding
-                getRightMeshConnector().sendDataReliable(recipientId,
-                        payload.getBytes(Charset.forName("UTF-8")));
+                // Attempt to ping the currently selected recipient. Ping content is a sequence
+                // number, so they are unique, and the send time in nanoseconds, so the round trip
+                // can be timed when the echo returns.
+                PingRecord<MeshId> record = pingSender.send(recipientId);
 
                 // Log the ping if sent successfully.
-                pingsList.add(0, timestamp);
-                pingsListAdapter.notifyDataSetChanged();
-            } catch (RightMeshServiceDisconnectedException sde) {
+                logSentPing(record);
+                logFlusher.request();
+            } catch (TransportDisconnectedException tde) {
                 Log.e(TAG, "Service disconnected before ping could be sent, with message: "
-                        + sde.getMessage());
-            } catch (RightMeshException rme) {
-                Log.e(TAG, "Error occurred sending ping, with message: " + rme.getMessage());
+                        + tde.getMessage());
+            } catch (TransportException te) {
+                Log.e(TAG, "Error occurred sending ping, with message: " + te.getMessage());
             }
         }
     }
@@ -190,55 +347,172 @@ public class MainActivity extends AppCompatActivity implements
     public void onRecipientChanged(MeshId recipient) {
         recipientId = recipient;
         updateRecipientColour();
+        viewRightMeshRecipient.setPeerStats(peerStats.get(recipient), peerClocks.get(recipient));
     }
 
     /**
-     * Returns a ping, or logs a returned ping.
+     * Logs pings echoed by this device and updates the log and statistics when pings are
+     * returned.
      *
-     * @param rme Event passed from RightMesh.
+     * @param events batch of events handled by the {@link RightMeshConnector}
      */
-    private void receiveData(RightMeshEvent rme) {
-        // Parse data from event.
-        DataReceivedEvent dre = (DataReceivedEvent) rme;
-        String dataString = new String(dre.data, Charset.forName("UTF-8"));
-        char echoBit = dataString.charAt(0); // `1` for initial requests, `0` for echoed requests.
-        String timestamp = dataString.substring(1);
+    private void onPingEvents(List<PingEvent<MeshId>> events) {
+        for (PingEvent<MeshId> event : events) {
+            if (event.getType() == PingEvent.Type.ECHOED) {
+                PingRecord<MeshId> record = PingRecord.echoed(event.getSequence(),
+                        event.getPeer());
+                pingsListAdapter.queuePush(record);
+                recordInSession(record, PingRecord.Status.ECHOED);
+            } else {
+                PingRecord<MeshId> record = pingSender.onReturned(event.getSequence());
+                if (record != null) {
+                    // The wheel only expires deadlines once per tick, so an echo arriving just
+                    // after the deadline may beat the ping's loss here.
+                    if (event.getReceiveNanos() - record.getSendNanos()
+                            >= pingSender.getTimeoutNanos()) {
+                        logLostPing(record);
+                    }
+                    //update log.
+                    pingsListAdapter.queueReceived(record, event.getReceiveNanos());
+                    statsFor(record.getPeer()).onReceived(record);
+                    if (event.isTimed()) {
+                        clockFor(record.getPeer()).addSample(record.getSendNanos(),
+                                event.getResponderReceiveNanos(), event.getResponderSendNanos(),
+                                event.getReceiveNanos());
+                    }
+                    PeerStats surveyed = surveyStats.get(record.getPeer());
+                    if (surveyed != null) {
+                        surveyed.onReceived(record);
+                    }
+                    recordInSession(record, record.getStatus());
+                    if (payloadSweep != null) {
+                        payloadSweep.onSettled(record.getSequence(), record.getRttNanos());
+                    }
+                }
+            }
+        }
+        logFlusher.request();
+    }
 
-        if (echoBit == ECHO) {
-            // Echo messages starting with '1'.
-            String responsePayload = "0" + dataString.substring(1);
-            try {
-                getRightMeshConnector().sendDataReliable(dre.peerUuid,
-                        responsePayload.getBytes(Charset.forName("UTF-8")));
-                pingsList.add(0, "Echoed ping. ("
-                        + MeshHelper.getInstance().shortenMeshId(rme.peerUuid) + ")");
-            } catch (RightMeshServiceDisconnectedException sde) {
-                Log.e(TAG, "Service disconnected before ping could be returned, "
-                        + "with message: " + sde.getMessage());
-            } catch (RightMeshException rmx) {
-                Log.e(TAG, "Error occurred sending ping, with message: " + rmx.getMessage());
+    /**
+     * Passes the frames of bandwidth tests to the receiver or the running test. Called on the
+     * sending peer's background lane.
+     *
+     * @param peer sender
+     * @param data data that isn't a ping
+     */
+    private void onDataReceive(MeshId peer, byte[] data) {
+        if (BulkCodec.isChunk(data)) {
+            bulkReceiver.onChunk(peer, data);
+        } else if (BulkCodec.isAck(data)) {
+            BulkTransfer<MeshId> transfer = bulkTransfer;
+            if (transfer != null) {
+                transfer.onAck(peer, data);
             }
-        } else if (echoBit == ALREADY_ECHOED
-                && pingsList.contains(timestamp)) {
-            //update log.
-            pingsList.set(pingsList.indexOf(timestamp),
-                        timestamp + " - Received! ("
-                                + MeshHelper.getInstance().shortenMeshId(rme.peerUuid) + ")");
         }
+    }
 
-        // Null-check the adapter, as events may fire when the activity doesn't exist.
-        if (pingsListAdapter != null) {
-            pingsListAdapter.notifyDataSetChanged();
+    /**
+     * Creates the toolbar menu.
+     *
+     * @param menu passed by Android
+     * @return true to display the menu
+     */
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_main, menu);
+        return true;
+    }
+
+    /**
+     * Shows the controls for starting or stopping a flood, sweep, bandwidth test or survey,
+     * depending on whether one is running, and for showing the last survey's results.
+     *
+     * @param menu passed by Android
+     * @return true to display the menu
+     */
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        boolean flooding = pingGenerator.isRunning();
+        menu.findItem(R.id.action_start_flood).setVisible(!flooding);
+        menu.findItem(R.id.action_stop_flood).setVisible(flooding);
+        boolean sweeping = payloadSweep != null;
+        menu.findItem(R.id.action_start_sweep).setVisible(!sweeping);
+        menu.findItem(R.id.action_stop_sweep).setVisible(sweeping);
+        boolean streaming = bulkTransfer != null;
+        menu.findItem(R.id.action_start_bulk).setVisible(!streaming);
+        menu.findItem(R.id.action_stop_bulk).setVisible(streaming);
+        boolean surveying = peerSurvey != null;
+        menu.findItem(R.id.action_start_survey).setVisible(!surveying);
+        menu.findItem(R.id.action_stop_survey).setVisible(surveying);
+        menu.findItem(R.id.action_show_survey).setVisible(surveyPeers != null);
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    /**
+     * Handles toolbar menu selections.
+     *
+     * @param item selected menu item
+     * @return true if the selection was handled
+     */
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        switch (item.getItemId()) {
+            case R.id.action_start_flood:
+                promptForFlood();
+                return true;
+            case R.id.action_stop_flood:
+                pingGenerator.stop();
+                return true;
+            case R.id.action_start_sweep:
+                promptForSweep();
+                return true;
+            case R.id.action_stop_sweep:
+                payloadSweep.stop();
+                return true;
+            case R.id.action_start_bulk:
+                promptForBulk();
+                return true;
+            case R.id.action_stop_bulk:
+                if (bulkTransfer != null) {
+                    bulkTransfer.stop();
+                }
+                return true;
+            case R.id.action_start_survey:
+                promptForSurvey();
+                return true;
+            case R.id.action_stop_survey:
+                peerSurvey.stop();
+                return true;
+            case R.id.action_show_survey:
+                showSurvey();
+                return true;
+            case R.id.action_export_csv:
+                exportSession(SessionExporter.Format.CSV, ".csv");
+                return true;
+            case R.id.action_export_json:
+                exportSession(SessionExporter.Format.NDJSON, ".ndjson");
+                return true;
+            case R.id.action_show_metrics:
+                showMetrics();
+                return true;
+            case R.id.action_log_capacity:
+                DialogHelper.promptForNumber(this, R.string.dialog_log_capacity_title,
+                        pingsList.getCapacity(), this::setLogCapacity);
+                return true;
+            default:
+                break;
         }
+        return super.onOptionsItemSelected(item);
     }
 
     /**
      * Updates the colour of the selected peer every time its connection state changes.
      *
-     * @param rme event passed from RightMesh
+     * @param peers peers added to or removed from the peers list
      */
-    private void updateColoursOnPeerChanged(RightMeshEvent rme) {
-        if (rme.peerUuid.equals(recipientId)) {
+    private void updateColoursOnPeersChanged(List<MeshId> peers) {
+        if (recipientId != null && peers.contains(recipientId)) {
             updateRecipientColour();
         }
     }
@@ -253,11 +527,26 @@ public class MainActivity extends AppCompatActivity implements
     }
 
     /**
-     * Close RightMesh connection when activity is destroyed.
+     * Close RightMesh connection and the session log when activity is destroyed.
      */
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        destroyed = true;
+        pingGenerator.stop();
+        if (payloadSweep != null) {
+            payloadSweep.stop();
+        }
+        if (bulkTransfer != null) {
+            bulkTransfer.stop();
+        }
+        if (peerSurvey != null) {
+            peerSurvey.stop();
+        }
+        // Let the appends already queued finish, then close the log behind them.
+        pingScheduler.execute(this::closeSession);
+        pingScheduler.shutdown();
+        exportExecutor.shutdown();
         getRightMeshConnector().stop();
     }
 
@@ -265,6 +554,715 @@ public class MainActivity extends AppCompatActivity implements
     // HELPER FUNCTIONS
     //
 
+    /**
+     * Asks for the number and rate of pings to flood the recipient with, and how many may be
+     * outstanding at once, then starts the flood.
+     */
+    private void promptForFlood() {
+        if (recipientId == null) {
+            Toast.makeText(this, R.string.no_recipient, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        DialogHelper.promptForNumbers(this, R.string.dialog_flood_title,
+                new int[] {R.string.label_flood_count, R.string.label_flood_rate,
+                        R.string.label_flood_window},
+                new long[] {preferences.getFloodCount(), preferences.getFloodRate(),
+                        preferences.getFloodWindow()},
+                numbers -> startFlood(recipientId, numbers[0], numbers[1], numbers[2]));
+    }
+
+    /**
+     * Floods a peer with pings from the background scheduler.
+     *
+     * @param recipient     peer to ping
+     * @param count         number of pings, or {@link PingGenerator#UNLIMITED}
+     * @param ratePerSecond pings per second, or {@link PingGenerator#AS_FAST_AS_POSSIBLE}
+     * @param window        maximum number of pings outstanding, or {@link PingWindow#UNLIMITED}
+     */
+    private void startFlood(MeshId recipient, long count, long ratePerSecond, long window) {
+        if (window > MAX_FLOOD_WINDOW) {
+            Toast.makeText(this, getString(R.string.flood_window_too_large, MAX_FLOOD_WINDOW),
+                    Toast.LENGTH_SHORT).show();
+            return;
+        }
+        preferences.setFlood(count, ratePerSecond, window);
+        // The flood's own window, so other pings neither take its slots nor inherit its size.
+        PingWindow floodWindow = new PingWindow((int) window);
+        pingGenerator.start(count, ratePerSecond, () -> {
+            try {
+                PingRecord<MeshId> record = pingSender.trySend(recipient, floodWindow);
+                if (record == null) {
+                    return PingGenerator.PingTask.Result.BLOCKED;
+                }
+                floodPingBatcher.post(record);
+            } catch (TransportDisconnectedException tde) {
+                Log.e(TAG, "Service disconnected during flood, with message: "
+                        + tde.getMessage());
+                return PingGenerator.PingTask.Result.ABORT;
+            } catch (TransportException te) {
+                Log.e(TAG, "Error occurred sending flood ping, with message: "
+                        + te.getMessage());
+            }
+            return PingGenerator.PingTask.Result.SENT;
+        }, (sent, completed) -> runOnUiThread(() -> {
+            int message = completed ? R.plurals.flood_finished : R.plurals.flood_stopped;
+            Toast.makeText(this, getResources().getQuantityString(message, (int) sent, sent),
+                    Toast.LENGTH_SHORT).show();
+            invalidateOptionsMenu();
+        }));
+        invalidateOptionsMenu();
+    }
+
+    /**
+     * Asks for the range of payload sizes to sweep and the number of pings at each size, then
+     * starts the sweep.
+     */
+    private void promptForSweep() {
+        if (recipientId == null) {
+            Toast.makeText(this, R.string.no_recipient, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        DialogHelper.promptForNumbers(this, R.string.dialog_sweep_title,
+                new int[] {R.string.label_sweep_min, R.string.label_sweep_max,
+                        R.string.label_sweep_count},
+                new long[] {preferences.getSweepMin(), preferences.getSweepMax(),
+                        preferences.getSweepCount()},
+                numbers -> startSweep(recipientId, numbers[0], numbers[1], numbers[2]));
+    }
+
+    /**
+     * Pings a peer with payloads growing geometrically in size, one ping at a time, and reports
+     * the round trip time and goodput at each size once the sweep ends.
+     *
+     * @param recipient peer to ping
+     * @param min       smallest payload, in bytes
+     * @param max       largest payload, in bytes
+     * @param count     number of pings at each payload size
+     */
+    private void startSweep(MeshId recipient, long min, long max, long count) {
+        if (min < PayloadSweep.MIN_PAYLOAD_LENGTH || max > MAX_SWEEP_PAYLOAD || min > max
+                || count < 1 || count > Integer.MAX_VALUE) {
+            Toast.makeText(this, getString(R.string.sweep_range_invalid,
+                    PayloadSweep.MIN_PAYLOAD_LENGTH, MAX_SWEEP_PAYLOAD),
+                    Toast.LENGTH_LONG).show();
+            return;
+        }
+        preferences.setSweep(min, max, count);
+        sweepReport = new StringBuilder();
+        payloadSweep = new PayloadSweep(pingScheduler,
+                PayloadSweep.geometricLengths((int) min, (int) max, SWEEP_FACTOR), (int) count,
+                length -> {
+                    try {
+                        PingRecord<MeshId> record = pingSender.send(recipient,
+                                length - PayloadSweep.MIN_PAYLOAD_LENGTH);
+                        floodPingBatcher.post(record);
+                        return record.getSequence();
+                    } catch (TransportException te) {
+                        Log.e(TAG, "Error occurred sending sweep ping, with message: "
+                                + te.getMessage());
+                        return -1;
+                    }
+                }, new PayloadSweep.Listener() {
+                    @Override
+                    public void onStepFinished(PayloadSweep.Step step) {
+                        runOnUiThread(() -> reportSweepStep(step));
+                    }
+
+                    @Override
+                    public void onFinished(boolean completed) {
+                        runOnUiThread(() -> finishSweep(completed));
+                    }
+                });
+        payloadSweep.start();
+        invalidateOptionsMenu();
+    }
+
+    /**
+     * Adds the results of a sweep step to the report.
+     *
+     * @param step results of the step
+     */
+    private void reportSweepStep(PayloadSweep.Step step) {
+        LatencyHistogram rtts = step.getRtts();
+        String line = String.format(Locale.US, getString(R.string.sweep_step),
+                formatBytes(step.getPayloadLength()), step.getSent() - step.getLost(),
+                step.getSent(), rtts.getMean() / 1e6, rtts.getValueAtPercentile(90) / 1e6,
+                formatBytes(step.getGoodputBytesPerSecond()));
+        Log.i(TAG, line);
+        if (sweepReport != null) {
+            sweepReport.append(line).append('\n');
+        }
+    }
+
+    /**
+     * Shows the report of a sweep that has ended.
+     *
+     * @param completed true if every step was completed
+     */
+    private void finishSweep(boolean completed) {
+        payloadSweep = null;
+        invalidateOptionsMenu();
+        if (destroyed || sweepReport == null) {
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(completed ? R.string.sweep_finished_title : R.string.sweep_stopped_title)
+                .setMessage(sweepReport.toString().trim())
+                .setPositiveButton(android.R.string.ok, null)
+                .show();
+        sweepReport = null;
+    }
+
+    /**
+     * Asks for the number of pings to send each connected peer and the rate at which to ping each,
+     * then starts pinging them all.
+     */
+    private void promptForSurvey() {
+        List<MeshId> peers = new ArrayList<>();
+        for (int i = 0; i < peersListAdapter.getCount(); i++) {
+            MeshId peer = peersListAdapter.getItem(i);
+            if (peer != null && !peer.equals(deviceId)) {
+                peers.add(peer);
+            }
+        }
+        if (peers.isEmpty()) {
+            Toast.makeText(this, R.string.survey_no_peers, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        DialogHelper.promptForNumbers(this, R.string.dialog_survey_title,
+                new int[] {R.string.label_survey_count, R.string.label_survey_rate},
+                new long[] {preferences.getSurveyCount(), preferences.getSurveyRate()},
+                numbers -> startSurvey(peers, numbers[0], numbers[1]));
+    }
+
+    /**
+     * Pings every given peer at once from the background scheduler, each at its own rate and
+     * starting staggered, and shows the grid of their results.
+     *
+     * @param peers         peers to ping
+     * @param count         number of pings per peer
+     * @param ratePerSecond pings per second to each peer
+     */
+    private void startSurvey(List<MeshId> peers, long count, long ratePerSecond) {
+        if (count < 1 || ratePerSecond < 1 || ratePerSecond > MAX_SURVEY_RATE) {
+            Toast.makeText(this, getString(R.string.survey_invalid, MAX_SURVEY_RATE),
+                    Toast.LENGTH_LONG).show();
+            return;
+        }
+        preferences.setSurvey(count, ratePerSecond);
+        surveyPeers = peers;
+        // Only read on the scheduler, so a later survey replacing surveyStats can't mix them up.
+        Map<MeshId, PeerStats> stats = new HashMap<>();
+        for (MeshId peer : peers) {
+            stats.put(peer, new PeerStats());
+        }
+        surveyStats.clear();
+        surveyStats.putAll(stats);
+        peerSurvey = new PeerSurvey<>(pingScheduler, peers, count, ratePerSecond, peer -> {
+            try {
+                // Paced by the survey's rate alone, without a window.
+                floodPingBatcher.post(pingSender.send(peer));
+            } catch (TransportDisconnectedException tde) {
+                Log.e(TAG, "Service disconnected during survey, with message: "
+                        + tde.getMessage());
+                return PingGenerator.PingTask.Result.ABORT;
+            } catch (TransportException te) {
+                Log.e(TAG, "Error occurred sending survey ping, with message: "
+                        + te.getMessage());
+                // The ping counts towards the survey, so count it as sent and lost in the grid.
+                PeerStats surveyed = stats.get(peer);
+                runOnUiThread(() -> {
+                    surveyed.onSent();
+                    surveyed.onLost();
+                });
+            }
+            return PingGenerator.PingTask.Result.SENT;
+        }, (sent, completed) -> runOnUiThread(() -> finishSurvey(sent, completed)));
+        peerSurvey.start();
+        invalidateOptionsMenu();
+        showSurvey();
+    }
+
+    /**
+     * Reports the end of a survey. Its grid keeps updating as the last echoes come in.
+     *
+     * @param sent      number of pings sent
+     * @param completed true if every peer was sent all its pings
+     */
+    private void finishSurvey(long sent, boolean completed) {
+        // A new survey may have started since this one ended.
+        if (peerSurvey != null && !peerSurvey.isRunning()) {
+            peerSurvey = null;
+        }
+        invalidateOptionsMenu();
+        int message = completed ? R.plurals.survey_finished : R.plurals.survey_stopped;
+        Toast.makeText(this, getResources().getQuantityString(message, (int) sent, sent),
+                Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Shows the grid of the last survey's results, redrawn with the log until it is dismissed.
+     */
+    private void showSurvey() {
+        if (destroyed || surveyPeers == null) {
+            return;
+        }
+        SurveyGridAdapter adapter = new SurveyGridAdapter(surveyPeers, surveyStats);
+        RecyclerView grid = new RecyclerView(this);
+        grid.setLayoutManager(new GridLayoutManager(this, SURVEY_COLUMNS));
+        grid.setAdapter(adapter);
+        surveyGridAdapter = adapter;
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.survey_title)
+                .setView(grid)
+                .setPositiveButton(android.R.string.ok, null)
+                .setOnDismissListener(dialog -> {
+                    if (surveyGridAdapter == adapter) {
+                        surveyGridAdapter = null;
+                    }
+                })
+                .show();
+    }
+
+    /**
+     * Asks for the amount of data to stream to the recipient, the size of its chunks and how many
+     * may await acknowledgement at once, then starts the bandwidth test.
+     */
+    private void promptForBulk() {
+        if (recipientId == null) {
+            Toast.makeText(this, R.string.no_recipient, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        DialogHelper.promptForNumbers(this, R.string.dialog_bulk_title,
+                new int[] {R.string.label_bulk_bytes, R.string.label_bulk_chunk,
+                        R.string.label_bulk_window},
+                new long[] {preferences.getBulkBytes(), preferences.getBulkChunk(),
+                        preferences.getBulkWindow()},
+                numbers -> startBulk(recipientId, numbers[0], numbers[1], numbers[2]));
+    }
+
+    /**
+     * Streams generated data to a peer from the background scheduler and reports the throughput
+     * once every chunk has been acknowledged.
+     *
+     * @param recipient peer to stream to
+     * @param bytes     amount of data, in bytes
+     * @param chunk     data carried by each chunk, in bytes
+     * @param window    maximum number of chunks awaiting acknowledgement
+     */
+    private void startBulk(MeshId recipient, long bytes, long chunk, long window) {
+        if (bytes < 1 || bytes > MAX_BULK_BYTES || chunk < 1 || chunk > MAX_BULK_CHUNK
+                || window < 1 || window > MAX_BULK_WINDOW) {
+            Toast.makeText(this, getString(R.string.bulk_invalid, MAX_BULK_BYTES, MAX_BULK_CHUNK,
+                    MAX_BULK_WINDOW), Toast.LENGTH_LONG).show();
+            return;
+        }
+        preferences.setBulk(bytes, chunk, window);
+        bulkTransfer = new BulkTransfer<>(getRightMeshConnector(), pingScheduler, recipient,
+                bytes, (int) chunk, (int) window, BULK_TIMEOUT_MILLIS,
+                (result, completed) -> runOnUiThread(() -> finishBulk(result, completed)));
+        bulkTransfer.start();
+        invalidateOptionsMenu();
+    }
+
+    /**
+     * Shows the results of a bandwidth test that has ended.
+     *
+     * @param result    what the test achieved
+     * @param completed true if every chunk was acknowledged
+     */
+    private void finishBulk(BulkTransfer.Result result, boolean completed) {
+        bulkTransfer = null;
+        invalidateOptionsMenu();
+        if (result.getFailure() != null) {
+            Log.e(TAG, "Error occurred sending bandwidth test, with message: "
+                    + result.getFailure().getMessage());
+        }
+        String report = String.format(Locale.US, getString(R.string.bulk_result),
+                formatBytes(result.getBytes()), result.getElapsedNanos() / 1e9,
+                result.getMegabytesPerSecond(), result.getRetransmits(),
+                result.getChunksSent());
+        Log.i(TAG, report);
+        if (destroyed) {
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle(completed ? R.string.bulk_finished_title : R.string.bulk_stopped_title)
+                .setMessage(report)
+                .setPositiveButton(android.R.string.ok, null)
+                .show();
+    }
+
+    /**
+     * Tells the user a peer's bandwidth test has streamed all its data to this device.
+     *
+     * @param peer         sender
+     * @param bytes        data received, in bytes
+     * @param elapsedNanos time from the first chunk to the last
+     */
+    private void reportBulkReceived(MeshId peer, long bytes, long elapsedNanos) {
+        double megabytesPerSecond = elapsedNanos == 0 ? 0 : bytes * 1e3 / elapsedNanos;
+        String message = String.format(Locale.US, getString(R.string.bulk_received),
+                formatBytes(bytes), MeshHelper.getInstance().shortenMeshId(peer),
+                megabytesPerSecond);
+        Log.i(TAG, message);
+        if (!destroyed) {
+            Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+        }
+    }
+
+    /**
+     * Formats a number of bytes with a binary unit.
+     *
+     * @param bytes number of bytes
+     * @return the number, in B, KiB or MiB
+     */
+    private static String formatBytes(double bytes) {
+        if (bytes < 1024) {
+            return String.format(Locale.US, "%.0f B", bytes);
+        } else if (bytes < 1024 * 1024) {
+            return String.format(Locale.US, "%.1f KiB", bytes / 1024);
+        }
+        return String.format(Locale.US, "%.1f MiB", bytes / (1024 * 1024));
+    }
+
+    /**
+     * Changes and persists how many pings the log keeps individually.
+     *
+     * @param capacity number of pings to keep
+     */
+    private void setLogCapacity(long capacity) {
+        if (capacity < PingLog.MIN_CAPACITY || capacity > PingLog.MAX_CAPACITY) {
+            Toast.makeText(this, getString(R.string.log_capacity_out_of_range,
+                    PingLog.MIN_CAPACITY, PingLog.MAX_CAPACITY), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        // Apply queued changes first, so they are evicted into the summary as needed.
+        logFlusher.runPending();
+        pingsList.setCapacity((int) capacity);
+        preferences.setLogCapacity((int) capacity);
+        pingsListAdapter.notifyDataSetChanged();
+        updateLogSummary();
+    }
+
+    /**
+     * Queues a ping sent by this device to be logged, and counts it.
+     *
+     * @param record record of the sent ping
+     */
+    private void logSentPing(PingRecord<MeshId> record) {
+        pingsListAdapter.queuePush(record);
+        statsFor(record.getPeer()).onSent();
+        PeerStats surveyed = surveyStats.get(record.getPeer());
+        if (surveyed != null) {
+            surveyed.onSent();
+        }
+        recordInSession(record, PingRecord.Status.SENT);
+    }
+
+    /**
+     * Marks a ping as lost in the log and counts it, unless its echo has already been logged.
+     *
+     * @param record record of the ping
+     */
+    private void logLostPing(PingRecord<MeshId> record) {
+        if (pingsListAdapter.queueLost(record)) {
+            statsFor(record.getPeer()).onLost();
+            PeerStats surveyed = surveyStats.get(record.getPeer());
+            if (surveyed != null) {
+                surveyed.onLost();
+            }
+            recordInSession(record, PingRecord.Status.LOST);
+            if (payloadSweep != null) {
+                payloadSweep.onSettled(record.getSequence(), -1);
+            }
+        }
+    }
+
+    /**
+     * Recovers the log of the previous session, which may have been cut short by a crash, and
+     * starts logging this one. Runs on the ping scheduler, as it reads and writes files.
+     */
+    private void openSession() {
+        List<File> previous = sessionStore.list();
+        PingSummary recovered = null;
+        if (!previous.isEmpty()) {
+            try {
+                recovered = SessionLog.recover(previous.get(previous.size() - 1));
+            } catch (IOException ioe) {
+                Log.e(TAG, "Couldn't recover the previous session, with message: "
+                        + ioe.getMessage());
+            }
+        }
+        SessionLog log;
+        try {
+            log = sessionStore.start(System.currentTimeMillis(), System.nanoTime());
+        } catch (IOException ioe) {
+            Log.e(TAG, "Couldn't start the session log, with message: " + ioe.getMessage());
+            log = null;
+        }
+        sessionLog = log;
+        PingSummary summary = recovered;
+        runOnUiThread(() -> {
+            if (destroyed) {
+                return;
+            }
+            if (summary != null && !summary.isEmpty()) {
+                Toast.makeText(this, String.format(Locale.US,
+                        getString(R.string.session_recovered), summary.getSent(),
+                        summary.getReceived(), summary.getLost(), summary.getEchoed()),
+                        Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+
+    /**
+     * Exports the current session to app storage on the export thread, as a file of pings and a
+     * file of peer statistics, streaming them so sessions of any length fit in memory.
+     *
+     * The session is read while the ping scheduler may still be appending to it. The reader stops
+     * at the first entry that doesn't match its checksum, so a half-written entry at the end is
+     * simply left out.
+     *
+     * @param format    output format
+     * @param extension extension of the exported files
+     */
+    private void exportSession(SessionExporter.Format format, String extension) {
+        exportExecutor.execute(() -> {
+            List<File> sessions = sessionStore.list();
+            if (sessions.isEmpty()) {
+                return;
+            }
+            File session = sessions.get(sessions.size() - 1);
+            File directory = getExternalFilesDir("exports");
+            if (directory == null) {
+                directory = new File(getFilesDir(), "exports");
+            }
+            String name = session.getName().replace(SessionStore.EXTENSION, "");
+            File pings = new File(directory, name + "-pings" + extension);
+            File peers = new File(directory, name + "-peers" + extension);
+            String message;
+            try {
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Couldn't create " + directory + ".");
+                }
+                writeExport(session, new SessionExporter(format, TimeUnit.MILLISECONDS.toNanos(
+                        PING_TIMEOUT_MILLIS + LATE_WINDOW_MILLIS)), pings, peers);
+                message = getString(R.string.export_finished, pings.getPath(), peers.getPath());
+            } catch (IOException ioe) {
+                Log.e(TAG, "Couldn't export the session, with message: " + ioe.getMessage());
+                message = getString(R.string.export_failed);
+            }
+            String result = message;
+            runOnUiThread(() -> Toast.makeText(this, result, Toast.LENGTH_LONG).show());
+        });
+    }
+
+    /**
+     * Shows the connector's counters and timings, with buttons to save them to a file or start
+     * counting afresh. The metrics are read on the UI thread, which the recipient view's gauges
+     * require.
+     */
+    private void showMetrics() {
+        MetricsRegistry metrics = getRightMeshConnector().getMetrics();
+        String text = metrics.format();
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.metrics_title)
+                .setMessage(text)
+                .setPositiveButton(android.R.string.ok, null)
+                .setNeutralButton(R.string.metrics_save, (dialog, which) -> saveMetrics(text))
+                .setNegativeButton(R.string.metrics_reset, (dialog, which) -> metrics.reset())
+                .show();
+    }
+
+    /**
+     * Writes metrics to a timestamped file in app storage on the ping scheduler.
+     *
+     * @param text metrics as shown to the user
+     */
+    private void saveMetrics(String text) {
+        long now = System.currentTimeMillis();
+        pingScheduler.execute(() -> {
+            File directory = getExternalFilesDir("metrics");
+            if (directory == null) {
+                directory = new File(getFilesDir(), "metrics");
+            }
+            File file = new File(directory, "metrics-" + now + ".txt");
+            String message;
+            try {
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Couldn't create " + directory + ".");
+                }
+                Writer out = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(file), Charset.forName("UTF-8")));
+                try {
+                    out.write(text);
+                } finally {
+                    out.close();
+                }
+                message = getString(R.string.metrics_saved, file.getPath());
+            } catch (IOException ioe) {
+                Log.e(TAG, "Couldn't save the metrics, with message: " + ioe.getMessage());
+                message = getString(R.string.metrics_save_failed);
+            }
+            String result = message;
+            runOnUiThread(() -> Toast.makeText(this, result, Toast.LENGTH_LONG).show());
+        });
+    }
+
+    /**
+     * Streams a session log out through an exporter.
+     *
+     * @param session  session log to export
+     * @param exporter exporter writing the chosen format
+     * @param pings    file receiving the pings
+     * @param peers    file receiving the peer statistics
+     * @throws IOException The log couldn't be read or the files written.
+     */
+    private static void writeExport(File session, SessionExporter exporter, File pings,
+                                    File peers) throws IOException {
+        Charset utf8 = Charset.forName("UTF-8");
+        SessionReader reader = new SessionReader(session);
+        try {
+            Writer pingsOut = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(pings), utf8));
+            try {
+                Writer peersOut = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(peers), utf8));
+                try {
+                    exporter.export(reader, pingsOut, peersOut);
+                } finally {
+                    peersOut.close();
+                }
+            } finally {
+                pingsOut.close();
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Queues a status of a ping to be appended to the session log on the ping scheduler, so the
+     * UI thread never waits for the file to grow.
+     *
+     * The status is passed in rather than read from the record, as an early echo may already have
+     * marked the record received by the time its send or loss is logged.
+     *
+     * @param record record of the ping
+     * @param status status to log
+     */
+    private void recordInSession(PingRecord<MeshId> record, PingRecord.Status status) {
+        if (destroyed) {
+            return;
+        }
+        // Copy the fields now, as the record may change again before the append runs.
+        MeshId peer = record.getPeer();
+        long sequence = record.getSequence();
+        long sendNanos = record.getSendNanos();
+        long rttNanos = status == PingRecord.Status.SENT || status == PingRecord.Status.LOST
+                ? -1 : record.getRttNanos();
+        pingScheduler.execute(() -> appendToSession(peer, status, sequence, sendNanos, rttNanos));
+    }
+
+    /**
+     * Appends a status of a ping to the session log, if it is open. Runs on the ping scheduler.
+     *
+     * @param peer      peer of the ping
+     * @param status    status to log
+     * @param sequence  sequence number of the ping
+     * @param sendNanos time the ping was sent
+     * @param rttNanos  round trip time, or -1 if the echo hadn't arrived
+     */
+    private void appendToSession(MeshId peer, PingRecord.Status status, long sequence,
+                                 long sendNanos, long rttNanos) {
+        if (sessionLog == null) {
+            return;
+        }
+        try {
+            sessionLog.append(peer, status, sequence, sendNanos, rttNanos);
+        } catch (IOException ioe) {
+            Log.e(TAG, "Stopped logging the session, with message: " + ioe.getMessage());
+            closeSession();
+        }
+    }
+
+    /**
+     * Closes the session log, if it is open. Runs on the ping scheduler.
+     */
+    private void closeSession() {
+        if (sessionLog == null) {
+            return;
+        }
+        try {
+            sessionLog.close();
+        } catch (IOException ioe) {
+            Log.e(TAG, "Couldn't close the session log, with message: " + ioe.getMessage());
+        }
+        sessionLog = null;
+    }
+
+    /**
+     * Gets the statistics of a peer, creating them the first time it is pinged.
+     *
+     * @param peer pinged peer
+     * @return statistics of the peer
+     */
+    private PeerStats statsFor(MeshId peer) {
+        PeerStats stats = peerStats.get(peer);
+        if (stats == null) {
+            stats = new PeerStats();
+            peerStats.put(peer, stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Gets the clock estimate of a peer, creating it on its first timed echo.
+     *
+     * @param peer pinged peer
+     * @return estimate of the peer's clock
+     */
+    private ClockOffsetEstimator clockFor(MeshId peer) {
+        ClockOffsetEstimator clock = peerClocks.get(peer);
+        if (clock == null) {
+            clock = new ClockOffsetEstimator();
+            peerClocks.put(peer, clock);
+        }
+        return clock;
+    }
+
+    /**
+     * Applies queued changes to the log, redrawing only the affected rows, the summary, the
+     * recipient's statistics and the survey grid if it is open.
+     */
+    private void flushLog() {
+        pingsListAdapter.flush();
+        updateLogSummary();
+        if (recipientId != null) {
+            viewRightMeshRecipient.setPeerStats(peerStats.get(recipientId),
+                    peerClocks.get(recipientId));
+        }
+        if (surveyGridAdapter != null) {
+            surveyGridAdapter.refresh();
+        }
+    }
+
+    /**
+     * Shows the summary of pings rolled out of the log, once there are any.
+     */
+    private void updateLogSummary() {
+        PingSummary archived = pingsList.getArchived();
+        if (archived.isEmpty()) {
+            tvLogSummary.setVisibility(View.GONE);
+        } else {
+            tvLogSummary.setText(String.format(Locale.US, getString(R.string.log_summary),
+                    archived.getSent(), archived.getReceived(),
+                    archived.getMeanRttNanos() / 1e6, archived.getLost(), archived.getEchoed()));
+            tvLogSummary.setVisibility(View.VISIBLE);
+        }
+    }
+
     /**
      * Makes the recipient colour green if the recipient is connected, red if it isn't, or leaves it
      * blue if the recipient is the current device.
@@ -1,6 +1,7 @@
 package io.left.reflect;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
@@ -10,13 +11,41 @@ import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 
 import io.left.reflect.helper.MeshHelper;
+import io.left.reflect.transport.ConnectivityTimeline;
+import io.left.reflect.transport.PeerRegistry;
 import io.left.rightmesh.id.MeshId;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 /**
  * A custom adapter to style the MeshIds a little nicer in the list.
+ *
+ * The peers are kept in a {@link PeerRegistry} rather than the {@link ArrayAdapter}'s own list, so
+ * checking, adding and removing a peer doesn't scan the list, however many peers there are. Only
+ * the methods overridden here go through the registry.
+ *
+ * Peers that have left and rejoined are shown with their uptime, mean session length and flap
+ * rate, from the {@link ConnectivityTimeline} of each peer ever seen.
  */
 class MeshIdAdapter extends ArrayAdapter<MeshId> {
 
+    /**
+     * Peers in the list, in the order they were added.
+     */
+    private final PeerRegistry<MeshId> peers = new PeerRegistry<>();
+
+    /**
+     * Joining and leaving history of every peer seen, kept after they leave.
+     */
+    private final Map<MeshId, ConnectivityTimeline> timelines = new HashMap<>();
+
+    /**
+     * Whether adding or removing a peer notifies the views, as in {@link ArrayAdapter}.
+     */
+    private boolean notifyOnChange = true;
+
     /**
      * Id of the peer to treat as this device (i.e. for styling and naming).
      */
@@ -83,6 +112,10 @@ class MeshIdAdapter extends ArrayAdapter<MeshId> {
             } else {
                 // Otherwise, simply make the MeshId more readable and use the theme default colour.
                 text = MeshHelper.getInstance().shortenMeshId(item);
+                ConnectivityTimeline timeline = timelines.get(item);
+                if (timeline != null && timeline.getTransitionCount() > 1) {
+                    text = describeTimeline(text, timeline, SystemClock.elapsedRealtime());
+                }
                 colour = android.R.color.primary_text_light;
             }
             view.setText(text);
@@ -91,11 +124,111 @@ class MeshIdAdapter extends ArrayAdapter<MeshId> {
         return view;
     }
 
+    /**
+     * Appends a peer's uptime, mean session length and flap rate to its name.
+     *
+     * @param name      shortened id of the peer
+     * @param timeline  joining and leaving history of the peer
+     * @param nowMillis current time on the {@link SystemClock#elapsedRealtime()} clock
+     * @return the name followed by the statistics
+     */
+    private String describeTimeline(String name, ConnectivityTimeline timeline, long nowMillis) {
+        return String.format(Locale.US, getContext().getString(R.string.peer_timeline), name,
+                timeline.getUptimeRatio(nowMillis) * 100,
+                timeline.getMeanSessionMillis(nowMillis) / 60_000,
+                timeline.getFlapsPerHour(nowMillis));
+    }
+
+
+    //
+    // LIST METHODS
+    //
+
+    @Override
+    public int getCount() {
+        return peers.size();
+    }
+
+    @Override
+    public MeshId getItem(int position) {
+        return peers.get(position);
+    }
+
+    @Override
+    public int getPosition(MeshId item) {
+        return peers.indexOf(item);
+    }
+
+    /**
+     * Adds a peer at the end of the list, unless it is already in it.
+     *
+     * @param item peer to add
+     */
+    @Override
+    public void add(MeshId item) {
+        if (peers.add(item) && notifyOnChange) {
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Removes a peer, keeping the others in order.
+     *
+     * @param item peer to remove
+     */
+    @Override
+    public void remove(MeshId item) {
+        if (peers.remove(item) && notifyOnChange) {
+            notifyDataSetChanged();
+        }
+    }
+
+    @Override
+    public void clear() {
+        peers.clear();
+        if (notifyOnChange) {
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Sets whether adding or removing peers notifies the views. Like {@link ArrayAdapter}, the
+     * next call to {@link #notifyDataSetChanged()} turns notifications back on.
+     *
+     * @param notifyOnChange false to batch changes until {@link #notifyDataSetChanged()}
+     */
+    @Override
+    public void setNotifyOnChange(boolean notifyOnChange) {
+        super.setNotifyOnChange(notifyOnChange);
+        this.notifyOnChange = notifyOnChange;
+    }
+
+    @Override
+    public void notifyDataSetChanged() {
+        super.notifyDataSetChanged();
+        notifyOnChange = true;
+    }
 
     //
     // HELPER METHODS
     //
 
+    /**
+     * Records that a peer joined or left the mesh, whether or not the list is updated for it yet.
+     *
+     * @param item       peer that joined or left
+     * @param up         true if it joined
+     * @param timeMillis when, on the {@link SystemClock#elapsedRealtime()} clock
+     */
+    void recordTransition(MeshId item, boolean up, long timeMillis) {
+        ConnectivityTimeline timeline = timelines.get(item);
+        if (timeline == null) {
+            timeline = new ConnectivityTimeline();
+            timelines.put(item, timeline);
+        }
+        timeline.record(up, timeMillis);
+    }
+
     /**
      * Mimic {@link java.util.ArrayList#contains(Object)} behaviour to make this class easier to
      * use as a list.
@@ -104,6 +237,6 @@ class MeshIdAdapter extends ArrayAdapter<MeshId> {
      * @return true if the provided item is in the array, false otherwise
      */
     boolean contains(MeshId item) {
-        return getPosition(item) >= 0; // The position is -1 if it doesn't exist.
+        return peers.contains(item);
     }
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+package io.left.reflect;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import io.left.reflect.helper.MeshHelper;
+import io.left.reflect.ping.PingLog;
+import io.left.reflect.ping.PingRecord;
+import io.left.rightmesh.id.MeshId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Adapter rendering the ping log, formatting each {@link PingRecord} as it is bound rather than
+ * storing display strings.
+ *
+ * Changes to the log are queued and applied together by {@link PingLogAdapter#flush()}, which
+ * tells the {@link RecyclerView} exactly which rows were inserted, evicted or changed so only
+ * those are rebound.
+ */
+class PingLogAdapter extends RecyclerView.Adapter<PingLogAdapter.ViewHolder> {
+    private final PingLog<MeshId> log;
+
+    // Changes made since the last flush.
+    private final List<PingRecord<MeshId>> pendingPushes = new ArrayList<>();
+    private final List<PingRecord<MeshId>> pendingChanges = new ArrayList<>();
+
+    /**
+     * Creates an adapter around the log.
+     *
+     * @param log ping log, newest first
+     */
+    PingLogAdapter(@NonNull PingLog<MeshId> log) {
+        this.log = log;
+    }
+
+    /**
+     * Queues a record to be added to the top of the log on the next flush.
+     *
+     * @param record new record
+     */
+    void queuePush(PingRecord<MeshId> record) {
+        pendingPushes.add(record);
+    }
+
+    /**
+     * Marks a sent ping as received, redrawing its row on the next flush.
+     *
+     * @param record       record of the sent ping
+     * @param receiveNanos {@link System#nanoTime()} when the echo arrived
+     */
+    void queueReceived(PingRecord<MeshId> record, long receiveNanos) {
+        // Changing a record doesn't move rows, so the log itself can be updated right away.
+        log.markReceived(record, receiveNanos);
+        pendingChanges.add(record);
+    }
+
+    /**
+     * Marks a sent ping as lost, redrawing its row on the next flush.
+     *
+     * @param record record of the sent ping
+     * @return true if the ping was waiting for its echo and is now lost
+     */
+    boolean queueLost(PingRecord<MeshId> record) {
+        if (!log.markLost(record)) {
+            return false;
+        }
+        pendingChanges.add(record);
+        return true;
+    }
+
+    /**
+     * Applies the queued changes to the log and notifies the view of the affected rows.
+     */
+    void flush() {
+        int oldSize = log.size();
+        int pushes = pendingPushes.size();
+        for (PingRecord<MeshId> record : pendingPushes) {
+            log.push(record);
+        }
+
+        if (pushes >= log.getCapacity()) {
+            // Every row has been replaced.
+            notifyDataSetChanged();
+        } else {
+            int evicted = oldSize + pushes - log.size();
+            if (evicted > 0) {
+                notifyItemRangeRemoved(oldSize - evicted, evicted);
+            }
+            if (pushes > 0) {
+                notifyItemRangeInserted(0, pushes);
+            }
+            for (PingRecord<MeshId> record : pendingChanges) {
+                // Rows pushed in this flush are drawn fresh, and evicted rows are gone.
+                int position = log.positionOf(record);
+                if (position >= pushes) {
+                    notifyItemChanged(position);
+                }
+            }
+        }
+
+        pendingPushes.clear();
+        pendingChanges.clear();
+    }
+
+    /**
+     * Gets a record, newest first.
+     *
+     * @param position position in the log
+     * @return the record
+     */
+    PingRecord<MeshId> getItem(int position) {
+        return log.get(position);
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(android.R.layout.simple_list_item_1, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.text.setText(describe(log.get(position)));
+    }
+
+    @Override
+    public int getItemCount() {
+        return log.size();
+    }
+
+    /**
+     * Builds the log line for a record.
+     *
+     * @param record record to describe
+     * @return human readable description of the ping and its status
+     */
+    static String describe(PingRecord<MeshId> record) {
+        String peer = MeshHelper.getInstance().shortenMeshId(record.getPeer());
+        switch (record.getStatus()) {
+            case ECHOED:
+                return "Echoed ping. (" + peer + ")";
+            case RECEIVED:
+                return "Ping #" + record.getSequence() + " - Received! (" + peer + ") "
+                        + String.format(Locale.US, "%.1f ms", record.getRttNanos() / 1e6);
+            case LOST:
+                return "Ping #" + record.getSequence() + " - Lost. (" + peer + ")";
+            case LATE:
+                return "Ping #" + record.getSequence() + " - Late! (" + peer + ") "
+                        + String.format(Locale.US, "%.1f ms", record.getRttNanos() / 1e6);
+            case SENT:
+            default:
+                return "Ping #" + record.getSequence();
+        }
+    }
+
+    /**
+     * Holds the text view of a single log row.
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView text;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            text = itemView.findViewById(android.R.id.text1);
+        }
+    }
+}
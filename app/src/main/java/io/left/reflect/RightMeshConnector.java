@@ -1,35 +1,108 @@
 package io.left.reflect;
 
+import static io.left.rightmesh.mesh.MeshManager.ADDED;
 import static io.left.rightmesh.mesh.MeshManager.DATA_RECEIVED;
 import static io.left.rightmesh.mesh.MeshManager.PEER_CHANGED;
+import static io.left.rightmesh.mesh.MeshManager.REMOVED;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
+
+import io.left.reflect.engine.MeshEventDispatcher;
+import io.left.reflect.engine.PingResponder;
+import io.left.reflect.metrics.LatencyTimer;
+import io.left.reflect.metrics.MetricsRegistry;
+import io.left.reflect.metrics.StripedCounter;
+import io.left.reflect.ping.PingEvent;
+import io.left.reflect.transport.MeshTransport;
+import io.left.reflect.transport.NextHopCache;
+import io.left.reflect.transport.TransportException;
 import io.left.rightmesh.android.AndroidMeshManager;
 import io.left.rightmesh.id.MeshId;
 import io.left.rightmesh.mesh.MeshManager;
+import io.left.rightmesh.mesh.MeshManager.DataReceivedEvent;
+import io.left.rightmesh.mesh.MeshManager.PeerChangedEvent;
 import io.left.rightmesh.mesh.MeshStateListener;
 import io.left.rightmesh.util.RightMeshException;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+
 /**
  * To communicate with the RightMesh service and redirect to RightMesh wallet activity.
  *
- * After connecting, we can register {@link OnDataReceiveListener}, {@link OnPeerChangedListener},
- * {@link OnConnectSuccessListener} to receive the RightMesh event.
+ * After connecting, we can register {@link OnPingEventsListener}, {@link OnDataReceiveListener},
+ * {@link OnPeerChangedListener}, {@link OnConnectSuccessListener} to receive the RightMesh event.
+ *
+ * This is the {@link MeshTransport} the ping engine runs over on a handset. Incoming data is handed
+ * to a {@link PingResponder}, which echoes pings straight away on a background lane per peer; only
+ * the small {@link PingEvent}s describing what happened are posted to the UI thread, in batches.
+ *
+ * Sends, RightMesh callbacks and their failures are counted and timed in a {@link MetricsRegistry},
+ * to tell delays in this app from delays in the mesh. Timers cover the calls into RightMesh, the
+ * time our handlers hold the RightMesh thread, and how long peer changes wait for the UI thread.
  *
  * Always call {@link RightMeshConnector#stop()} if not interest in keeping connection with
  * RightMesh service anymore.
  */
-public class RightMeshConnector implements MeshStateListener {
+public class RightMeshConnector implements MeshStateListener, MeshTransport<MeshId> {
     private static final String TAG = RightMeshConnector.class.getCanonicalName();
 
+    // Time a next hop is trusted before RightMesh is asked for it again.
+    private static final long NEXT_HOP_TTL_MILLIS = 2000;
+
     private final int meshPort;
 
     // Interface object for the RightMesh library.
     private AndroidMeshManager androidMeshManager;
 
-    //listener for data receiving event
+    // Next hops looked up recently, so most sends take one call to the service instead of two.
+    private final NextHopCache<MeshId> nextHops = new NextHopCache<>(NEXT_HOP_TTL_MILLIS);
+
+    // Decodes and echoes incoming pings off the UI thread.
+    private PingResponder<MeshId> responder;
+    // Receives incoming data, the responder unless replaced.
+    private volatile Receiver<MeshId> receiver;
+    // Notified of peers joining and leaving, on the RightMesh thread.
+    private volatile PeerListener<MeshId> peerListener;
+    // Runs listener callbacks on the UI thread.
+    private Executor callbackExecutor;
+    // Batches ping events on their way to the UI thread.
+    private UiBatcher<PingEvent<MeshId>> pingEventBatcher;
+
+    // Counts and timings of what the connector did, see getMetrics().
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final StripedCounter sends = metrics.counter("send.attempts");
+    private final StripedCounter sendFailures = metrics.counter("send.failures");
+    private final StripedCounter sentBytes = metrics.counter("send.bytes");
+    private final StripedCounter nextHopLookups = metrics.counter("send.next_hop_lookups");
+    private final LatencyTimer sendTimer = metrics.timer("send");
+    private final LatencyTimer nextHopTimer = metrics.timer("send.next_hop_lookup");
+    private final StripedCounter stateChanges = metrics.counter("mesh.state_changes");
+    private final StripedCounter bindFailures = metrics.counter("mesh.bind_failures");
+    private final LatencyTimer stateTimer = metrics.timer("mesh.state_changed");
+    private final StripedCounter dataEvents = metrics.counter("data.received");
+    private final StripedCounter receivedBytes = metrics.counter("data.received_bytes");
+    private final LatencyTimer dataTimer = metrics.timer("data.handler");
+    private final StripedCounter peerEvents = metrics.counter("peer.changed");
+    private final LatencyTimer peerTimer = metrics.timer("peer.handler");
+    private final LatencyTimer peerUiDelay = metrics.timer("peer.ui_delay");
+    private final StripedCounter echoes = metrics.counter("echo.sent");
+    private final StripedCounter echoFailures = metrics.counter("echo.failures");
+    private final StripedCounter returned = metrics.counter("echo.returned");
+    private final StripedCounter resumes = metrics.counter("service.resumes");
+    private final StripedCounter stops = metrics.counter("service.stops");
+    private final LatencyTimer resumeTimer = metrics.timer("service.resume");
+    private final LatencyTimer stopTimer = metrics.timer("service.stop");
+    private final StripedCounter disconnects = metrics.counter("service.disconnected");
+
+    //listener for handled pings
+    private OnPingEventsListener pingEventsListener;
+    //listener for data receiving event, for data that isn't a ping
     private OnDataReceiveListener dataReceiveListener;
     //listener for peer changing event
     private OnPeerChangedListener peerchangedListener;
@@ -43,6 +116,9 @@ public class RightMeshConnector implements MeshStateListener {
      */
     public RightMeshConnector(int meshPort) {
         this.meshPort = meshPort;
+        metrics.gauge("send.next_hop_hits", nextHops::getHits);
+        metrics.gauge("send.next_hop_misses", nextHops::getMisses);
+        useDispatcher(new MeshEventDispatcher(MeshEventDispatcher.DEFAULT_LANE_COUNT));
     }
 
     /**
@@ -51,6 +127,9 @@ public class RightMeshConnector implements MeshStateListener {
      * @param context Should pass application context
      */
     public void connect(Context context) {
+        if (callbackExecutor == null) {
+            setCallbackExecutor(new Handler(Looper.getMainLooper())::post);
+        }
         androidMeshManager = AndroidMeshManager.getInstance(context,
                 this);
     }
@@ -63,6 +142,8 @@ public class RightMeshConnector implements MeshStateListener {
      */
     @Override
     public void meshStateChanged(MeshId meshId, int state) {
+        long startNanos = System.nanoTime();
+        stateChanges.increment();
         if (state == SUCCESS) {
             try {
                 // Attempt to bind to a port.
@@ -74,39 +155,109 @@ public class RightMeshConnector implements MeshStateListener {
                 }
 
                 // Bind RightMesh event handlers.
-                androidMeshManager.on(DATA_RECEIVED, event -> {
-                    if (dataReceiveListener != null) {
-                        dataReceiveListener.onDataReceive(event);
-                    }
-                });
-                androidMeshManager.on(PEER_CHANGED, event -> {
-                    if (peerchangedListener != null) {
-                        peerchangedListener.onPeerChange(event);
-                    }
-                });
+                androidMeshManager.on(DATA_RECEIVED, this::handleDataReceived);
+                androidMeshManager.on(PEER_CHANGED, this::handlePeerChanged);
             } catch (RightMeshException.RightMeshServiceDisconnectedException sde) {
+                countFailure(bindFailures, sde);
                 Log.e(TAG, "Service disconnected while binding, with message: "
                         + sde.getMessage());
             } catch (RightMeshException rme) {
+                countFailure(bindFailures, rme);
                 Log.e(TAG, "MeshPort already bound, with message: " + rme.getMessage());
             }
         }
+        stateTimer.recordSince(startNanos);
+    }
+
+    /**
+     * Hands incoming data to the receiver.
+     *
+     * @param event {@link DataReceivedEvent} passed from RightMesh
+     */
+    @VisibleForTesting
+    void handleDataReceived(MeshManager.RightMeshEvent event) {
+        // Timestamp the arrival before queueing, so echoes are timed without our own queueing.
+        long receiveNanos = System.nanoTime();
+        byte[] data = ((DataReceivedEvent) event).data;
+        dataEvents.increment();
+        receivedBytes.add(data.length);
+        Receiver<MeshId> current = receiver;
+        if (current != null) {
+            current.onReceive(event.peerUuid, data, receiveNanos);
+        }
+        dataTimer.recordSince(receiveNanos);
+    }
+
+    /**
+     * Reports a peer change to the {@link PeerListener}, then forwards it to the UI thread.
+     *
+     * @param event {@link MeshManager.PeerChangedEvent} passed from RightMesh
+     */
+    @VisibleForTesting
+    void handlePeerChanged(MeshManager.RightMeshEvent event) {
+        long startNanos = System.nanoTime();
+        peerEvents.increment();
+        PeerListener<MeshId> current = peerListener;
+        int state = ((PeerChangedEvent) event).state;
+        if (state == REMOVED) {
+            nextHops.invalidateVia(event.peerUuid);
+        } else {
+            nextHops.invalidate(event.peerUuid);
+        }
+        if (current != null && (state == ADDED || state == REMOVED)) {
+            current.onPeerChanged(event.peerUuid, state == ADDED);
+        }
+        long postNanos = System.nanoTime();
+        peerTimer.record(postNanos - startNanos);
+        callbackExecutor.execute(() -> {
+            peerUiDelay.recordSince(postNanos);
+            if (peerchangedListener != null) {
+                peerchangedListener.onPeerChange(event);
+            }
+        });
+    }
+
+    /**
+     * Delivers a batch of ping events on the UI thread.
+     *
+     * @param events events handled since the last batch
+     */
+    private void deliverPingEvents(List<PingEvent<MeshId>> events) {
+        if (pingEventsListener != null) {
+            pingEventsListener.onPingEvents(events);
+        }
     }
 
     /**
      * Trigger when want to disconnect with Rightmesh.
      */
     public void stop() {
+        long startNanos = System.nanoTime();
+        stops.increment();
+        responder.shutdown();
         try {
             androidMeshManager.stop();
         } catch (RightMeshException.RightMeshServiceDisconnectedException e) {
+            disconnects.increment();
             Log.e(TAG, "Service disconnected before stopping AndroidMeshManager, with message: "
                     + e.getMessage());
         }
+        stopTimer.recordSince(startNanos);
+    }
+
+    /**
+     * Set listener for pings echoed by this device and echoes returned to it. Events are
+     * delivered in batches on the UI thread.
+     *
+     * @param listener a callback
+     */
+    public void setOnPingEventsListener(OnPingEventsListener listener) {
+        this.pingEventsListener = listener;
     }
 
     /**
-     * Set listener for data receive event.
+     * Set listener for data receive event. Only data that isn't a ping is passed on, and the
+     * listener is called on a background lane.
      *
      * @param listener a callback
      */
@@ -148,7 +299,8 @@ public class RightMeshConnector implements MeshStateListener {
     }
 
     /**
-     * Send data to target device.
+     * Send data to target device. The next hop towards it is only looked up if it hasn't been
+     * recently, and is looked up again next time if the send fails.
      *
      * @param targetMeshId Target meshId.
      * @param payload      data need to send.
@@ -157,8 +309,104 @@ public class RightMeshConnector implements MeshStateListener {
      */
     public void sendDataReliable(MeshId targetMeshId, byte[] payload) throws RightMeshException,
             RightMeshException.RightMeshServiceDisconnectedException {
-        androidMeshManager.sendDataReliable(androidMeshManager.getNextHopPeer(targetMeshId),
-                meshPort, payload);
+        long nowNanos = System.nanoTime();
+        sends.increment();
+        try {
+            MeshId nextHop = nextHops.get(targetMeshId, nowNanos);
+            if (nextHop == null) {
+                nextHopLookups.increment();
+                // A peer change during the lookup may make its answer stale, see NextHopCache.
+                long generation = nextHops.getGeneration();
+                nextHop = androidMeshManager.getNextHopPeer(targetMeshId);
+                nextHopTimer.recordSince(nowNanos);
+                nextHops.put(targetMeshId, nextHop, nowNanos, generation);
+            }
+            try {
+                androidMeshManager.sendDataReliable(nextHop, meshPort, payload);
+            } catch (RightMeshException rme) {
+                nextHops.invalidate(targetMeshId);
+                throw rme;
+            }
+            sentBytes.add(payload.length);
+        } catch (RightMeshException rme) {
+            countFailure(sendFailures, rme);
+            throw rme;
+        } finally {
+            sendTimer.recordSince(nowNanos);
+        }
+    }
+
+    /**
+     * Counts a failed call into RightMesh, and the service disconnecting if that was the cause.
+     *
+     * @param failures counter of failures of that call
+     * @param cause    exception RightMesh threw
+     */
+    private void countFailure(StripedCounter failures, RightMeshException cause) {
+        failures.increment();
+        if (cause instanceof RightMeshException.RightMeshServiceDisconnectedException) {
+            disconnects.increment();
+        }
+    }
+
+    /**
+     * Counts and timings of sends, RightMesh callbacks and their failures, since the connector was
+     * created or the metrics were last reset.
+     *
+     * @return the connector's metrics
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Next hops looked up recently, with counts of how often sends found them there.
+     *
+     * @return the next hop cache
+     */
+    public NextHopCache<MeshId> getNextHopCache() {
+        return nextHops;
+    }
+
+    /**
+     * Sends data to a peer over RightMesh, as the transport of the ping engine.
+     *
+     * @param peer    recipient
+     * @param payload data to send
+     * @throws TransportException.TransportDisconnectedException Service disconnected.
+     * @throws TransportException                                Can't find next hop.
+     */
+    @Override
+    public void send(MeshId peer, byte[] payload) throws TransportException {
+        try {
+            sendDataReliable(peer, payload);
+        } catch (RightMeshException.RightMeshServiceDisconnectedException sde) {
+            throw new TransportException.TransportDisconnectedException(sde.getMessage(), sde);
+        } catch (RightMeshException rme) {
+            throw new TransportException(rme.getMessage(), rme);
+        }
+    }
+
+    /**
+     * Replaces the receiver of incoming data, which by default echoes pings and reports them to
+     * the {@link OnPingEventsListener}.
+     *
+     * @param receiver receiver, or null to drop incoming data
+     */
+    @Override
+    public void setReceiver(Receiver<MeshId> receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * Sets the listener told about peers joining and leaving, on the RightMesh thread. This is
+     * independent of the {@link OnPeerChangedListener}, which is still called on the UI thread.
+     *
+     * @param listener listener, or null to stop listening
+     */
+    @Override
+    public void setPeerListener(PeerListener<MeshId> listener) {
+        this.peerListener = listener;
     }
 
     /**
@@ -179,26 +427,96 @@ public class RightMeshConnector implements MeshStateListener {
         this.androidMeshManager = androidMeshManager;
     }
 
+    /**
+     * Set the executor running listener callbacks, the UI thread by default.
+     *
+     * @param executor executor running tasks on the UI thread
+     */
+    @VisibleForTesting
+    void setCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+        this.pingEventBatcher = new UiBatcher<>(executor, this::deliverPingEvents);
+    }
+
+    /**
+     * {@link MeshEventDispatcher} setter used to testing purpose.
+     *
+     * @param dispatcher dispatcher, typically running on direct executors
+     */
+    @VisibleForTesting
+    void setDispatcher(MeshEventDispatcher dispatcher) {
+        responder.shutdown();
+        useDispatcher(dispatcher);
+    }
+
+    private void useDispatcher(MeshEventDispatcher dispatcher) {
+        responder = new PingResponder<>(this, dispatcher, new ResponderListener());
+        receiver = responder;
+    }
+
     /**
      * Resume RightMesh connection.
      */
     public void resume() {
+        long startNanos = System.nanoTime();
+        resumes.increment();
         try {
             if (androidMeshManager != null) {
                 androidMeshManager.resume();
             }
         } catch (RightMeshException.RightMeshServiceDisconnectedException e) {
+            disconnects.increment();
             Log.e(TAG, "Service disconnected before resuming AndroidMeshManager, with message: "
                     + e.getMessage());
         }
+        resumeTimer.recordSince(startNanos);
+    }
+
+    /**
+     * Passes on what the {@link PingResponder} did with incoming data.
+     */
+    private final class ResponderListener implements PingResponder.Listener<MeshId> {
+        @Override
+        public void onPingEvent(PingEvent<MeshId> event) {
+            if (event.getType() == PingEvent.Type.ECHOED) {
+                echoes.increment();
+            } else {
+                returned.increment();
+            }
+            pingEventBatcher.post(event);
+        }
+
+        @Override
+        public void onData(MeshId peer, byte[] payload) {
+            if (dataReceiveListener != null) {
+                dataReceiveListener.onDataReceive(peer, payload);
+            }
+        }
 
+        @Override
+        public void onEchoFailed(MeshId peer, TransportException cause) {
+            echoFailures.increment();
+            if (cause instanceof TransportException.TransportDisconnectedException) {
+                Log.e(TAG, "Service disconnected before ping could be returned, "
+                        + "with message: " + cause.getMessage());
+            } else {
+                Log.e(TAG, "Error occurred returning ping, with message: " + cause.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ping Events Listener.
+     */
+    public interface OnPingEventsListener {
+        void onPingEvents(List<PingEvent<MeshId>> events);
     }
 
     /**
      * Data Receive Listener.
      */
     public interface OnDataReceiveListener {
-        void onDataReceive(MeshManager.RightMeshEvent event);
+        void onDataReceive(MeshId peer, byte[] data);
     }
 
     /**
@@ -4,6 +4,8 @@ import static io.left.rightmesh.mesh.MeshManager.ADDED;
 import static io.left.rightmesh.mesh.MeshManager.REMOVED;
 
 import android.content.Context;
+import android.content.res.Resources;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -14,10 +16,18 @@ import android.widget.Toast;
 
 import androidx.constraintlayout.widget.ConstraintLayout;
 
+import io.left.reflect.ping.PeerStats;
+import io.left.reflect.stats.ClockOffsetEstimator;
+import io.left.reflect.stats.LatencyHistogram;
+import io.left.reflect.transport.ChurnAggregator;
 import io.left.rightmesh.id.MeshId;
 import io.left.rightmesh.mesh.MeshManager.PeerChangedEvent;
 import io.left.rightmesh.mesh.MeshManager.RightMeshEvent;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
 /**
  * Custom view that keeps track of connected peers when registered to listen to PEER_CHANGED events,
  * and allows the user to select one of these peers as a message recipient.
@@ -25,6 +35,10 @@ import io.left.rightmesh.mesh.MeshManager.RightMeshEvent;
 public class RightMeshRecipientView extends ConstraintLayout
         implements AdapterView.OnItemSelectedListener {
 
+    // Time PEER_CHANGED events are collected for before the peers list is updated, so a cluster
+    // of devices joining or leaving together costs a single update.
+    private static final long CHURN_WINDOW_MILLIS = 250;
+
     // Keeps track of the most recently tracked recipient, in case it disconnects and is removed
     // from the list.
     private MeshId recipientId;
@@ -33,11 +47,17 @@ public class RightMeshRecipientView extends ConstraintLayout
     private Spinner spinner;
     private TextView deviceStatusLabel;
     private TextView networkStatusLabel;
+    private TextView peerStatsLabel;
 
     // Keeps track of peers and populates the spinner.
     private MeshIdAdapter spinnerAdapter;
 
     private RecipientChangedListener onRecipientChangedListener = null;
+    private PeersChangedListener onPeersChangedListener = null;
+
+    // Peers that joined or left since the peers list was last updated.
+    private final ChurnAggregator<MeshId> churn = new ChurnAggregator<>();
+    private final Runnable applyChurn = this::applyChurn;
 
     /**
      * Used when instantiating Views programmatically.
@@ -93,6 +113,7 @@ public class RightMeshRecipientView extends ConstraintLayout
 
         deviceStatusLabel = findViewById(R.id.text_view_device_status);
         networkStatusLabel = findViewById(R.id.textview_network_status);
+        peerStatsLabel = findViewById(R.id.text_view_peer_stats);
     }
 
     /**
@@ -121,6 +142,52 @@ public class RightMeshRecipientView extends ConstraintLayout
         deviceStatusLabel.setText(status);
     }
 
+    /**
+     * Shows the delivery and round trip statistics of the pings sent to the recipient, and their
+     * one-way delays once the recipient has returned timed echoes.
+     *
+     * @param stats statistics of the selected recipient, or null to hide them
+     * @param clock estimate of the recipient's clock, or null if it returned no timed echo
+     */
+    public void setPeerStats(PeerStats stats, ClockOffsetEstimator clock) {
+        if (stats == null || stats.getSent() == 0) {
+            peerStatsLabel.setVisibility(GONE);
+            return;
+        }
+        String text = formatPeerStats(getResources(), stats);
+        if (clock != null && clock.getSampleCount() > 0) {
+            text += "\n" + String.format(Locale.US,
+                    getResources().getString(R.string.peer_one_way),
+                    clock.getForwardDelayNanos() / 1e6, clock.getReverseDelayNanos() / 1e6,
+                    clock.getSkew() * 1e6, clock.getSampleCount());
+        }
+        peerStatsLabel.setText(text);
+        peerStatsLabel.setVisibility(VISIBLE);
+    }
+
+    /**
+     * Describes the delivery and round trip statistics of the pings sent to a peer.
+     *
+     * @param resources resources holding the text
+     * @param stats     statistics to describe
+     * @return a line of delivery statistics, followed by a line of round trip statistics if any
+     *         ping was echoed
+     */
+    static String formatPeerStats(Resources resources, PeerStats stats) {
+        String text = String.format(Locale.US, resources.getString(R.string.peer_stats),
+                stats.getSent(), stats.getReceived(), stats.getLost(),
+                stats.getLossRate() * 100, stats.getLate());
+        LatencyHistogram rtts = stats.getRtts();
+        if (rtts.getTotalCount() > 0) {
+            text += "\n" + String.format(Locale.US, resources.getString(R.string.peer_latency),
+                    rtts.getMin() / 1e6, rtts.getMean() / 1e6,
+                    rtts.getValueAtPercentile(50) / 1e6, rtts.getValueAtPercentile(90) / 1e6,
+                    rtts.getValueAtPercentile(99) / 1e6, rtts.getValueAtPercentile(99.9) / 1e6,
+                    rtts.getMax() / 1e6, stats.getJitterNanos() / 1e6);
+        }
+        return text;
+    }
+
     /**
      * Set a listener for updates to the value of the selected recipient.
      *
@@ -158,34 +225,97 @@ public class RightMeshRecipientView extends ConstraintLayout
         }
     }
 
+    /**
+     * Set a listener for updates to the peers in the recipient selection spinner.
+     *
+     * @param listener listener to be notified
+     */
+    public void setOnPeersChangedListener(PeersChangedListener listener) {
+        onPeersChangedListener = listener;
+    }
+
     /**
      * Update the mesh peers available in the recipient selection spinner when mesh peers are
      * discovered or change state.
      *
+     * Events are collected for {@link #CHURN_WINDOW_MILLIS} after the first one, then only the
+     * last event of each peer is applied, all in one pass. Every event still goes into the peer's
+     * connectivity timeline as it arrives, so quick flaps are counted.
+     *
      * @param rme event passed from RightMesh
      */
     public void updatePeersList(RightMeshEvent rme) {
         PeerChangedEvent pce = (PeerChangedEvent) rme;
-        MeshId peer = rme.peerUuid;
+        if (pce.state != ADDED && pce.state != REMOVED) {
+            return;
+        }
+        spinnerAdapter.recordTransition(rme.peerUuid, pce.state == ADDED,
+                SystemClock.elapsedRealtime());
+        if (churn.isEmpty()) {
+            postDelayed(applyChurn, CHURN_WINDOW_MILLIS);
+        }
+        if (pce.state == ADDED) {
+            churn.onJoined(rme.peerUuid);
+        } else {
+            churn.onLeft(rme.peerUuid);
+        }
+    }
 
-        if (pce.state == ADDED && !spinnerAdapter.contains(peer)) {
-            // Add the peer to the list if it is new.
-            spinnerAdapter.add(peer);
+    /**
+     * Number of ADDED and REMOVED events received.
+     *
+     * @return events since the view was created
+     */
+    public long getPeerEventCount() {
+        return churn.getEvents();
+    }
 
-            if (spinnerAdapter.getCount() == 2) {
-                // If this is the first peer in the list, automatically select it.
-                spinnerAdapter.notifyDataSetChanged();
-                spinner.setSelection(1);
-            }
-        } else if (pce.state == REMOVED) {
-            // Remove a peer when it disconnects.
-            spinnerAdapter.remove(peer);
-
-            // Toast if the recipient has been disconnected.
-            if (peer.equals(recipientId)) {
-                Toast.makeText(getContext(),
-                        "Recipient has disconnected.", Toast.LENGTH_SHORT).show();
+    /**
+     * Number of ADDED and REMOVED events superseded by a later event of the same peer before the
+     * peers list was updated, and so never applied.
+     *
+     * @return events coalesced since the view was created
+     */
+    public long getCoalescedPeerEventCount() {
+        return churn.getCoalesced();
+    }
+
+    /**
+     * Applies the peers that joined or left since the last update to the spinner and the
+     * connected devices label.
+     */
+    private void applyChurn() {
+        int countBefore = spinnerAdapter.getCount();
+        List<MeshId> changed = new ArrayList<>();
+        boolean[] recipientLeft = new boolean[1];
+        spinnerAdapter.setNotifyOnChange(false);
+        churn.drain((peer, present) -> {
+            if (present && !spinnerAdapter.contains(peer)) {
+                // Add the peer to the list if it is new.
+                spinnerAdapter.add(peer);
+                changed.add(peer);
+            } else if (!present && spinnerAdapter.contains(peer)) {
+                // Remove a peer when it disconnects.
+                spinnerAdapter.remove(peer);
+                changed.add(peer);
+                recipientLeft[0] |= peer.equals(recipientId);
             }
+        });
+        if (changed.isEmpty()) {
+            spinnerAdapter.setNotifyOnChange(true);
+            return;
+        }
+        spinnerAdapter.notifyDataSetChanged();
+
+        if (countBefore < 2 && spinnerAdapter.getCount() >= 2) {
+            // If these are the first peers in the list, automatically select the first one.
+            spinner.setSelection(1);
+        }
+
+        // Toast if the recipient has been disconnected.
+        if (recipientLeft[0]) {
+            Toast.makeText(getContext(),
+                    "Recipient has disconnected.", Toast.LENGTH_SHORT).show();
         }
 
         // Update the connected devices label if there are other devices connected.
@@ -200,6 +330,19 @@ public class RightMeshRecipientView extends ConstraintLayout
         } else {
             networkStatusLabel.setText("");
         }
+
+        if (onPeersChangedListener != null) {
+            onPeersChangedListener.onPeersChanged(changed);
+        }
+    }
+
+    public interface PeersChangedListener {
+        /**
+         * When peers have been added to or removed from the recipient selection spinner.
+         *
+         * @param peers peers that were added or removed
+         */
+        void onPeersChanged(List<MeshId> peers);
     }
 
     public interface RecipientChangedListener {
@@ -0,0 +1,110 @@
+package io.left.reflect;
+
+import android.content.res.Resources;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import io.left.reflect.helper.MeshHelper;
+import io.left.reflect.ping.PeerStats;
+import io.left.reflect.stats.LatencyHistogram;
+import io.left.rightmesh.id.MeshId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Adapter rendering a grid cell for every peer pinged by a survey of all peers, with its delivery
+ * and round trip statistics so far.
+ *
+ * The statistics are read straight from the map the activity updates as pings settle, so the
+ * grid only has to be told when to redraw, through {@link SurveyGridAdapter#refresh()}.
+ */
+class SurveyGridAdapter extends RecyclerView.Adapter<SurveyGridAdapter.ViewHolder> {
+    private final List<MeshId> peers;
+    private final Map<MeshId, PeerStats> stats;
+
+    /**
+     * Creates an adapter around the statistics of a survey.
+     *
+     * @param peers peers pinged by the survey, in grid order
+     * @param stats statistics of each peer's pings since the survey started
+     */
+    SurveyGridAdapter(@NonNull List<MeshId> peers, @NonNull Map<MeshId, PeerStats> stats) {
+        this.peers = new ArrayList<>(peers);
+        this.stats = stats;
+    }
+
+    /**
+     * Redraws every cell, as any peer's statistics may have changed.
+     */
+    void refresh() {
+        notifyItemRangeChanged(0, peers.size());
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_survey_peer, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        MeshId peer = peers.get(position);
+        PeerStats peerStats = stats.get(peer);
+        holder.text.setText(describe(holder.text.getResources(), peer, peerStats));
+        // Colour the peers that have lost pings, so bad links stand out in a large mesh.
+        int colour = peerStats != null && peerStats.getLost() > 0
+                ? R.color.red : android.R.color.primary_text_light;
+        holder.text.setTextColor(ContextCompat.getColor(holder.text.getContext(), colour));
+    }
+
+    @Override
+    public int getItemCount() {
+        return peers.size();
+    }
+
+    /**
+     * Builds the text of a peer's cell.
+     *
+     * @param resources resources holding the text
+     * @param peer      pinged peer
+     * @param peerStats statistics of the peer's pings, or null if none were sent yet
+     * @return the peer's short id, followed by its delivery and round trip statistics
+     */
+    static String describe(Resources resources, MeshId peer, PeerStats peerStats) {
+        String name = MeshHelper.getInstance().shortenMeshId(peer);
+        long sent = peerStats == null ? 0 : peerStats.getSent();
+        long received = peerStats == null ? 0 : peerStats.getReceived();
+        double lossPercent = peerStats == null ? 0 : peerStats.getLossRate() * 100;
+        LatencyHistogram rtts = peerStats == null ? null : peerStats.getRtts();
+        if (rtts == null || rtts.getTotalCount() == 0) {
+            return String.format(Locale.US, resources.getString(R.string.survey_cell_no_rtt),
+                    name, received, sent, lossPercent);
+        }
+        return String.format(Locale.US, resources.getString(R.string.survey_cell), name,
+                received, sent, lossPercent, rtts.getMean() / 1e6,
+                rtts.getValueAtPercentile(90) / 1e6);
+    }
+
+    /**
+     * Holds the text view of a single cell.
+     */
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView text;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            text = itemView.findViewById(R.id.text_view_survey_peer);
+        }
+    }
+}
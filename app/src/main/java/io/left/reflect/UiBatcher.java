@@ -0,0 +1,72 @@
+package io.left.reflect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Collects items posted from any thread and hands them to a listener in batches on the UI thread.
+ *
+ * At most one flush is queued at a time; items posted while it is pending join the same batch, so
+ * a burst of events costs the UI thread a single callback instead of one per event.
+ *
+ * @param <T> type of the batched items
+ */
+class UiBatcher<T> {
+    private final Executor uiExecutor;
+    private final BatchListener<T> listener;
+
+    // Guarded by this.
+    private List<T> pending = new ArrayList<>();
+    private boolean flushQueued;
+
+    private final Runnable flush = this::flush;
+
+    /**
+     * Creates a batcher.
+     *
+     * @param uiExecutor executor running tasks on the UI thread
+     * @param listener   receives each batch on the UI thread
+     */
+    UiBatcher(Executor uiExecutor, BatchListener<T> listener) {
+        this.uiExecutor = uiExecutor;
+        this.listener = listener;
+    }
+
+    /**
+     * Adds an item to the next batch. May be called from any thread.
+     *
+     * @param item item to deliver
+     */
+    void post(T item) {
+        synchronized (this) {
+            pending.add(item);
+            if (flushQueued) {
+                return;
+            }
+            flushQueued = true;
+        }
+        uiExecutor.execute(flush);
+    }
+
+    private void flush() {
+        List<T> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new ArrayList<>(batch.size());
+            flushQueued = false;
+        }
+        if (!batch.isEmpty()) {
+            listener.onBatch(batch);
+        }
+    }
+
+    /**
+     * Receives batches of items on the UI thread.
+     *
+     * @param <T> type of the batched items
+     */
+    interface BatchListener<T> {
+        void onBatch(List<T> items);
+    }
+}
@@ -0,0 +1,114 @@
+package io.left.reflect.helper;
+
+import android.content.Context;
+import android.text.InputType;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.annotation.StringRes;
+import androidx.appcompat.app.AlertDialog;
+
+public final class DialogHelper {
+
+    // Padding around the fields of a form, in dp.
+    private static final int FORM_PADDING_DP = 20;
+
+    private DialogHelper() {
+    }
+
+    /**
+     * Asks the user for a whole number.
+     *
+     * @param context  context to show the dialog in
+     * @param title    title of the dialog
+     * @param current  value the input is pre-filled with
+     * @param listener notified with the entered number, unless the input is cancelled or isn't a
+     *                 number
+     */
+    public static void promptForNumber(Context context, @StringRes int title, long current,
+                                       OnNumberEnteredListener listener) {
+        EditText input = new EditText(context);
+        input.setInputType(InputType.TYPE_CLASS_NUMBER);
+        input.setText(String.valueOf(current));
+        input.setSelection(input.getText().length());
+
+        new AlertDialog.Builder(context)
+                .setTitle(title)
+                .setView(input)
+                .setPositiveButton(android.R.string.ok, (dialog, which) -> {
+                    try {
+                        listener.onNumberEntered(Long.parseLong(input.getText().toString()));
+                    } catch (NumberFormatException ignored) {
+                        // Empty or too long for a long; treat it like a cancel.
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Asks the user for several whole numbers at once, each with its own label.
+     *
+     * @param context  context to show the dialog in
+     * @param title    title of the dialog
+     * @param labels   label of each number
+     * @param current  values the inputs are pre-filled with, one per label
+     * @param listener notified with the entered numbers, in the same order as the labels, unless
+     *                 the input is cancelled or any of the inputs isn't a number
+     */
+    public static void promptForNumbers(Context context, @StringRes int title,
+                                        @StringRes int[] labels, long[] current,
+                                        OnNumbersEnteredListener listener) {
+        int padding = (int) (FORM_PADDING_DP * context.getResources().getDisplayMetrics().density);
+        LinearLayout form = new LinearLayout(context);
+        form.setOrientation(LinearLayout.VERTICAL);
+        form.setPadding(padding, padding / 2, padding, 0);
+
+        EditText[] inputs = new EditText[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            TextView label = new TextView(context);
+            label.setText(labels[i]);
+            form.addView(label);
+
+            inputs[i] = new EditText(context);
+            inputs[i].setInputType(InputType.TYPE_CLASS_NUMBER);
+            inputs[i].setText(String.valueOf(current[i]));
+            form.addView(inputs[i]);
+        }
+
+        new AlertDialog.Builder(context)
+                .setTitle(title)
+                .setView(form)
+                .setPositiveButton(android.R.string.ok, (dialog, which) -> {
+                    long[] numbers = new long[inputs.length];
+                    try {
+                        for (int i = 0; i < inputs.length; i++) {
+                            numbers[i] = Long.parseLong(inputs[i].getText().toString());
+                        }
+                    } catch (NumberFormatException ignored) {
+                        // Empty or too long for a long; treat it like a cancel.
+                        return;
+                    }
+                    listener.onNumbersEntered(numbers);
+                })
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    /**
+     * Receives the result of {@link DialogHelper#promptForNumber(Context, int, long,
+     * OnNumberEnteredListener)}.
+     */
+    public interface OnNumberEnteredListener {
+        void onNumberEntered(long number);
+    }
+
+    /**
+     * Receives the result of {@link DialogHelper#promptForNumbers(Context, int, int[], long[],
+     * OnNumbersEnteredListener)}.
+     */
+    public interface OnNumbersEnteredListener {
+        void onNumbersEntered(long[] numbers);
+    }
+}
@@ -2,39 +2,58 @@ package io.left.reflect.helper;
 
 import io.left.rightmesh.id.MeshId;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public final class MeshHelper {
 
-    private static MeshHelper instance = null;
+    /**
+     * Number of short ids remembered before the cache is emptied and starts over.
+     */
+    static final int SHORT_ID_CACHE_SIZE = 256;
+
+    // Short ids already rendered. Reads never lock, so rows and echoes can share it freely.
+    // reflect-core's ShortIdBenchmark runs a copy of this cache; keep the two in step.
+    private final Map<MeshId, String> shortIds = new ConcurrentHashMap<>();
 
     private MeshHelper() {
     }
 
+    /**
+     * Holds the singleton, which the JVM creates safely on first use of the holder, so getting
+     * the instance never locks.
+     */
+    private static final class Holder {
+        static final MeshHelper INSTANCE = new MeshHelper();
+    }
+
     /**
      * Get Singleton instance.
      *
-     * Avoid using double check locking pattern
-     * http://www.cs.umd.edu/~pugh/java/memoryModel/DoubleCheckedLocking.html
-     *
      * @return Meshhelper
      */
     public static MeshHelper getInstance() {
-        synchronized (MeshHelper.class) {
-            if (instance == null) {
-                // if instance is null, initialize
-                instance = new MeshHelper();
-            }
-        }
-
-        return instance;
+        return Holder.INSTANCE;
     }
 
     /**
      * Truncates MeshIds to 8 characters long.
      *
+     * Each id is rendered once and then served from a cache. The cache is emptied when it holds
+     * {@link #SHORT_ID_CACHE_SIZE} ids, which only happens once that many peers have been seen.
+     *
      * @param id to get string of
      * @return truncated string
      */
     public String shortenMeshId(MeshId id) {
-        return id.toString().substring(0, 10) + "...";
+        String shortId = shortIds.get(id);
+        if (shortId == null) {
+            shortId = id.toString().substring(0, 10) + "...";
+            if (shortIds.size() >= SHORT_ID_CACHE_SIZE) {
+                shortIds.clear();
+            }
+            shortIds.put(id, shortId);
+        }
+        return shortId;
     }
 }
@@ -0,0 +1,221 @@
+package io.left.reflect.helper;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import io.left.reflect.ping.PingLog;
+
+/**
+ * Typed access to the user's Reflect settings, persisted in {@link SharedPreferences}.
+ */
+public final class ReflectPreferences {
+    private static final String PREFERENCES_NAME = "reflect_settings";
+
+    private static final String KEY_LOG_CAPACITY = "log_capacity";
+    private static final String KEY_FLOOD_COUNT = "flood_count";
+    private static final String KEY_FLOOD_RATE = "flood_rate";
+    private static final String KEY_FLOOD_WINDOW = "flood_window";
+    private static final String KEY_SWEEP_MIN = "sweep_min";
+    private static final String KEY_SWEEP_MAX = "sweep_max";
+    private static final String KEY_SWEEP_COUNT = "sweep_count";
+    private static final String KEY_BULK_BYTES = "bulk_bytes";
+    private static final String KEY_BULK_CHUNK = "bulk_chunk";
+    private static final String KEY_BULK_WINDOW = "bulk_window";
+    private static final String KEY_SURVEY_COUNT = "survey_count";
+    private static final String KEY_SURVEY_RATE = "survey_rate";
+
+    private static final long DEFAULT_FLOOD_COUNT = 100;
+    private static final long DEFAULT_FLOOD_RATE = 10;
+    private static final long DEFAULT_FLOOD_WINDOW = 8;
+    private static final long DEFAULT_SWEEP_MIN = 64;
+    private static final long DEFAULT_SWEEP_MAX = 1 << 20;
+    private static final long DEFAULT_SWEEP_COUNT = 5;
+    private static final long DEFAULT_BULK_BYTES = 16 << 20;
+    private static final long DEFAULT_BULK_CHUNK = 16 << 10;
+    private static final long DEFAULT_BULK_WINDOW = 32;
+    private static final long DEFAULT_SURVEY_COUNT = 20;
+    private static final long DEFAULT_SURVEY_RATE = 2;
+
+    private final SharedPreferences preferences;
+
+    /**
+     * Opens the app's settings.
+     *
+     * @param context any context, only used to get the application's preferences
+     */
+    public ReflectPreferences(Context context) {
+        preferences = context.getApplicationContext()
+                .getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Number of pings to keep individually in the log before rolling them into the summary.
+     *
+     * @return log capacity, {@link PingLog#DEFAULT_CAPACITY} if never set
+     */
+    public int getLogCapacity() {
+        int capacity = preferences.getInt(KEY_LOG_CAPACITY, PingLog.DEFAULT_CAPACITY);
+        return Math.min(PingLog.MAX_CAPACITY, Math.max(PingLog.MIN_CAPACITY, capacity));
+    }
+
+    public void setLogCapacity(int capacity) {
+        preferences.edit().putInt(KEY_LOG_CAPACITY, capacity).apply();
+    }
+
+    /**
+     * Number of pings sent by the last flood, 0 meaning until stopped.
+     *
+     * @return flood ping count
+     */
+    public long getFloodCount() {
+        return preferences.getLong(KEY_FLOOD_COUNT, DEFAULT_FLOOD_COUNT);
+    }
+
+    /**
+     * Pings per second sent by the last flood, 0 meaning as fast as possible.
+     *
+     * @return flood rate
+     */
+    public long getFloodRate() {
+        return preferences.getLong(KEY_FLOOD_RATE, DEFAULT_FLOOD_RATE);
+    }
+
+    /**
+     * Maximum number of pings outstanding during the last flood, 0 meaning no limit.
+     *
+     * @return flood window size
+     */
+    public long getFloodWindow() {
+        return preferences.getLong(KEY_FLOOD_WINDOW, DEFAULT_FLOOD_WINDOW);
+    }
+
+    /**
+     * Remembers the settings of a flood for next time.
+     *
+     * @param count  number of pings
+     * @param rate   pings per second
+     * @param window maximum number of pings outstanding
+     */
+    public void setFlood(long count, long rate, long window) {
+        preferences.edit()
+                .putLong(KEY_FLOOD_COUNT, count)
+                .putLong(KEY_FLOOD_RATE, rate)
+                .putLong(KEY_FLOOD_WINDOW, window)
+                .apply();
+    }
+
+    /**
+     * Smallest payload of the last payload sweep.
+     *
+     * @return payload length in bytes
+     */
+    public long getSweepMin() {
+        return preferences.getLong(KEY_SWEEP_MIN, DEFAULT_SWEEP_MIN);
+    }
+
+    /**
+     * Largest payload of the last payload sweep.
+     *
+     * @return payload length in bytes
+     */
+    public long getSweepMax() {
+        return preferences.getLong(KEY_SWEEP_MAX, DEFAULT_SWEEP_MAX);
+    }
+
+    /**
+     * Number of pings sent at each payload length by the last payload sweep.
+     *
+     * @return pings per payload length
+     */
+    public long getSweepCount() {
+        return preferences.getLong(KEY_SWEEP_COUNT, DEFAULT_SWEEP_COUNT);
+    }
+
+    /**
+     * Remembers the settings of a payload sweep for next time.
+     *
+     * @param min   smallest payload length
+     * @param max   largest payload length
+     * @param count pings per payload length
+     */
+    public void setSweep(long min, long max, long count) {
+        preferences.edit()
+                .putLong(KEY_SWEEP_MIN, min)
+                .putLong(KEY_SWEEP_MAX, max)
+                .putLong(KEY_SWEEP_COUNT, count)
+                .apply();
+    }
+
+    /**
+     * Amount of data streamed by the last bandwidth test.
+     *
+     * @return data length in bytes
+     */
+    public long getBulkBytes() {
+        return preferences.getLong(KEY_BULK_BYTES, DEFAULT_BULK_BYTES);
+    }
+
+    /**
+     * Data carried by each chunk of the last bandwidth test.
+     *
+     * @return chunk length in bytes
+     */
+    public long getBulkChunk() {
+        return preferences.getLong(KEY_BULK_CHUNK, DEFAULT_BULK_CHUNK);
+    }
+
+    /**
+     * Maximum number of chunks awaiting acknowledgement during the last bandwidth test.
+     *
+     * @return window size in chunks
+     */
+    public long getBulkWindow() {
+        return preferences.getLong(KEY_BULK_WINDOW, DEFAULT_BULK_WINDOW);
+    }
+
+    /**
+     * Remembers the settings of a bandwidth test for next time.
+     *
+     * @param bytes  data length
+     * @param chunk  chunk length
+     * @param window maximum number of chunks awaiting acknowledgement
+     */
+    public void setBulk(long bytes, long chunk, long window) {
+        preferences.edit()
+                .putLong(KEY_BULK_BYTES, bytes)
+                .putLong(KEY_BULK_CHUNK, chunk)
+                .putLong(KEY_BULK_WINDOW, window)
+                .apply();
+    }
+
+    /**
+     * Number of pings sent to each peer by the last survey of all peers.
+     *
+     * @return pings per peer
+     */
+    public long getSurveyCount() {
+        return preferences.getLong(KEY_SURVEY_COUNT, DEFAULT_SURVEY_COUNT);
+    }
+
+    /**
+     * Pings per second sent to each peer by the last survey of all peers.
+     *
+     * @return survey rate per peer
+     */
+    public long getSurveyRate() {
+        return preferences.getLong(KEY_SURVEY_RATE, DEFAULT_SURVEY_RATE);
+    }
+
+    /**
+     * Remembers the settings of a survey of all peers for next time.
+     *
+     * @param count pings per peer
+     * @param rate  pings per second to each peer
+     */
+    public void setSurvey(long count, long rate) {
+        preferences.edit()
+                .putLong(KEY_SURVEY_COUNT, count)
+                .putLong(KEY_SURVEY_RATE, rate)
+                .apply();
+    }
+}
@@ -1,21 +1,27 @@
 package io.left.reflect;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
 import android.Manifest;
 import android.app.Application;
-import android.widget.ListView;
 import android.widget.Spinner;
 import android.widget.TextView;
 
+import androidx.recyclerview.widget.RecyclerView;
+
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import io.left.reflect.metrics.MetricsRegistry;
+import io.left.reflect.ping.PingCodec;
+import io.left.reflect.ping.PingEvent;
+import io.left.reflect.ping.PingFrame;
+import io.left.reflect.ping.PingRecord;
+import io.left.reflect.transport.TransportException;
 import io.left.rightmesh.id.MeshId;
-import io.left.rightmesh.mesh.MeshManager;
-import io.left.rightmesh.util.RightMeshException;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -28,6 +34,9 @@ import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.android.internal.LocalPermissionGranter;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.Collections;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(application = Application.class,
@@ -43,11 +52,11 @@ public class MainActivityTest extends AndroidTest<MainActivity> {
     @Captor
     private ArgumentCaptor<RightMeshConnector.OnConnectSuccessListener> onConnectSuccess;
     @Captor
-    private ArgumentCaptor<RightMeshConnector.OnDataReceiveListener> onDataReceive;
+    private ArgumentCaptor<RightMeshConnector.OnPingEventsListener> onPingEvents;
 
     private TextView tvLibStatus;
     private FloatingActionButton buttonSend;
-    private ListView listViewLogs;
+    private RecyclerView recyclerViewLogs;
 
     @Override
     protected Class<MainActivity> getActivityClass() {
@@ -59,6 +68,7 @@ public class MainActivityTest extends AndroidTest<MainActivity> {
      */
     @Override
     protected void setMockObjectActivity() {
+        doReturn(new MetricsRegistry()).when(rightMeshConnector).getMetrics();
         activity.setRightMeshConnector(rightMeshConnector);
         activity.setRecipientId(meshId);
     }
@@ -80,7 +90,7 @@ public class MainActivityTest extends AndroidTest<MainActivity> {
 
         tvLibStatus = findViewById(R.id.text_view_device_status);
         buttonSend = findViewById(R.id.button_send);
-        listViewLogs = findViewById(R.id.listview_logs);
+        recyclerViewLogs = findViewById(R.id.recycler_view_logs);
     }
 
     @Test
@@ -98,52 +108,83 @@ public class MainActivityTest extends AndroidTest<MainActivity> {
     }
 
     /**
-     * Check if listViewLogs have a new item when received ECHO msg.
+     * Check if recyclerViewLogs have a new item when a ping has been echoed.
+     */
+    @Test
+    public void onPingEvents_echoed() {
+        Assert.assertNotNull(recyclerViewLogs.getAdapter());
+        int numberLogs = recyclerViewLogs.getAdapter().getItemCount();
+
+        verify(rightMeshConnector).setOnPingEventsListener(onPingEvents.capture());
+        onPingEvents.getValue().onPingEvents(
+                Collections.singletonList(PingEvent.echoed(mock(MeshId.class), 1)));
+
+        // The log is only updated on the next frame.
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        Assert.assertEquals(recyclerViewLogs.getAdapter().getItemCount(), numberLogs + 1);
+    }
+
+    /**
+     * Check if recyclerViewLogs is unchanged when an unknown ping is returned.
      */
     @Test
-    public void onDataReceive_echo() {
-        //Init DataReceivedEvent with EchoBit = ECHO
-        MeshManager.DataReceivedEvent rme = new MeshManager
-                .DataReceivedEvent(MainActivity.MESH_PORT,
-                mock(MeshId.class),
-                new byte[]{MainActivity.ECHO, 1});
+    public void onPingEvents_returnedUnknown() {
+        onPingEvents_echoed();
 
-        Assert.assertNotNull(listViewLogs.getAdapter());
-        int numberLogs = listViewLogs.getAdapter().getCount();
+        Assert.assertNotNull(recyclerViewLogs.getAdapter());
+        int numberLogs = recyclerViewLogs.getAdapter().getItemCount();
 
-        verify(rightMeshConnector).setOnDataReceiveListener(onDataReceive.capture());
-        onDataReceive.getValue().onDataReceive(rme);
+        verify(rightMeshConnector).setOnPingEventsListener(onPingEvents.capture());
+        onPingEvents.getValue().onPingEvents(
+                Collections.singletonList(PingEvent.returned(mock(MeshId.class), 2, 0)));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
 
-        Assert.assertEquals(listViewLogs.getAdapter().getCount(), numberLogs + 1);
+        Assert.assertEquals(recyclerViewLogs.getAdapter().getItemCount(), numberLogs);
     }
 
     /**
-     * Check if listViewLogs update when received ALREADY_ECHOED msg.
+     * Check that a burst of events is applied to the log in a single flush.
      */
     @Test
-    public void onDataReceive_already_echoed() {
-        //Data Receive with echo bit
-        onDataReceive_echo();
+    public void onPingEvents_burst_isCoalesced() {
+        verify(rightMeshConnector).setOnPingEventsListener(onPingEvents.capture());
+        for (int i = 0; i < 50; i++) {
+            onPingEvents.getValue().onPingEvents(
+                    Collections.singletonList(PingEvent.echoed(mock(MeshId.class), i)));
+        }
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        PingLogAdapter adapter = (PingLogAdapter) recyclerViewLogs.getAdapter();
+        Assert.assertEquals(50, adapter.getItemCount());
+        Assert.assertEquals(49, adapter.getItem(0).getSequence());
+    }
 
-        //Init DataReceivedEvent with EchoBit = ALREADY_ECHOED
-        MeshManager.DataReceivedEvent rme = new MeshManager
-                .DataReceivedEvent(MainActivity.MESH_PORT,
-                mock(MeshId.class),
-                new byte[]{MainActivity.ALREADY_ECHOED, 2});
+    /**
+     * Check that a sent ping is marked as received when its echo is returned.
+     */
+    @Test
+    public void onPingEvents_returnedSent() throws TransportException {
+        ArgumentCaptor<byte[]> ping = ArgumentCaptor.forClass(byte[].class);
+        buttonSend.callOnClick();
+        verify(rightMeshConnector).send(eq(meshId), ping.capture());
+        PingFrame frame = new PingFrame();
+        Assert.assertTrue(PingCodec.decode(ping.getValue(), frame));
 
-        Assert.assertNotNull(listViewLogs.getAdapter());
-        int numberLogs = listViewLogs.getAdapter().getCount();
+        verify(rightMeshConnector).setOnPingEventsListener(onPingEvents.capture());
+        onPingEvents.getValue().onPingEvents(Collections.singletonList(PingEvent.returned(
+                meshId, frame.getSequence(), frame.getSendNanos() + 1_000_000)));
 
-        verify(rightMeshConnector).setOnDataReceiveListener(onDataReceive.capture());
-        onDataReceive.getValue().onDataReceive(rme);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
 
-        Assert.assertEquals(listViewLogs.getAdapter().getCount(), numberLogs);
+        PingRecord<MeshId> record = ((PingLogAdapter) recyclerViewLogs.getAdapter()).getItem(0);
+        Assert.assertEquals(PingRecord.Status.RECEIVED, record.getStatus());
+        Assert.assertEquals(1_000_000, record.getRttNanos());
     }
 
     @Test
-    public void sendPing() throws RightMeshException {
+    public void sendPing() throws TransportException {
         buttonSend.callOnClick();
 
-        verify(rightMeshConnector).sendDataReliable(any(), any());
+        verify(rightMeshConnector).send(any(), any());
     }
 }
@@ -3,23 +3,38 @@ package io.left.reflect;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import io.left.reflect.engine.MeshEventDispatcher;
+import io.left.reflect.metrics.MetricsRegistry;
+import io.left.reflect.ping.PingCodec;
+import io.left.reflect.ping.PingEvent;
+import io.left.reflect.ping.PingFrame;
+import io.left.reflect.transport.TransportException;
 import io.left.rightmesh.android.AndroidMeshManager;
 import io.left.rightmesh.id.MeshId;
+import io.left.rightmesh.mesh.MeshManager;
 import io.left.rightmesh.mesh.MeshStateListener;
 import io.left.rightmesh.util.RightMeshException;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 @RunWith(MockitoJUnitRunner.class)
 public class RightMeshConnectorTest {
@@ -28,6 +43,8 @@ public class RightMeshConnectorTest {
     @Mock
     private AndroidMeshManager androidMeshManager;
     @Mock
+    private RightMeshConnector.OnPingEventsListener onPingEventsListener;
+    @Mock
     private RightMeshConnector.OnDataReceiveListener onDataReceiveListener;
     @Mock
     private RightMeshConnector.OnPeerChangedListener onPeerChangedListener;
@@ -36,6 +53,9 @@ public class RightMeshConnectorTest {
     @Mock
     private MeshId meshId;
 
+    @Captor
+    private ArgumentCaptor<List<PingEvent<MeshId>>> pingEvents;
+
     private RightMeshConnector spyRightMeshConnector;
 
     /**
@@ -45,6 +65,10 @@ public class RightMeshConnectorTest {
     public void setUp() {
         RightMeshConnector underTest = new RightMeshConnector(MESH_PORT);
         underTest.setAndroidMeshManager(androidMeshManager);
+        // Handle events synchronously on the test thread.
+        underTest.setDispatcher(new MeshEventDispatcher(Runnable::run));
+        underTest.setCallbackExecutor(Runnable::run);
+        underTest.setOnPingEventsListener(onPingEventsListener);
         underTest.setOnConnectSuccessListener(onConnectSuccessListener);
         underTest.setOnDataReceiveListener(onDataReceiveListener);
         underTest.setOnPeerChangedListener(onPeerChangedListener);
@@ -91,4 +115,123 @@ public class RightMeshConnectorTest {
         verify(spyRightMeshConnector).sendDataReliable(any(),
                 eq(payload.getBytes(Charset.forName("UTF-8"))));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void sendDataReliable_repeated_looksUpNextHopOnce() throws RightMeshException {
+        MeshId nextHop = Mockito.mock(MeshId.class);
+        doReturn(nextHop).when(androidMeshManager).getNextHopPeer(meshId);
+
+        spyRightMeshConnector.sendDataReliable(meshId, new byte[] {1});
+        spyRightMeshConnector.sendDataReliable(meshId, new byte[] {2});
+
+        verify(androidMeshManager, times(1)).getNextHopPeer(meshId);
+        verify(androidMeshManager, times(2)).sendDataReliable(eq(nextHop), eq(MESH_PORT), any());
+        Assert.assertEquals(1, spyRightMeshConnector.getNextHopCache().getHits());
+        Assert.assertEquals(1, spyRightMeshConnector.getNextHopCache().getMisses());
+    }
+
+    @Test
+    public void sendDataReliable_afterFailure_looksUpNextHopAgain() throws RightMeshException {
+        doReturn(meshId).when(androidMeshManager).getNextHopPeer(meshId);
+        doThrow(RightMeshException.class).doReturn(0).when(androidMeshManager)
+                .sendDataReliable(eq(meshId), eq(MESH_PORT), any());
+
+        try {
+            spyRightMeshConnector.sendDataReliable(meshId, new byte[] {1});
+            Assert.fail("The failed send wasn't reported.");
+        } catch (RightMeshException expected) {
+            // The route is forgotten.
+        }
+        spyRightMeshConnector.sendDataReliable(meshId, new byte[] {2});
+
+        verify(androidMeshManager, times(2)).getNextHopPeer(meshId);
+    }
+
+    @Test
+    public void sendDataReliable_countsSendsAndDisconnects() throws RightMeshException {
+        doReturn(meshId).when(androidMeshManager).getNextHopPeer(meshId);
+        doReturn(0).doThrow(RightMeshException.RightMeshServiceDisconnectedException.class)
+                .when(androidMeshManager).sendDataReliable(eq(meshId), eq(MESH_PORT), any());
+
+        spyRightMeshConnector.sendDataReliable(meshId, new byte[] {1, 2, 3});
+        try {
+            spyRightMeshConnector.sendDataReliable(meshId, new byte[] {4});
+            Assert.fail("The failed send wasn't reported.");
+        } catch (RightMeshException expected) {
+            // Counted as a failure and a disconnection.
+        }
+
+        MetricsRegistry metrics = spyRightMeshConnector.getMetrics();
+        Assert.assertEquals(2, metrics.counter("send.attempts").sum());
+        Assert.assertEquals(1, metrics.counter("send.failures").sum());
+        Assert.assertEquals(1, metrics.counter("service.disconnected").sum());
+        Assert.assertEquals(3, metrics.counter("send.bytes").sum());
+        Assert.assertEquals(2, metrics.timer("send").getCount());
+    }
+
+    @Test(expected = TransportException.TransportDisconnectedException.class)
+    public void send_serviceDisconnected_throwsDisconnected() throws Exception {
+        doThrow(RightMeshException.RightMeshServiceDisconnectedException.class)
+                .when(androidMeshManager).getNextHopPeer(meshId);
+
+        spyRightMeshConnector.send(meshId, new byte[] {1});
+    }
+
+    @Test
+    public void handleDataReceived_binaryRequest_isEchoed() throws RightMeshException {
+        doReturn(meshId).when(androidMeshManager).getNextHopPeer(meshId);
+        byte[] request = new PingCodec().encode(new PingFrame().setRequest(5, 10, 0));
+
+        spyRightMeshConnector.handleDataReceived(
+                new MeshManager.DataReceivedEvent(MESH_PORT, meshId, request));
+
+        ArgumentCaptor<byte[]> echo = ArgumentCaptor.forClass(byte[].class);
+        verify(androidMeshManager).sendDataReliable(eq(meshId), eq(MESH_PORT), echo.capture());
+        PingFrame reply = new PingFrame();
+        Assert.assertTrue(PingCodec.decode(echo.getValue(), reply));
+        Assert.assertTrue(reply.isReply());
+        Assert.assertEquals(5, reply.getSequence());
+        Assert.assertEquals(10, reply.getSendNanos());
+
+        verify(onPingEventsListener).onPingEvents(pingEvents.capture());
+        Assert.assertEquals(PingEvent.Type.ECHOED, pingEvents.getValue().get(0).getType());
+    }
+
+    @Test
+    public void handleDataReceived_legacyRequest_isEchoed() throws RightMeshException {
+        doReturn(meshId).when(androidMeshManager).getNextHopPeer(meshId);
+
+        spyRightMeshConnector.handleDataReceived(new MeshManager.DataReceivedEvent(MESH_PORT,
+                meshId, "1Jan 01 12:00:00:0000".getBytes(Charset.forName("UTF-8"))));
+
+        verify(androidMeshManager).sendDataReliable(meshId, MESH_PORT,
+                "0Jan 01 12:00:00:0000".getBytes(Charset.forName("UTF-8")));
+        verify(onPingEventsListener).onPingEvents(any());
+    }
+
+    @Test
+    public void handleDataReceived_binaryReply_isReported() throws RightMeshException {
+        byte[] reply = new PingCodec().encode(new PingFrame().setRequest(7, 10, 0).toReply());
+
+        spyRightMeshConnector.handleDataReceived(
+                new MeshManager.DataReceivedEvent(MESH_PORT, meshId, reply));
+
+        verify(androidMeshManager, never()).sendDataReliable(any(), anyInt(), any());
+        verify(onPingEventsListener).onPingEvents(pingEvents.capture());
+        PingEvent<MeshId> event = pingEvents.getValue().get(0);
+        Assert.assertEquals(PingEvent.Type.RETURNED, event.getType());
+        Assert.assertEquals(7, event.getSequence());
+        Assert.assertEquals(meshId, event.getPeer());
+    }
+
+    @Test
+    public void handleDataReceived_otherData_isPassedOn() {
+        MeshManager.DataReceivedEvent event = new MeshManager.DataReceivedEvent(MESH_PORT,
+                meshId, "hello".getBytes(Charset.forName("UTF-8")));
+
+        spyRightMeshConnector.handleDataReceived(event);
+
+        verify(onDataReceiveListener).onDataReceive(meshId, event.data);
+        verify(onPingEventsListener, never()).onPingEvents(any());
+    }
+}
@@ -0,0 +1,45 @@
+package io.left.reflect.helper;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.left.rightmesh.id.MeshId;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MeshHelperTest {
+    private static MeshId meshId(String uuid) {
+        MeshId id = mock(MeshId.class);
+        when(id.toString()).thenReturn(uuid);
+        return id;
+    }
+
+    @Test
+    public void getInstance_isSingleton() {
+        Assert.assertSame(MeshHelper.getInstance(), MeshHelper.getInstance());
+    }
+
+    @Test
+    public void shortenMeshId_rendersOnce() {
+        MeshId id = meshId("0x0123456789abcdef");
+
+        String first = MeshHelper.getInstance().shortenMeshId(id);
+        String second = MeshHelper.getInstance().shortenMeshId(id);
+
+        Assert.assertEquals("0x01234567...", first);
+        // The same string is handed out again rather than rendered anew.
+        Assert.assertSame(first, second);
+    }
+
+    @Test
+    public void shortenMeshId_beyondCacheSize_staysCorrect() {
+        MeshId id = meshId("0xfedcba9876543210");
+        String first = MeshHelper.getInstance().shortenMeshId(id);
+        for (int i = 0; i < MeshHelper.SHORT_ID_CACHE_SIZE; i++) {
+            MeshHelper.getInstance().shortenMeshId(meshId(String.format("0x%016x", i)));
+        }
+
+        Assert.assertEquals(first, MeshHelper.getInstance().shortenMeshId(id));
+    }
+}
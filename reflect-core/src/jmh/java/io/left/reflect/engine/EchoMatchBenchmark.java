@@ -0,0 +1,144 @@
+package io.left.reflect.engine;
+
+import io.left.reflect.ping.InFlightTable;
+import io.left.reflect.ping.PingLog;
+import io.left.reflect.ping.PingRecord;
+import io.left.reflect.transport.MeshTransport;
+import io.left.reflect.transport.TransportException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of matching an echo against a large number of outstanding pings.
+ *
+ * Each benchmark keeps the number of outstanding pings constant: the oldest one is answered and
+ * a new one takes its place. Older versions of Reflect searched a list of timestamp strings for
+ * every echo, which is kept here as the baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class EchoMatchBenchmark {
+    private static final String PEER = "peer";
+
+    @Param({"100", "10000", "100000"})
+    public int outstanding;
+
+    private List<String> legacyPings;
+    private int legacyNext;
+
+    private InFlightTable<Object> inFlight;
+    private long oldestInFlight;
+
+    private ScheduledExecutorService scheduler;
+    private PingSender<String> sender;
+    private long oldestSent;
+
+    private PingLog<String> log;
+    private long nextLogged;
+
+    /**
+     * Fills every structure with the outstanding pings.
+     *
+     * @throws TransportException never, the transport drops everything
+     */
+    @Setup
+    public void setUp() throws TransportException {
+        legacyPings = new ArrayList<>(outstanding);
+        for (int i = 0; i < outstanding; i++) {
+            legacyPings.add(0, Long.toString(1_500_000_000_000L + i));
+        }
+
+        inFlight = new InFlightTable<>();
+        for (int i = 0; i < outstanding; i++) {
+            inFlight.put(i, PEER);
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        sender = new PingSender<>(new MeshTransport<String>() {
+            @Override
+            public void send(String peer, byte[] payload) {
+            }
+
+            @Override
+            public void setReceiver(Receiver<String> receiver) {
+            }
+
+            @Override
+            public void setPeerListener(PeerListener<String> listener) {
+            }
+        }, scheduler, TimeUnit.HOURS.toMillis(1), 0);
+        for (int i = 0; i < outstanding; i++) {
+            sender.send(PEER);
+        }
+
+        log = new PingLog<>(Math.min(outstanding, PingLog.MAX_CAPACITY));
+        for (int i = 0; i < outstanding; i++) {
+            log.push(PingRecord.sent(nextLogged++, PEER, 0));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Finds the echoed timestamp in the list of sent ones, as older versions of Reflect did.
+     *
+     * @return position of the timestamp
+     */
+    @Benchmark
+    public int legacyList() {
+        String echoed = legacyPings.get(legacyNext);
+        legacyNext = legacyNext == 0 ? outstanding - 1 : legacyNext - 1;
+        return legacyPings.indexOf(echoed);
+    }
+
+    @Benchmark
+    public Object inFlightTable() {
+        Object value = inFlight.remove(oldestInFlight);
+        inFlight.put(oldestInFlight + outstanding, value);
+        oldestInFlight++;
+        return value;
+    }
+
+    /**
+     * The full path of a ping through the sender: answer the oldest and send another.
+     *
+     * @return record of the answered ping
+     * @throws TransportException never, the transport drops everything
+     */
+    @Benchmark
+    public PingRecord<String> pingSender() throws TransportException {
+        PingRecord<String> record = sender.onReturned(oldestSent++);
+        sender.send(PEER);
+        return record;
+    }
+
+    /**
+     * Marks the oldest record in the log as received, then logs another.
+     *
+     * @return position of the received record
+     */
+    @Benchmark
+    public int pingLog() {
+        int position = log.markReceived(log.get(log.size() - 1), 1);
+        log.push(PingRecord.sent(nextLogged++, PEER, 0));
+        return position;
+    }
+}
@@ -0,0 +1,96 @@
+package io.left.reflect.ping;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding, decoding and echoing a single ping, in the binary format and in the UTF-8
+ * text format of older versions of Reflect, which put '1' or '0' in front of a millisecond
+ * timestamp.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class PingCodecBenchmark {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Param({"0", "1024"})
+    public int paddingLength;
+
+    private final PingCodec codec = new PingCodec();
+    private final PingFrame frame = new PingFrame();
+    private long sequence;
+    private byte[] binaryRequest;
+    private byte[] legacyRequest;
+
+    /**
+     * Encodes the requests decoded by the benchmarks.
+     */
+    @Setup
+    public void setUp() {
+        binaryRequest = codec.encode(new PingFrame().setRequest(1, 1_000_000_000L,
+                paddingLength));
+        StringBuilder legacy = new StringBuilder("1").append(1_000_000L);
+        for (int i = 0; i < paddingLength; i++) {
+            legacy.append(' ');
+        }
+        legacyRequest = legacy.toString().getBytes(UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        sequence++;
+        return codec.encode(frame.setRequest(sequence, sequence, paddingLength));
+    }
+
+    @Benchmark
+    public long decodeBinary() {
+        PingCodec.decode(binaryRequest, frame);
+        return frame.getSequence();
+    }
+
+    /**
+     * What {@link io.left.reflect.engine.PingResponder} does with a request: decode it and encode
+     * the reply.
+     *
+     * @return encoded reply
+     */
+    @Benchmark
+    public byte[] echoBinary() {
+        PingCodec.decode(binaryRequest, frame);
+        return codec.encode(frame.toReply());
+    }
+
+    @Benchmark
+    public byte[] encodeLegacy() {
+        sequence++;
+        return ("1" + sequence).getBytes(UTF_8);
+    }
+
+    @Benchmark
+    public String decodeLegacy() {
+        String data = new String(legacyRequest, UTF_8);
+        return data.charAt(0) == '1' ? data.substring(1) : null;
+    }
+
+    /**
+     * What older versions of Reflect did with a request: decode it as text and send it back with
+     * a '0' in front.
+     *
+     * @return encoded reply
+     */
+    @Benchmark
+    public byte[] echoLegacy() {
+        String data = new String(legacyRequest, UTF_8);
+        return ("0" + data.substring(1)).getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,138 @@
+package io.left.reflect.transport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of keeping the list of connected peers up to date, the path behind the recipient spinner.
+ *
+ * Older versions of Reflect kept the peers in the adapter's own list, checking and removing each
+ * peer with a scan, and applied every PEER_CHANGED event as it came; that is kept here as the
+ * baseline. The spinner now keeps them in a {@link PeerRegistry}, fed by a
+ * {@link ChurnAggregator} that collapses each burst of events first.
+ *
+ * A burst is a tenth of the connected peers flapping: each leaves and comes back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class PeerListBenchmark {
+    @Param({"10", "100", "1000"})
+    public int peers;
+
+    private String[] names;
+    private int next;
+
+    private List<String> legacyList;
+    private PeerRegistry<String> registry;
+    private final ChurnAggregator<String> churn = new ChurnAggregator<>();
+    private final ChurnAggregator.Listener<String> apply = (peer, present) -> {
+        if (present) {
+            registry.add(peer);
+        } else {
+            registry.remove(peer);
+        }
+    };
+
+    /**
+     * Connects every peer.
+     */
+    @Setup
+    public void setUp() {
+        names = new String[peers];
+        legacyList = new ArrayList<>();
+        registry = new PeerRegistry<>();
+        for (int i = 0; i < peers; i++) {
+            names[i] = "peer-" + i;
+            legacyList.add(names[i]);
+            registry.add(names[i]);
+        }
+    }
+
+    private String nextPeer() {
+        String peer = names[next];
+        next = next == peers - 1 ? 0 : next + 1;
+        return peer;
+    }
+
+    /**
+     * Checks a peer is in the list with a scan, as older versions of Reflect did.
+     *
+     * @return true
+     */
+    @Benchmark
+    public boolean legacyContains() {
+        return legacyList.contains(nextPeer());
+    }
+
+    @Benchmark
+    public boolean registryContains() {
+        return registry.contains(nextPeer());
+    }
+
+    /**
+     * Applies a burst event by event to a scanned list, as older versions of Reflect did.
+     *
+     * @return number of peers afterwards
+     */
+    @Benchmark
+    public int legacyBurst() {
+        for (int i = 0; i < burstSize(); i++) {
+            String peer = nextPeer();
+            if (legacyList.contains(peer)) {
+                legacyList.remove(peer);
+            }
+            if (!legacyList.contains(peer)) {
+                legacyList.add(peer);
+            }
+        }
+        return legacyList.size();
+    }
+
+    /**
+     * Collapses a burst in a {@link ChurnAggregator} and applies what is left to the registry,
+     * then reads a position as the spinner does when redrawn.
+     *
+     * @return first peer in the list
+     */
+    @Benchmark
+    public String aggregatedBurst() {
+        for (int i = 0; i < burstSize(); i++) {
+            String peer = nextPeer();
+            churn.onLeft(peer);
+            churn.onJoined(peer);
+        }
+        churn.drain(apply);
+        return registry.get(0);
+    }
+
+    /**
+     * Applies a burst event by event to the registry, without collapsing it, then reads a
+     * position as the spinner does when redrawn.
+     *
+     * @return first peer in the list
+     */
+    @Benchmark
+    public String registryBurst() {
+        for (int i = 0; i < burstSize(); i++) {
+            String peer = nextPeer();
+            registry.remove(peer);
+            registry.add(peer);
+        }
+        return registry.get(0);
+    }
+
+    private int burstSize() {
+        return Math.max(1, peers / 10);
+    }
+}
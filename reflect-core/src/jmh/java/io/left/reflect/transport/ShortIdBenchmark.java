@@ -0,0 +1,125 @@
+package io.left.reflect.transport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering a peer's short id, done for every row of the ping list and every echo logged.
+ *
+ * The app's MeshHelper.shortenMeshId can't be run here, as it lives in the Android module and
+ * takes RightMesh's MeshId. Its cache is copied below instead, keyed by {@link PeerAddress}, which
+ * like a MeshId hashes its address bytes on every lookup and renders them as hex in
+ * {@link PeerAddress#toString()}. Keep the copy in step with MeshHelper.
+ *
+ * Older versions of Reflect rendered the id on every call; that is kept here as the baseline.
+ * Above {@link #CACHE_SIZE} peers the cache keeps being cleared, which the largest parameter shows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ShortIdBenchmark {
+    // Same as MeshHelper.SHORT_ID_CACHE_SIZE.
+    private static final int CACHE_SIZE = 256;
+
+    @Param({"10", "100", "1000"})
+    public int peers;
+
+    private PeerAddress[] addresses;
+    private int next;
+
+    private final Map<PeerAddress, String> shortIds = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a distinct address for each peer.
+     */
+    @Setup
+    public void setUp() {
+        addresses = new PeerAddress[peers];
+        for (int i = 0; i < peers; i++) {
+            byte[] bytes = new byte[20];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = (byte) (i * 31 + j * 7);
+            }
+            addresses[i] = new PeerAddress(bytes);
+        }
+    }
+
+    private PeerAddress nextPeer() {
+        PeerAddress peer = addresses[next];
+        next = next == peers - 1 ? 0 : next + 1;
+        return peer;
+    }
+
+    /**
+     * Renders the short id on every call, as older versions of Reflect did.
+     *
+     * @return the short id
+     */
+    @Benchmark
+    public String legacyShorten() {
+        return nextPeer().toString().substring(0, 10) + "...";
+    }
+
+    /**
+     * Looks the short id up in a cache laid out as MeshHelper's.
+     *
+     * @return the short id
+     */
+    @Benchmark
+    public String cachedShorten() {
+        PeerAddress id = nextPeer();
+        String shortId = shortIds.get(id);
+        if (shortId == null) {
+            shortId = id.toString().substring(0, 10) + "...";
+            if (shortIds.size() >= CACHE_SIZE) {
+                shortIds.clear();
+            }
+            shortIds.put(id, shortId);
+        }
+        return shortId;
+    }
+
+    /**
+     * Stand-in for a MeshId: a 20-byte address, compared and hashed by value and shown in hex.
+     */
+    static final class PeerAddress {
+        private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+        private final byte[] bytes;
+
+        PeerAddress(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof PeerAddress
+                    && Arrays.equals(bytes, ((PeerAddress) other).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder hex = new StringBuilder(2 + bytes.length * 2).append("0x");
+            for (byte b : bytes) {
+                hex.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+            }
+            return hex.toString();
+        }
+    }
+}
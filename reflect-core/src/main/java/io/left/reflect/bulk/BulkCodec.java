@@ -0,0 +1,143 @@
+package io.left.reflect.bulk;
+
+/**
+ * Reads and writes the frames of a bulk transfer.
+ *
+ * Every frame starts with the same header, big-endian:
+ * <pre>
+ *   offset  size  field
+ *   0       1     marker (0x82)
+ *   1       1     type (chunk or acknowledgement)
+ *   2       1     flags
+ *   3       4     transfer id
+ *   7       4     chunk index, or for an acknowledgement the number of chunks received in order
+ *   11      4     number of chunks in the transfer
+ *   15      n     chunk data, chunks only
+ * </pre>
+ *
+ * Like the ping version marker, the bulk marker is a UTF-8 continuation byte, so bulk frames are
+ * never mistaken for pings of either format. Frames are read and written in place in byte arrays,
+ * so nothing is allocated apart from acknowledgements.
+ */
+public final class BulkCodec {
+    /**
+     * First byte of every bulk frame.
+     */
+    public static final byte MARKER = (byte) 0x82;
+
+    /**
+     * A chunk of the data being transferred.
+     */
+    public static final byte TYPE_CHUNK = 1;
+
+    /**
+     * A cumulative acknowledgement of the chunks received so far.
+     */
+    public static final byte TYPE_ACK = 2;
+
+    /**
+     * Flag on a chunk asking the receiver to acknowledge it straight away.
+     */
+    public static final byte FLAG_ACK_NOW = 1;
+
+    /**
+     * Size of the header, and of an acknowledgement.
+     */
+    public static final int HEADER_LENGTH = 15;
+
+    private static final int FLAGS_OFFSET = 2;
+    private static final int TRANSFER_ID_OFFSET = 3;
+    private static final int INDEX_OFFSET = 7;
+    private static final int COUNT_OFFSET = 11;
+
+    private BulkCodec() {
+    }
+
+    /**
+     * Whether a payload is a chunk.
+     *
+     * @param data payload received
+     * @return true if it is a chunk frame
+     */
+    public static boolean isChunk(byte[] data) {
+        return data.length >= HEADER_LENGTH && data[0] == MARKER && data[1] == TYPE_CHUNK;
+    }
+
+    /**
+     * Whether a payload is an acknowledgement.
+     *
+     * @param data payload received
+     * @return true if it is an acknowledgement frame
+     */
+    public static boolean isAck(byte[] data) {
+        return data.length >= HEADER_LENGTH && data[0] == MARKER && data[1] == TYPE_ACK;
+    }
+
+    /**
+     * Writes a header at the start of a frame, leaving the rest of it untouched.
+     *
+     * @param out        frame, at least {@link #HEADER_LENGTH} bytes long
+     * @param type       {@link #TYPE_CHUNK} or {@link #TYPE_ACK}
+     * @param flags      flags of the frame
+     * @param transferId id of the transfer
+     * @param index      chunk index, or number of chunks received in order
+     * @param count      number of chunks in the transfer
+     */
+    public static void writeHeader(byte[] out, byte type, byte flags, int transferId, int index,
+                                   int count) {
+        out[0] = MARKER;
+        out[1] = type;
+        out[FLAGS_OFFSET] = flags;
+        writeInt(out, TRANSFER_ID_OFFSET, transferId);
+        writeInt(out, INDEX_OFFSET, index);
+        writeInt(out, COUNT_OFFSET, count);
+    }
+
+    /**
+     * Encodes an acknowledgement.
+     *
+     * @param transferId id of the transfer
+     * @param received   number of chunks received in order
+     * @param count      number of chunks in the transfer
+     * @return the acknowledgement frame
+     */
+    public static byte[] encodeAck(int transferId, int received, int count) {
+        byte[] ack = new byte[HEADER_LENGTH];
+        writeHeader(ack, TYPE_ACK, (byte) 0, transferId, received, count);
+        return ack;
+    }
+
+    public static byte getFlags(byte[] frame) {
+        return frame[FLAGS_OFFSET];
+    }
+
+    public static int getTransferId(byte[] frame) {
+        return readInt(frame, TRANSFER_ID_OFFSET);
+    }
+
+    /**
+     * Gets the index of a chunk, or the number of chunks an acknowledgement covers.
+     *
+     * @param frame chunk or acknowledgement
+     * @return the index or number of chunks
+     */
+    public static int getIndex(byte[] frame) {
+        return readInt(frame, INDEX_OFFSET);
+    }
+
+    public static int getCount(byte[] frame) {
+        return readInt(frame, COUNT_OFFSET);
+    }
+
+    private static void writeInt(byte[] out, int offset, int value) {
+        out[offset] = (byte) (value >>> 24);
+        out[offset + 1] = (byte) (value >>> 16);
+        out[offset + 2] = (byte) (value >>> 8);
+        out[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] in, int offset) {
+        return (in[offset] & 0xff) << 24 | (in[offset + 1] & 0xff) << 16
+                | (in[offset + 2] & 0xff) << 8 | in[offset + 3] & 0xff;
+    }
+}
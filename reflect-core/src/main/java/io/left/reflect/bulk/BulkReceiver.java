@@ -0,0 +1,159 @@
+package io.left.reflect.bulk;
+
+import io.left.reflect.transport.MeshTransport;
+import io.left.reflect.transport.TransportException;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Receives the chunks of peers' {@link BulkTransfer}s and acknowledges them cumulatively: an
+ * acknowledgement carries the number of chunks received in order, so one acknowledgement covers
+ * every chunk before it and a lost one is made up for by the next.
+ *
+ * Chunks are acknowledged when their sender asks for it, and straight away when one arrives out
+ * of order, so the sender learns of the gap without waiting for its timeout. Chunks that arrive
+ * ahead of a gap are remembered, and only need sending once. The data itself is counted and
+ * dropped.
+ *
+ * Each peer has one transfer at a time: a chunk of a new transfer replaces the previous one. The
+ * last transfer of each peer is kept once finished, so its chunks resent because an
+ * acknowledgement was lost can still be acknowledged.
+ *
+ * @param <P> type identifying peers
+ */
+public final class BulkReceiver<P> {
+    private final MeshTransport<P> transport;
+    private final Listener<P> listener;
+
+    // Guarded by itself.
+    private final Map<P, Incoming> incoming = new HashMap<>();
+
+    /**
+     * Creates a receiver.
+     *
+     * @param transport transport acknowledgements are sent back through
+     * @param listener  notified of finished transfers and failed acknowledgements
+     */
+    public BulkReceiver(MeshTransport<P> transport, Listener<P> listener) {
+        this.transport = transport;
+        this.listener = listener;
+    }
+
+    /**
+     * Handles a chunk, acknowledging it if needed. Can be called from any thread, but chunks from
+     * the same peer should come from one thread at a time so their acknowledgements stay in order.
+     *
+     * @param peer  sender
+     * @param chunk chunk frame, as checked by {@link BulkCodec#isChunk(byte[])}
+     */
+    public void onChunk(P peer, byte[] chunk) {
+        int transferId = BulkCodec.getTransferId(chunk);
+        int index = BulkCodec.getIndex(chunk);
+        int count = BulkCodec.getCount(chunk);
+        if (index < 0 || index >= count) {
+            return;
+        }
+        long nowNanos = System.nanoTime();
+        boolean ack = (BulkCodec.getFlags(chunk) & BulkCodec.FLAG_ACK_NOW) != 0;
+        int received;
+        Incoming finished = null;
+        synchronized (incoming) {
+            Incoming transfer = incoming.get(peer);
+            if (transfer == null || transfer.transferId != transferId) {
+                transfer = new Incoming(transferId, nowNanos);
+                incoming.put(peer, transfer);
+            }
+            int before = transfer.received;
+            if (transfer.add(index, chunk.length - BulkCodec.HEADER_LENGTH)) {
+                // Opening or closing a gap is worth telling the sender about straight away.
+                ack |= index != before || transfer.received > before + 1;
+                if (transfer.received == count) {
+                    transfer.endNanos = nowNanos;
+                    finished = transfer;
+                    ack = true;
+                }
+            }
+            received = transfer.received;
+        }
+        if (ack) {
+            try {
+                transport.send(peer, BulkCodec.encodeAck(transferId, received, count));
+            } catch (TransportException te) {
+                listener.onAckFailed(peer, te);
+            }
+        }
+        if (finished != null) {
+            listener.onTransferReceived(peer, finished.bytes,
+                    finished.endNanos - finished.startNanos);
+        }
+    }
+
+    /**
+     * Chunks received so far of a peer's transfer.
+     */
+    private static final class Incoming {
+        final int transferId;
+        final long startNanos;
+        long endNanos;
+        // Number of chunks received in order.
+        int received;
+        long bytes;
+        // Chunks received ahead of a gap, by index.
+        final BitSet ahead = new BitSet();
+
+        Incoming(int transferId, long startNanos) {
+            this.transferId = transferId;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Records a chunk.
+         *
+         * @param index  index of the chunk
+         * @param length data carried by the chunk
+         * @return true if the chunk hadn't been received before
+         */
+        boolean add(int index, int length) {
+            if (index < received || ahead.get(index)) {
+                return false;
+            }
+            bytes += length;
+            if (index > received) {
+                ahead.set(index);
+                return true;
+            }
+            received++;
+            while (ahead.get(received)) {
+                ahead.clear(received);
+                received++;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Notified of what happened to incoming transfers.
+     *
+     * @param <P> type identifying peers
+     */
+    public interface Listener<P> {
+        /**
+         * Every chunk of a transfer has arrived. Called on the thread handling the last chunk.
+         *
+         * @param peer         sender
+         * @param bytes        data received, in bytes
+         * @param elapsedNanos time from the first chunk to arrive to the last
+         */
+        void onTransferReceived(P peer, long bytes, long elapsedNanos);
+
+        /**
+         * An acknowledgement couldn't be sent.
+         *
+         * @param peer  peer whose chunk it was
+         * @param cause failure reported by the transport
+         */
+        void onAckFailed(P peer, TransportException cause);
+    }
+}
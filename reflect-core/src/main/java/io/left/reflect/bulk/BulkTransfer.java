@@ -0,0 +1,398 @@
+package io.left.reflect.bulk;
+
+import io.left.reflect.transport.MeshTransport;
+import io.left.reflect.transport.TransportException;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams generated data to a peer in fixed-size chunks and measures the sustained throughput of
+ * the route. The peer's {@link BulkReceiver} acknowledges the chunks cumulatively instead of
+ * echoing them, so the route only carries the data one way.
+ *
+ * At most a window of chunks is sent ahead of the last acknowledgement. Chunks are only
+ * acknowledged every half window, or straight away when one arrives out of order. When
+ * acknowledgements stop advancing for the retransmission timeout, or the same one arrives
+ * {@link #DUPLICATE_ACK_THRESHOLD} times in a row, every chunk past it is sent again. The
+ * transfer gives up after {@link #MAX_TIMEOUTS} timeouts in a row without progress.
+ *
+ * The data never exists as a whole: every chunk is sent from one of two frames allocated when the
+ * transfer is created, one full-size and one for the shorter last chunk, and only their headers
+ * are rewritten, so sending allocates nothing. This relies on the transport being done with a
+ * payload once {@link MeshTransport#send} returns. Chunks are sent on the scheduler.
+ *
+ * @param <P> type identifying peers
+ */
+public final class BulkTransfer<P> {
+    /**
+     * Number of identical acknowledgements in a row after which the chunks past them are resent.
+     */
+    public static final int DUPLICATE_ACK_THRESHOLD = 3;
+
+    /**
+     * Number of retransmission timeouts in a row after which the transfer gives up.
+     */
+    public static final int MAX_TIMEOUTS = 5;
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger(new Random().nextInt());
+
+    private final MeshTransport<P> transport;
+    private final ScheduledExecutorService scheduler;
+    private final P peer;
+    private final long totalBytes;
+    private final int window;
+    private final long timeoutNanos;
+    private final Listener listener;
+    private final int transferId = NEXT_ID.getAndIncrement();
+    private final int chunkCount;
+    private final byte[] fullChunk;
+    private final byte[] lastChunk;
+
+    // Guarded by this.
+    private boolean started;
+    private boolean finished;
+    private boolean pumping;
+    private int nextIndex;
+    // Number of chunks sent at least once.
+    private int sentCount;
+    private int ackedCount;
+    private int duplicateAcks;
+    // Acknowledgement the chunks were last resent from, so duplicates of it don't resend again.
+    private int resentFrom = -1;
+    private int timeouts;
+    private long retransmits;
+    private long startNanos;
+    private long lastProgressNanos;
+    private ScheduledFuture<?> timer;
+    private TransportException failure;
+
+    /**
+     * Creates a transfer.
+     *
+     * @param transport     transport the chunks are sent through
+     * @param scheduler     scheduler the chunks are sent from and timeouts are checked on
+     * @param peer          recipient
+     * @param totalBytes    amount of data to send, in bytes
+     * @param chunkLength   data carried by each chunk, in bytes, not counting the header
+     * @param window        maximum number of chunks sent ahead of the last acknowledgement
+     * @param timeoutMillis time without the acknowledgements advancing after which chunks are
+     *                      resent
+     * @param listener      notified when the transfer ends
+     */
+    public BulkTransfer(MeshTransport<P> transport, ScheduledExecutorService scheduler, P peer,
+                        long totalBytes, int chunkLength, int window, long timeoutMillis,
+                        Listener listener) {
+        if (totalBytes < 1 || chunkLength < 1 || window < 1 || timeoutMillis < 1) {
+            throw new IllegalArgumentException("Transfer sizes and timeout must be positive.");
+        }
+        long chunks = (totalBytes + chunkLength - 1) / chunkLength;
+        if (chunks > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many chunks: " + chunks + ".");
+        }
+        this.transport = transport;
+        this.scheduler = scheduler;
+        this.peer = peer;
+        this.totalBytes = totalBytes;
+        this.window = window;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.listener = listener;
+        chunkCount = (int) chunks;
+        int lastLength = (int) (totalBytes - (long) (chunkCount - 1) * chunkLength);
+        fullChunk = newChunk(chunkLength);
+        lastChunk = lastLength == chunkLength ? fullChunk : newChunk(lastLength);
+    }
+
+    /**
+     * Allocates a chunk frame filled with a recognizable pattern rather than zeros, so links that
+     * compress payloads don't flatter the result.
+     *
+     * @param length data carried by the chunk
+     * @return the frame, with room for the header
+     */
+    private static byte[] newChunk(int length) {
+        byte[] chunk = new byte[BulkCodec.HEADER_LENGTH + length];
+        for (int i = BulkCodec.HEADER_LENGTH; i < chunk.length; i++) {
+            chunk[i] = (byte) (i * 31 + (i >>> 8));
+        }
+        return chunk;
+    }
+
+    /**
+     * Starts sending chunks.
+     */
+    public void start() {
+        synchronized (this) {
+            if (started) {
+                throw new IllegalStateException("The transfer has already started.");
+            }
+            started = true;
+            startNanos = System.nanoTime();
+            lastProgressNanos = startNanos;
+            long periodNanos = Math.max(1, timeoutNanos / 4);
+            timer = scheduler.scheduleAtFixedRate(this::checkTimeout, periodNanos, periodNanos,
+                    TimeUnit.NANOSECONDS);
+        }
+        scheduler.execute(this::pump);
+    }
+
+    /**
+     * Stops the transfer. The listener is told it didn't complete, unless it already has.
+     */
+    public void stop() {
+        finish(false);
+    }
+
+    /**
+     * Whether the transfer is still running.
+     *
+     * @return false once it has completed or stopped
+     */
+    public synchronized boolean isRunning() {
+        return !finished;
+    }
+
+    public P getPeer() {
+        return peer;
+    }
+
+    /**
+     * Handles an acknowledgement. Can be called from any thread, for any acknowledgement.
+     *
+     * @param from sender of the acknowledgement
+     * @param ack  acknowledgement frame, as checked by {@link BulkCodec#isAck(byte[])}
+     * @return true if the acknowledgement was for this transfer
+     */
+    public boolean onAck(P from, byte[] ack) {
+        if (BulkCodec.getTransferId(ack) != transferId || !peer.equals(from)) {
+            return false;
+        }
+        int received = BulkCodec.getIndex(ack);
+        boolean done;
+        synchronized (this) {
+            if (finished || received > sentCount) {
+                return true;
+            }
+            if (received > ackedCount) {
+                ackedCount = received;
+                // Don't resend chunks that turn out to have arrived after all.
+                nextIndex = Math.max(nextIndex, ackedCount);
+                duplicateAcks = 0;
+                timeouts = 0;
+                lastProgressNanos = System.nanoTime();
+            } else if (received == ackedCount && ackedCount < nextIndex
+                    && ++duplicateAcks >= DUPLICATE_ACK_THRESHOLD && resentFrom != ackedCount) {
+                // The receiver keeps asking for the same chunk, so it was probably lost.
+                resendFromAcked();
+            }
+            done = ackedCount == chunkCount;
+        }
+        if (done) {
+            finish(true);
+        } else {
+            scheduler.execute(this::pump);
+        }
+        return true;
+    }
+
+    /**
+     * Sends chunks until the window is full or all have been sent.
+     */
+    private void pump() {
+        synchronized (this) {
+            if (pumping) {
+                // Only one pump sends at a time, as they share the chunk frames. The running one
+                // sees whatever room this one was called for.
+                return;
+            }
+            pumping = true;
+        }
+        while (true) {
+            int index;
+            byte flags;
+            synchronized (this) {
+                if (finished || nextIndex >= chunkCount || nextIndex - ackedCount >= window) {
+                    pumping = false;
+                    return;
+                }
+                index = nextIndex++;
+                if (index < sentCount) {
+                    retransmits++;
+                } else {
+                    sentCount = index + 1;
+                }
+                // Ask for an acknowledgement every half window, and when the window fills up.
+                int inFlight = nextIndex - ackedCount;
+                flags = inFlight >= window || (index + 1) % Math.max(1, window / 2) == 0
+                        || nextIndex == chunkCount ? BulkCodec.FLAG_ACK_NOW : 0;
+            }
+            byte[] chunk = index == chunkCount - 1 ? lastChunk : fullChunk;
+            BulkCodec.writeHeader(chunk, BulkCodec.TYPE_CHUNK, flags, transferId, index,
+                    chunkCount);
+            try {
+                transport.send(peer, chunk);
+            } catch (TransportException te) {
+                synchronized (this) {
+                    pumping = false;
+                    failure = te;
+                }
+                finish(false);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Resends the chunks past the last acknowledgement if it hasn't advanced for too long, and
+     * gives up after too many timeouts.
+     */
+    private void checkTimeout() {
+        boolean giveUp;
+        synchronized (this) {
+            if (finished || ackedCount == nextIndex
+                    || System.nanoTime() - lastProgressNanos < timeoutNanos) {
+                return;
+            }
+            giveUp = ++timeouts >= MAX_TIMEOUTS;
+            if (!giveUp) {
+                lastProgressNanos = System.nanoTime();
+                resendFromAcked();
+            }
+        }
+        if (giveUp) {
+            finish(false);
+        } else {
+            scheduler.execute(this::pump);
+        }
+    }
+
+    // Guarded by this.
+    private void resendFromAcked() {
+        nextIndex = ackedCount;
+        resentFrom = ackedCount;
+        duplicateAcks = 0;
+    }
+
+    private void finish(boolean completed) {
+        Result result;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            long elapsedNanos = started ? System.nanoTime() - startNanos : 0;
+            long ackedBytes = ackedCount == chunkCount ? totalBytes
+                    : (long) ackedCount * (fullChunk.length - BulkCodec.HEADER_LENGTH);
+            result = new Result(ackedBytes, ackedCount, sentCount, retransmits, elapsedNanos,
+                    failure);
+        }
+        listener.onFinished(result, completed);
+    }
+
+    /**
+     * What a transfer achieved.
+     */
+    public static final class Result {
+        private final long bytes;
+        private final int chunks;
+        private final int chunksSent;
+        private final long retransmits;
+        private final long elapsedNanos;
+        private final TransportException failure;
+
+        Result(long bytes, int chunks, int chunksSent, long retransmits, long elapsedNanos,
+               TransportException failure) {
+            this.bytes = bytes;
+            this.chunks = chunks;
+            this.chunksSent = chunksSent;
+            this.retransmits = retransmits;
+            this.elapsedNanos = elapsedNanos;
+            this.failure = failure;
+        }
+
+        /**
+         * Data the receiver acknowledged.
+         *
+         * @return number of bytes acknowledged
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Chunks the receiver acknowledged.
+         *
+         * @return number of chunks acknowledged
+         */
+        public int getChunks() {
+            return chunks;
+        }
+
+        /**
+         * Distinct chunks sent, not counting retransmissions.
+         *
+         * @return number of chunks sent at least once
+         */
+        public int getChunksSent() {
+            return chunksSent;
+        }
+
+        /**
+         * Chunks sent again after being lost, or presumed lost.
+         *
+         * @return number of retransmissions
+         */
+        public long getRetransmits() {
+            return retransmits;
+        }
+
+        /**
+         * Time from the start of the transfer to the last acknowledgement, or to the transfer
+         * stopping.
+         *
+         * @return elapsed time in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Data acknowledged per second over the whole transfer.
+         *
+         * @return throughput in megabytes (10^6 bytes) per second, or 0 if no time has passed
+         */
+        public double getMegabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes * 1e3 / elapsedNanos;
+        }
+
+        /**
+         * Failure that stopped the transfer, if a chunk couldn't be sent.
+         *
+         * @return the failure, or null
+         */
+        public TransportException getFailure() {
+            return failure;
+        }
+    }
+
+    /**
+     * Notified when a transfer ends.
+     */
+    public interface Listener {
+        /**
+         * The transfer has ended. Called on the scheduler or the thread handling
+         * acknowledgements.
+         *
+         * @param result    what the transfer achieved
+         * @param completed true if every chunk was acknowledged, false if the transfer was
+         *                  stopped, a chunk couldn't be sent, or the receiver stopped responding
+         */
+        void onFinished(Result result, boolean completed);
+    }
+}
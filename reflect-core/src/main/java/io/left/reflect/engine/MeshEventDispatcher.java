@@ -0,0 +1,116 @@
+package io.left.reflect.engine;
+
+import io.left.reflect.ping.PingCodec;
+import io.left.reflect.ping.PingFrame;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs incoming mesh traffic handling on a small set of background lanes.
+ *
+ * Each lane is a single thread, and events are assigned to lanes by peer, so events from the same
+ * peer are always handled in the order they arrived while different peers are handled in
+ * parallel. Each lane owns its own {@link PingCodec} and {@link PingFrame}, which tasks can use
+ * freely without synchronization.
+ */
+public final class MeshEventDispatcher {
+    /**
+     * Number of lanes suited to a handset.
+     */
+    public static final int DEFAULT_LANE_COUNT = 4;
+
+    private final Lane[] lanes;
+
+    /**
+     * Creates a dispatcher with its own single-threaded lanes.
+     *
+     * @param laneCount number of lanes, each backed by one daemon thread
+     */
+    public MeshEventDispatcher(int laneCount) {
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(Executors.newSingleThreadExecutor(new LaneThreadFactory(i)));
+        }
+    }
+
+    /**
+     * Creates a dispatcher running on the supplied executors, mostly useful for testing with
+     * direct executors. Each executor must run tasks one at a time and in order.
+     *
+     * @param executors one executor per lane
+     */
+    public MeshEventDispatcher(Executor... executors) {
+        lanes = new Lane[executors.length];
+        for (int i = 0; i < executors.length; i++) {
+            lanes[i] = new Lane(executors[i]);
+        }
+    }
+
+    /**
+     * Queues a task on the lane assigned to a peer.
+     *
+     * @param peer peer the event came from
+     * @param task task to run on the peer's lane
+     */
+    void dispatch(Object peer, Task task) {
+        Lane lane = lanes[(peer.hashCode() & Integer.MAX_VALUE) % lanes.length];
+        try {
+            lane.executor.execute(() -> task.run(lane));
+        } catch (RejectedExecutionException ignored) {
+            // The dispatcher has been shut down, so nobody is interested in the event anymore.
+        }
+    }
+
+    /**
+     * Stops the lane threads. Events dispatched afterwards are dropped.
+     */
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            if (lane.executor instanceof ExecutorService) {
+                ((ExecutorService) lane.executor).shutdown();
+            }
+        }
+    }
+
+    /**
+     * A single-threaded lane and the encoding state confined to it.
+     */
+    static final class Lane {
+        final PingCodec codec = new PingCodec();
+        final PingFrame frame = new PingFrame();
+        private final Executor executor;
+
+        private Lane(Executor executor) {
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * Work to run on a lane.
+     */
+    interface Task {
+        void run(Lane lane);
+    }
+
+    /**
+     * Names lane threads and makes them daemons, so they never keep the process alive.
+     */
+    private static final class LaneThreadFactory implements ThreadFactory {
+        private final int index;
+
+        LaneThreadFactory(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "reflect-mesh-lane-" + index);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.left.reflect.engine;
+
+import io.left.reflect.ping.PingCodec;
+import io.left.reflect.ping.PingEvent;
+import io.left.reflect.transport.MeshTransport;
+import io.left.reflect.transport.TransportException;
+
+/**
+ * Handles payloads arriving from a {@link MeshTransport}: echoes peers' pings back to them and
+ * reports the echoes of this device's pings.
+ *
+ * Payloads are handled off the transport's thread by a {@link MeshEventDispatcher}: pings are
+ * decoded and echoed straight away on the sending peer's lane, and only the small
+ * {@link PingEvent}s describing what happened are passed on.
+ *
+ * @param <P> type identifying peers
+ */
+public final class PingResponder<P> implements MeshTransport.Receiver<P> {
+    private final MeshTransport<P> transport;
+    private final MeshEventDispatcher dispatcher;
+    private final Listener<P> listener;
+
+    /**
+     * Creates a responder.
+     *
+     * @param transport  transport echoes are sent back through
+     * @param dispatcher dispatcher payloads are handled on
+     * @param listener   notified of what happened to each payload, on the dispatcher's lanes
+     */
+    public PingResponder(MeshTransport<P> transport, MeshEventDispatcher dispatcher,
+                         Listener<P> listener) {
+        this.transport = transport;
+        this.dispatcher = dispatcher;
+        this.listener = listener;
+    }
+
+    /**
+     * Hands an incoming payload to the sending peer's lane.
+     *
+     * @param peer         sender
+     * @param payload      data received
+     * @param receiveNanos {@link System#nanoTime()} when the payload arrived
+     */
+    @Override
+    public void onReceive(P peer, byte[] payload, long receiveNanos) {
+        dispatcher.dispatch(peer, lane -> handle(peer, payload, receiveNanos, lane));
+    }
+
+    /**
+     * Stops the dispatcher. Payloads received afterwards are dropped.
+     */
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Echoes pings or reports returned ones, running on the peer's lane.
+     *
+     * @param peer         sender
+     * @param data         data received
+     * @param receiveNanos {@link System#nanoTime()} when the payload arrived
+     * @param lane         lane the payload is handled on
+     */
+    private void handle(P peer, byte[] data, long receiveNanos, MeshEventDispatcher.Lane lane) {
+        if (PingCodec.decode(data, lane.frame)) {
+            if (lane.frame.isRequest()) {
+                // Echo requests back to the sender, unchanged apart from the type and, for
+                // version 2 requests, this device's timestamps, taken as late as possible.
+                if (sendEcho(peer, lane.codec.encode(
+                        lane.frame.toReply(receiveNanos, System.nanoTime())))) {
+                    listener.onPingEvent(PingEvent.echoed(peer, lane.frame.getSequence()));
+                }
+            } else if (lane.frame.isTimed()) {
+                listener.onPingEvent(PingEvent.returned(peer, lane.frame.getSequence(),
+                        receiveNanos, lane.frame.getResponderReceiveNanos(),
+                        lane.frame.getResponderSendNanos()));
+            } else {
+                listener.onPingEvent(PingEvent.returned(peer, lane.frame.getSequence(),
+                        receiveNanos));
+            }
+        } else if (PingCodec.isLegacy(data) && data[0] == PingCodec.LEGACY_REQUEST) {
+            // Echo text pings from older versions of Reflect. This version only sends binary
+            // pings, so legacy echoes can't be ours and fall through to the data listener.
+            byte[] responsePayload = data.clone();
+            responsePayload[0] = PingCodec.LEGACY_REPLY;
+            if (sendEcho(peer, responsePayload)) {
+                listener.onPingEvent(PingEvent.echoed(peer, -1));
+            }
+        } else {
+            listener.onData(peer, data);
+        }
+    }
+
+    /**
+     * Returns a ping to the peer that sent it.
+     *
+     * @param peer    peer to return the ping to
+     * @param payload encoded echo
+     * @return true if the echo was sent
+     */
+    private boolean sendEcho(P peer, byte[] payload) {
+        try {
+            transport.send(peer, payload);
+            return true;
+        } catch (TransportException te) {
+            listener.onEchoFailed(peer, te);
+            return false;
+        }
+    }
+
+    /**
+     * Notified of what happened to incoming payloads, on the lane of the sending peer.
+     *
+     * @param <P> type identifying peers
+     */
+    public interface Listener<P> {
+        /**
+         * A ping has been echoed, or the echo of one of this device's pings has arrived.
+         *
+         * @param event what happened
+         */
+        void onPingEvent(PingEvent<P> event);
+
+        /**
+         * A payload that isn't a ping has arrived.
+         *
+         * @param peer    sender
+         * @param payload data received
+         */
+        void onData(P peer, byte[] payload);
+
+        /**
+         * A ping couldn't be echoed back.
+         *
+         * @param peer  peer whose ping it was
+         * @param cause failure reported by the transport
+         */
+        void onEchoFailed(P peer, TransportException cause);
+    }
+}
@@ -0,0 +1,291 @@
+package io.left.reflect.engine;
+
+import io.left.reflect.ping.InFlightTable;
+import io.left.reflect.ping.PingCodec;
+import io.left.reflect.ping.PingFrame;
+import io.left.reflect.ping.PingRecord;
+import io.left.reflect.schedule.PingWindow;
+import io.left.reflect.schedule.TimeoutWheel;
+import io.left.reflect.transport.MeshTransport;
+import io.left.reflect.transport.TransportException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends pings and keeps track of the ones waiting for an echo.
+ *
+ * Pings can be sent from any thread: each thread encodes with its own {@link PingCodec}, and the
+ * in-flight table is only locked for the instant it takes to add or remove a ping, never while
+ * talking to the transport.
+ *
+ * Paced senders such as a flood pass their own {@link PingWindow} to {@link #trySend}, limiting how
+ * many of their pings can be outstanding; pings sent otherwise take no slot, so they neither wait
+ * for nor hold up a flood. A ping holds its slot until its echo arrives or its deadline passes, at
+ * which point it is reported as lost.
+ * Lost pings stay in flight for a while longer, so a late echo is still matched and logged.
+ * Deadlines are kept on a {@link TimeoutWheel} ticked by the scheduler, so tracking them costs a
+ * constant amount per ping however many are outstanding.
+ *
+ * @param <P> type identifying peers
+ */
+public final class PingSender<P> {
+    // Precision of the deadlines.
+    private static final long TICK_MILLIS = 100;
+    // Buckets in the wheel, so a turn covers the usual deadline.
+    private static final int WHEEL_TICKS = 128;
+
+    private final MeshTransport<P> transport;
+    private final long timeoutNanos;
+    private final long lateWindowNanos;
+
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    // Pings that haven't been echoed yet, keyed by sequence number. Guarded by itself.
+    private final InFlightTable<Pending<P>> inFlight = new InFlightTable<>();
+    // Deadlines of the pings in flight. Guarded by inFlight.
+    private final TimeoutWheel<Pending<P>> deadlines;
+    // Only used by the tick, on the scheduler's thread.
+    private final List<Pending<P>> expired = new ArrayList<>();
+    private final List<Pending<P>> lost = new ArrayList<>();
+
+    private volatile Runnable onSlotReleasedListener;
+    private volatile OnPingLostListener<P> onPingLostListener;
+
+    private final ThreadLocal<EncodeState> encodeState = new ThreadLocal<EncodeState>() {
+        @Override
+        protected EncodeState initialValue() {
+            return new EncodeState();
+        }
+    };
+
+    /**
+     * Creates a sender, and starts ticking its deadlines on the scheduler.
+     *
+     * @param transport        transport the pings are sent through
+     * @param scheduler        scheduler expiring the deadlines of unanswered pings
+     * @param timeoutMillis    time after which an unanswered ping is lost
+     * @param lateWindowMillis time after its deadline during which a lost ping's echo is still
+     *                         matched
+     */
+    public PingSender(MeshTransport<P> transport, ScheduledExecutorService scheduler,
+                      long timeoutMillis, long lateWindowMillis) {
+        this.transport = transport;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.lateWindowNanos = TimeUnit.MILLISECONDS.toNanos(lateWindowMillis);
+        this.deadlines = new TimeoutWheel<>(TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS),
+                WHEEL_TICKS, System.nanoTime());
+        scheduler.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a ping and starts waiting for its echo.
+     *
+     * @param recipient peer to ping
+     * @return record of the sent ping
+     * @throws TransportException.TransportDisconnectedException Transport disconnected.
+     * @throws TransportException                                The ping couldn't be sent.
+     */
+    public PingRecord<P> send(P recipient) throws TransportException {
+        return send(recipient, 0);
+    }
+
+    /**
+     * Sends a ping padded to a larger payload, and starts waiting for its echo.
+     *
+     * @param recipient     peer to ping
+     * @param paddingLength number of bytes of padding after the frame header
+     * @return record of the sent ping
+     * @throws TransportException.TransportDisconnectedException Transport disconnected.
+     * @throws TransportException                                The ping couldn't be sent.
+     */
+    public PingRecord<P> send(P recipient, int paddingLength) throws TransportException {
+        return sendWithSlot(recipient, paddingLength, null);
+    }
+
+    /**
+     * Sends a ping if a window has a free slot. The slot is given back when the echo arrives or
+     * the ping's deadline passes.
+     *
+     * @param recipient peer to ping
+     * @param window    window owned by the caller, limiting its pings outstanding
+     * @return record of the sent ping, or null if the window is full
+     * @throws TransportException.TransportDisconnectedException Transport disconnected.
+     * @throws TransportException                                The ping couldn't be sent.
+     */
+    public PingRecord<P> trySend(P recipient, PingWindow window) throws TransportException {
+        if (!window.tryAcquire()) {
+            return null;
+        }
+        return sendWithSlot(recipient, 0, window);
+    }
+
+    private PingRecord<P> sendWithSlot(P recipient, int paddingLength, PingWindow window)
+            throws TransportException {
+        EncodeState state = encodeState.get();
+        PingRecord<P> record = PingRecord.sent(nextSequence.getAndIncrement(), recipient,
+                System.nanoTime());
+        byte[] payload = state.codec.encode(state.frame.setTimedRequest(record.getSequence(),
+                record.getSendNanos(), paddingLength));
+
+        // Track the ping before sending it, as the echo may be handled before send returns.
+        Pending<P> pending = new Pending<>(record, window);
+        synchronized (inFlight) {
+            inFlight.put(record.getSequence(), pending);
+            pending.deadline = deadlines.schedule(pending, record.getSendNanos() + timeoutNanos);
+        }
+        try {
+            transport.send(recipient, payload);
+        } catch (TransportException te) {
+            boolean holdsSlot;
+            synchronized (inFlight) {
+                inFlight.remove(record.getSequence());
+                deadlines.cancel(pending.deadline);
+                holdsSlot = !pending.expired;
+            }
+            if (holdsSlot) {
+                releaseSlot(window);
+            }
+            throw te;
+        }
+        return record;
+    }
+
+    /**
+     * Stops waiting for a ping whose echo has arrived.
+     *
+     * @param sequence sequence number of the returned ping
+     * @return record of the ping, or null if it isn't one this device is waiting for
+     */
+    public PingRecord<P> onReturned(long sequence) {
+        Pending<P> pending;
+        boolean holdsSlot;
+        synchronized (inFlight) {
+            pending = inFlight.remove(sequence);
+            if (pending == null) {
+                return null;
+            }
+            deadlines.cancel(pending.deadline);
+            holdsSlot = !pending.expired;
+        }
+        if (holdsSlot) {
+            releaseSlot(pending.window);
+        }
+        return pending.record;
+    }
+
+    /**
+     * Time after which an unanswered ping is lost.
+     *
+     * @return deadline of a ping, relative to when it was sent
+     */
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    /**
+     * Sets a listener notified, on any thread, whenever a window slot is released.
+     *
+     * @param listener listener, typically waking up a paused flood
+     */
+    public void setOnSlotReleasedListener(Runnable listener) {
+        onSlotReleasedListener = listener;
+    }
+
+    /**
+     * Sets a listener notified, on the scheduler's thread, when a ping's deadline passes.
+     *
+     * @param listener listener
+     */
+    public void setOnPingLostListener(OnPingLostListener<P> listener) {
+        onPingLostListener = listener;
+    }
+
+    /**
+     * Expires the deadlines that have passed: pings reaching their deadline are lost, and lost
+     * pings reaching the end of their late window are forgotten.
+     */
+    private void tick() {
+        long now = System.nanoTime();
+        synchronized (inFlight) {
+            deadlines.expire(now, expired);
+            for (Pending<P> pending : expired) {
+                if (pending.expired) {
+                    inFlight.remove(pending.record.getSequence());
+                } else {
+                    pending.expired = true;
+                    pending.deadline = deadlines.schedule(pending,
+                            pending.record.getSendNanos() + timeoutNanos + lateWindowNanos);
+                    lost.add(pending);
+                }
+            }
+        }
+        expired.clear();
+
+        OnPingLostListener<P> listener = onPingLostListener;
+        for (Pending<P> pending : lost) {
+            PingRecord<P> record = pending.record;
+            releaseSlot(pending.window);
+            if (listener != null) {
+                listener.onPingLost(record);
+            }
+        }
+        lost.clear();
+    }
+
+    // Gives back the slot of a ping sent with trySend, if it took one.
+    private void releaseSlot(PingWindow window) {
+        if (window == null) {
+            return;
+        }
+        window.release();
+        Runnable listener = onSlotReleasedListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * A ping in flight and its deadline.
+     */
+    private static final class Pending<P> {
+        final PingRecord<P> record;
+        // Window the ping holds a slot in, or null if it took none.
+        final PingWindow window;
+        // Guarded by the in-flight table, like the deadline wheel.
+        TimeoutWheel.Timeout<Pending<P>> deadline;
+        // Whether the first deadline has passed and the slot has been released.
+        boolean expired;
+
+        Pending(PingRecord<P> record, PingWindow window) {
+            this.record = record;
+            this.window = window;
+        }
+    }
+
+    /**
+     * Encoding state confined to a single thread.
+     */
+    private static final class EncodeState {
+        final PingCodec codec = new PingCodec();
+        final PingFrame frame = new PingFrame();
+    }
+
+    /**
+     * Notified when a ping has not been echoed back in time.
+     *
+     * @param <P> type identifying peers
+     */
+    public interface OnPingLostListener<P> {
+        /**
+         * The deadline of a ping has passed without its echo.
+         *
+         * @param record record of the ping, still marked as sent
+         */
+        void onPingLost(PingRecord<P> record);
+    }
+}
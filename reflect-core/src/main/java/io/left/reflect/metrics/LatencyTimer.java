@@ -0,0 +1,77 @@
+package io.left.reflect.metrics;
+
+import io.left.reflect.stats.LatencyHistogram;
+
+/**
+ * Distribution of how long an operation takes, such as a send or an event handler, timed from
+ * any thread.
+ *
+ * Recording takes a lock, but only for the couple of shifts and the increment a
+ * {@link LatencyHistogram} needs, and timers are rarely shared by more than two threads.
+ */
+public final class LatencyTimer {
+    /**
+     * Longest duration recorded as is, in nanoseconds. Longer ones are counted as this long.
+     */
+    public static final long HIGHEST_TRACKABLE_NANOS = 60_000_000_000L;
+
+    // Guarded by this.
+    private final LatencyHistogram histogram = new LatencyHistogram(HIGHEST_TRACKABLE_NANOS, 2);
+
+    /**
+     * Records how long an operation took, from its start until now.
+     *
+     * @param startNanos {@link System#nanoTime()} when the operation started
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records how long an operation took.
+     *
+     * @param nanos duration in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        histogram.record(nanos);
+    }
+
+    public synchronized long getCount() {
+        return histogram.getTotalCount();
+    }
+
+    /**
+     * Mean duration recorded.
+     *
+     * @return mean in nanoseconds, 0 if nothing was recorded
+     */
+    public synchronized double getMeanNanos() {
+        return histogram.getMean();
+    }
+
+    /**
+     * Duration below which a percentage of the operations completed.
+     *
+     * @param percentile percentage between 0 and 100
+     * @return duration in nanoseconds, 0 if nothing was recorded
+     */
+    public synchronized long getNanosAtPercentile(double percentile) {
+        return histogram.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * Longest duration recorded.
+     *
+     * @return duration in nanoseconds, 0 if nothing was recorded
+     */
+    public synchronized long getMaxNanos() {
+        return histogram.getMax();
+    }
+
+    /**
+     * Forgets every duration recorded.
+     */
+    public synchronized void reset() {
+        histogram.reset();
+    }
+}
@@ -0,0 +1,152 @@
+package io.left.reflect.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Named counters, gauges and timers describing what a component has been doing, to be shown or
+ * saved on demand.
+ *
+ * Metrics are looked up by name once, when the component is set up, and the component then keeps
+ * the {@link StripedCounter}s and {@link LatencyTimer}s it was given: updating a metric never goes
+ * through the registry. Asking twice for the same name returns the same metric.
+ *
+ * Thread-safe.
+ */
+public final class MetricsRegistry {
+    // Guarded by this.
+    private final Map<String, StripedCounter> counters = new TreeMap<>();
+    // Guarded by this.
+    private final Map<String, Gauge> gauges = new TreeMap<>();
+    // Guarded by this.
+    private final Map<String, LatencyTimer> timers = new TreeMap<>();
+
+    /**
+     * Gets a counter, creating it if needed.
+     *
+     * @param name name of the counter
+     * @return the counter of that name
+     */
+    public synchronized StripedCounter counter(String name) {
+        StripedCounter counter = counters.get(name);
+        if (counter == null) {
+            counter = new StripedCounter();
+            counters.put(name, counter);
+        }
+        return counter;
+    }
+
+    /**
+     * Gets a timer, creating it if needed.
+     *
+     * @param name name of the timer
+     * @return the timer of that name
+     */
+    public synchronized LatencyTimer timer(String name) {
+        LatencyTimer timer = timers.get(name);
+        if (timer == null) {
+            timer = new LatencyTimer();
+            timers.put(name, timer);
+        }
+        return timer;
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge of the same name.
+     *
+     * @param name  name of the gauge
+     * @param gauge reads the current value when the metrics are written
+     */
+    public synchronized void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Sets every counter back to zero and empties every timer. Gauges are left alone, as they
+     * read state the registry doesn't own.
+     */
+    public synchronized void reset() {
+        for (StripedCounter counter : counters.values()) {
+            counter.reset();
+        }
+        for (LatencyTimer timer : timers.values()) {
+            timer.reset();
+        }
+    }
+
+    /**
+     * Writes every metric, one per line, grouped by kind and sorted by name. Timers are given in
+     * milliseconds.
+     *
+     * @param out destination of the text, left open
+     * @throws IOException The text couldn't be written.
+     */
+    public void writeTo(Writer out) throws IOException {
+        // Copy the metrics out, so slow writers don't hold up registration.
+        List<String> counterNames;
+        List<StripedCounter> counterValues;
+        List<String> gaugeNames;
+        List<Gauge> gaugeValues;
+        List<String> timerNames;
+        List<LatencyTimer> timerValues;
+        synchronized (this) {
+            counterNames = new ArrayList<>(counters.keySet());
+            counterValues = new ArrayList<>(counters.values());
+            gaugeNames = new ArrayList<>(gauges.keySet());
+            gaugeValues = new ArrayList<>(gauges.values());
+            timerNames = new ArrayList<>(timers.keySet());
+            timerValues = new ArrayList<>(timers.values());
+        }
+        out.write("counters\n");
+        for (int i = 0; i < counterNames.size(); i++) {
+            out.write("  " + counterNames.get(i) + " " + counterValues.get(i).sum() + "\n");
+        }
+        out.write("gauges\n");
+        for (int i = 0; i < gaugeNames.size(); i++) {
+            out.write("  " + gaugeNames.get(i) + " " + gaugeValues.get(i).getValue() + "\n");
+        }
+        out.write("timers (ms)\n");
+        for (int i = 0; i < timerNames.size(); i++) {
+            LatencyTimer timer = timerValues.get(i);
+            out.write(String.format(Locale.US,
+                    "  %s count %d, mean %.3f, p50 %.3f, p90 %.3f, p99 %.3f, max %.3f\n",
+                    timerNames.get(i), timer.getCount(), timer.getMeanNanos() / 1e6,
+                    timer.getNanosAtPercentile(50) / 1e6, timer.getNanosAtPercentile(90) / 1e6,
+                    timer.getNanosAtPercentile(99) / 1e6, timer.getMaxNanos() / 1e6));
+        }
+    }
+
+    /**
+     * Describes every metric as {@link #writeTo(Writer)} does.
+     *
+     * @return the metrics, one per line
+     */
+    public String format() {
+        StringWriter out = new StringWriter();
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            // A StringWriter doesn't throw.
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Reads a value kept elsewhere, such as the size of a queue or cache.
+     */
+    public interface Gauge {
+        /**
+         * Reads the current value. Called on whichever thread writes the metrics.
+         *
+         * @return the value
+         */
+        long getValue();
+    }
+}
@@ -0,0 +1,199 @@
+package io.left.reflect.ping;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressed hash table of outstanding pings, keyed by sequence number.
+ *
+ * Keys are stored as primitive longs with linear probing, so lookups and removals take constant
+ * time and no boxing, no matter how many pings a session has sent. Removal uses backward-shift
+ * deletion rather than tombstones, keeping probe sequences short in long-running sessions where
+ * entries are constantly added and removed.
+ *
+ * Not thread-safe.
+ *
+ * @param <V> type of the value tracked for each ping
+ */
+public final class InFlightTable<V> {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    // Golden ratio multiplier, spreads sequential keys across the table.
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates an empty table.
+     */
+    public InFlightTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty table sized for the expected number of outstanding pings.
+     *
+     * @param expectedSize number of entries to hold before the table has to grow
+     */
+    public InFlightTable(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Starts tracking a ping.
+     *
+     * @param sequence sequence number of the ping
+     * @param value    value to track, must not be null
+     * @return the value previously tracked under this sequence number, or null
+     */
+    public V put(long sequence, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value must not be null.");
+        }
+        int index = indexOf(sequence);
+        if (index >= 0) {
+            V previous = valueAt(index);
+            values[index] = value;
+            return previous;
+        }
+
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+        int slot = hash(sequence);
+        while (values[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = sequence;
+        values[slot] = value;
+        size++;
+        return null;
+    }
+
+    /**
+     * Looks up an outstanding ping.
+     *
+     * @param sequence sequence number of the ping
+     * @return the tracked value, or null if the ping isn't outstanding
+     */
+    public V get(long sequence) {
+        int index = indexOf(sequence);
+        return index >= 0 ? valueAt(index) : null;
+    }
+
+    /**
+     * Stops tracking a ping, for example when its echo has been received.
+     *
+     * @param sequence sequence number of the ping
+     * @return the value that was tracked, or null if the ping wasn't outstanding
+     */
+    public V remove(long sequence) {
+        int index = indexOf(sequence);
+        if (index < 0) {
+            return null;
+        }
+        V removed = valueAt(index);
+        deleteSlot(index);
+        size--;
+        return removed;
+    }
+
+    /**
+     * Checks whether a ping is outstanding.
+     *
+     * @param sequence sequence number of the ping
+     * @return true if the ping is tracked by this table
+     */
+    public boolean contains(long sequence) {
+        return indexOf(sequence) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Forgets all outstanding pings.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int indexOf(long sequence) {
+        int slot = hash(sequence);
+        while (values[slot] != null) {
+            if (keys[slot] == sequence) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Empties a slot and shifts back any entries further along the probe sequence that would
+     * otherwise become unreachable.
+     */
+    private void deleteSlot(int index) {
+        int gap = index;
+        int slot = index;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) {
+                break;
+            }
+            int home = hash(keys[slot]);
+            // Move the entry into the gap if its home slot isn't cyclically between the gap and
+            // its current slot.
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = hash(oldKeys[i]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private int hash(long key) {
+        return (int) ((key * HASH_MULTIPLIER) >>> 32) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int index) {
+        return (V) values[index];
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 2) * 4 / 3) << 1;
+        return Math.max(capacity, 4);
+    }
+}
@@ -0,0 +1,138 @@
+package io.left.reflect.ping;
+
+import io.left.reflect.stats.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivery and latency statistics of the pings sent to a single peer.
+ *
+ * A ping is lost if its echo doesn't arrive before its deadline. Echoes arriving after that are
+ * counted as late, but the ping still counts as lost, so the loss rate reflects what an application
+ * waiting that long would see.
+ *
+ * The round trip time of every echo, late or not, is kept in a {@link LatencyHistogram}, and jitter
+ * is estimated from consecutive round trips as in RFC 3550.
+ *
+ * Not thread-safe.
+ */
+public final class PeerStats {
+    // Longest round trip recorded as is, beyond the late window of any ping.
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(2);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    // Gain of the jitter estimator, as in RFC 3550.
+    private static final double JITTER_GAIN = 1.0 / 16;
+
+    private final LatencyHistogram rtts =
+            new LatencyHistogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    private double jitterNanos;
+    private long lastRttNanos = -1;
+
+    private long sent;
+    private long received;
+    private long lost;
+    private long late;
+
+    /**
+     * Counts a ping sent to the peer.
+     */
+    public void onSent() {
+        sent++;
+    }
+
+    /**
+     * Counts an echo from the peer.
+     *
+     * @param record record of the ping, already marked as received or late
+     */
+    public void onReceived(PingRecord<?> record) {
+        if (record.getStatus() == PingRecord.Status.LATE) {
+            late++;
+        } else {
+            received++;
+        }
+
+        long rtt = record.getRttNanos();
+        rtts.record(rtt);
+        if (lastRttNanos >= 0) {
+            jitterNanos += (Math.abs(rtt - lastRttNanos) - jitterNanos) * JITTER_GAIN;
+        }
+        lastRttNanos = rtt;
+    }
+
+    /**
+     * Counts a ping whose deadline has passed without an echo.
+     */
+    public void onLost() {
+        lost++;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * Number of pings echoed back in time.
+     *
+     * @return received pings, excluding late ones
+     */
+    public long getReceived() {
+        return received;
+    }
+
+    /**
+     * Number of pings counted as lost, including those whose echo arrived late.
+     *
+     * @return lost pings
+     */
+    public long getLost() {
+        return lost;
+    }
+
+    /**
+     * Number of lost pings whose echo eventually arrived.
+     *
+     * @return late pings
+     */
+    public long getLate() {
+        return late;
+    }
+
+    /**
+     * Number of pings still waiting for an echo, whose fate isn't known yet.
+     *
+     * @return outstanding pings
+     */
+    public long getOutstanding() {
+        return sent - received - lost;
+    }
+
+    /**
+     * Round trip times of the echoes from the peer.
+     *
+     * @return histogram of round trip times, in nanoseconds
+     */
+    public LatencyHistogram getRtts() {
+        return rtts;
+    }
+
+    /**
+     * Smoothed variation between consecutive round trip times.
+     *
+     * @return jitter in nanoseconds, 0 until two echoes have arrived
+     */
+    public double getJitterNanos() {
+        return jitterNanos;
+    }
+
+    /**
+     * Share of the pings whose fate is known that were lost.
+     *
+     * @return loss rate between 0 and 1, or 0 if no ping has been echoed or lost yet
+     */
+    public double getLossRate() {
+        long resolved = received + lost;
+        return resolved == 0 ? 0 : (double) lost / resolved;
+    }
+}
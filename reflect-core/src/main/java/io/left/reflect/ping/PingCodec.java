@@ -0,0 +1,162 @@
+package io.left.reflect.ping;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes and decodes the binary ping wire format.
+ *
+ * A version 1 frame is laid out as follows, big-endian:
+ * <pre>
+ *   offset  size  field
+ *   0       1     version marker (0x81)
+ *   1       1     type (request or reply)
+ *   2       8     sequence number
+ *   10      8     sender's System.nanoTime() when the request was sent
+ *   18      n     optional zero padding
+ * </pre>
+ *
+ * A version 2 frame starts with its own marker (0x83) and carries two more fields after the send
+ * timestamp, so the sender can split the round trip into its one-way legs:
+ * <pre>
+ *   18      8     responder's System.nanoTime() when the request arrived (0 in requests)
+ *   26      8     responder's System.nanoTime() when the reply was sent (0 in requests)
+ *   34      n     optional zero padding
+ * </pre>
+ *
+ * Requests are answered in their own version, so older versions of Reflect, which only send and
+ * echo version 1, keep working against this one. They don't echo version 2 requests though.
+ *
+ * The version marker is a UTF-8 continuation byte, so it can never be the first byte of the legacy
+ * text pings (an ASCII '1' or '0' followed by a timestamp), which lets both formats share a port.
+ *
+ * Encoding writes the header straight into the array handed to the mesh, which Java has already
+ * zeroed, so the padding costs nothing to write. Decoding reads straight from the received array
+ * and allocates nothing. Codecs keep no state and can be shared between threads.
+ */
+public final class PingCodec {
+    /**
+     * First byte of every version 1 binary frame.
+     */
+    public static final byte VERSION_1 = (byte) 0x81;
+
+    /**
+     * First byte of every version 2 binary frame, which carries the responder's timestamps.
+     */
+    public static final byte VERSION_2 = (byte) 0x83;
+
+    /**
+     * A ping that should be echoed back to its sender.
+     */
+    public static final byte TYPE_REQUEST = 1;
+
+    /**
+     * An echoed ping, returned to the original sender.
+     */
+    public static final byte TYPE_REPLY = 2;
+
+    /**
+     * Size of a version 1 frame without padding.
+     */
+    public static final int HEADER_LENGTH = 18;
+
+    /**
+     * Size of a version 2 frame without padding.
+     */
+    public static final int HEADER_LENGTH_V2 = 34;
+
+    /**
+     * First byte of a legacy text ping that should be echoed.
+     */
+    public static final byte LEGACY_REQUEST = '1';
+
+    /**
+     * First byte of a legacy text ping that has already been echoed.
+     */
+    public static final byte LEGACY_REPLY = '0';
+
+    /**
+     * Encodes a frame into the supplied buffer, starting at its current position.
+     *
+     * @param frame frame to encode
+     * @param out   buffer with at least {@link PingFrame#getEncodedLength()} bytes remaining
+     */
+    public static void encode(PingFrame frame, ByteBuffer out) {
+        encodeHeader(frame, out);
+        for (int i = frame.getPaddingLength(); i > 0; i--) {
+            out.put((byte) 0);
+        }
+    }
+
+    /**
+     * Encodes a frame into a byte array ready to be handed to the mesh.
+     *
+     * @param frame frame to encode
+     * @return a new array holding exactly the encoded frame
+     */
+    public byte[] encode(PingFrame frame) {
+        byte[] data = new byte[frame.getEncodedLength()];
+        // The padding is already zero.
+        encodeHeader(frame, ByteBuffer.wrap(data));
+        return data;
+    }
+
+    private static void encodeHeader(PingFrame frame, ByteBuffer out) {
+        out.put(frame.getVersion());
+        out.put(frame.getType());
+        out.putLong(frame.getSequence());
+        out.putLong(frame.getSendNanos());
+        if (frame.isTimed()) {
+            out.putLong(frame.getResponderReceiveNanos());
+            out.putLong(frame.getResponderSendNanos());
+        }
+    }
+
+    /**
+     * Decodes a binary frame.
+     *
+     * @param data received bytes
+     * @param out  frame to populate
+     * @return true if the data held a valid version 1 or 2 frame, false otherwise (in which case
+     *         {@code out} is left untouched)
+     */
+    public static boolean decode(byte[] data, PingFrame out) {
+        if (data == null || data.length < HEADER_LENGTH) {
+            return false;
+        }
+        byte version = data[0];
+        byte type = data[1];
+        if (type != TYPE_REQUEST && type != TYPE_REPLY) {
+            return false;
+        }
+        if (version == VERSION_1) {
+            out.set(VERSION_1, type, readLong(data, 2), readLong(data, 10), 0, 0,
+                    data.length - HEADER_LENGTH);
+            return true;
+        }
+        if (version == VERSION_2 && data.length >= HEADER_LENGTH_V2) {
+            out.set(VERSION_2, type, readLong(data, 2), readLong(data, 10), readLong(data, 18),
+                    readLong(data, 26), data.length - HEADER_LENGTH_V2);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the data is a legacy text ping from an older version of Reflect.
+     *
+     * @param data received bytes
+     * @return true if the data starts with {@link #LEGACY_REQUEST} or {@link #LEGACY_REPLY}
+     */
+    public static boolean isLegacy(byte[] data) {
+        return data != null && data.length > 0
+                && (data[0] == LEGACY_REQUEST || data[0] == LEGACY_REPLY);
+    }
+
+    private static long readLong(byte[] data, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (data[i] & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,113 @@
+package io.left.reflect.ping;
+
+/**
+ * Outcome of handling an incoming ping, passed from the background lanes to the UI thread.
+ *
+ * @param <P> type identifying peers
+ */
+public final class PingEvent<P> {
+    /**
+     * What happened to the incoming ping.
+     */
+    public enum Type {
+        // A peer's ping was echoed back to it.
+        ECHOED,
+        // The echo of one of this device's pings arrived.
+        RETURNED
+    }
+
+    private final Type type;
+    private final P peer;
+    private final long sequence;
+    private final long receiveNanos;
+    // Whether the echo carried the responder's timestamps, and the timestamps if so.
+    private final boolean timed;
+    private final long responderReceiveNanos;
+    private final long responderSendNanos;
+
+    private PingEvent(Type type, P peer, long sequence, long receiveNanos, boolean timed,
+                      long responderReceiveNanos, long responderSendNanos) {
+        this.type = type;
+        this.peer = peer;
+        this.sequence = sequence;
+        this.receiveNanos = receiveNanos;
+        this.timed = timed;
+        this.responderReceiveNanos = responderReceiveNanos;
+        this.responderSendNanos = responderSendNanos;
+    }
+
+    /**
+     * Creates the event for a peer's ping that has been echoed back to it.
+     *
+     * @param peer     peer whose ping was echoed
+     * @param sequence sequence number assigned by the peer, or -1 for legacy text pings
+     * @return an {@link Type#ECHOED} event
+     */
+    public static <P> PingEvent<P> echoed(P peer, long sequence) {
+        return new PingEvent<>(Type.ECHOED, peer, sequence, -1, false, 0, 0);
+    }
+
+    /**
+     * Creates the event for the echo of one of this device's pings.
+     *
+     * @param peer         peer that returned the ping
+     * @param sequence     sequence number of the ping
+     * @param receiveNanos {@link System#nanoTime()} when the echo arrived from the transport
+     * @return a {@link Type#RETURNED} event
+     */
+    public static <P> PingEvent<P> returned(P peer, long sequence, long receiveNanos) {
+        return new PingEvent<>(Type.RETURNED, peer, sequence, receiveNanos, false, 0, 0);
+    }
+
+    /**
+     * Creates the event for the echo of one of this device's pings that carried the responder's
+     * timestamps.
+     *
+     * @param peer                  peer that returned the ping
+     * @param sequence              sequence number of the ping
+     * @param receiveNanos          {@link System#nanoTime()} when the echo arrived from the
+     *                              transport
+     * @param responderReceiveNanos the peer's {@link System#nanoTime()} when the ping arrived
+     * @param responderSendNanos    the peer's {@link System#nanoTime()} when the echo was sent
+     * @return a {@link Type#RETURNED} event
+     */
+    public static <P> PingEvent<P> returned(P peer, long sequence, long receiveNanos,
+                                            long responderReceiveNanos, long responderSendNanos) {
+        return new PingEvent<>(Type.RETURNED, peer, sequence, receiveNanos, true,
+                responderReceiveNanos, responderSendNanos);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public P getPeer() {
+        return peer;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getReceiveNanos() {
+        return receiveNanos;
+    }
+
+    /**
+     * Whether the echo carried the responder's timestamps.
+     *
+     * @return true if {@link #getResponderReceiveNanos()} and {@link #getResponderSendNanos()}
+     *         are known
+     */
+    public boolean isTimed() {
+        return timed;
+    }
+
+    public long getResponderReceiveNanos() {
+        return responderReceiveNanos;
+    }
+
+    public long getResponderSendNanos() {
+        return responderSendNanos;
+    }
+}
@@ -0,0 +1,159 @@
+package io.left.reflect.ping;
+
+/**
+ * A decoded ping frame.
+ *
+ * Frames are mutable so that a single instance can be reused for every encode/decode on a thread,
+ * keeping the ping path free of per-message allocations.
+ */
+public final class PingFrame {
+    // Wire format version, either PingCodec.VERSION_1 or PingCodec.VERSION_2.
+    private byte version = PingCodec.VERSION_1;
+
+    // Frame type, either PingCodec.TYPE_REQUEST or PingCodec.TYPE_REPLY.
+    private byte type;
+
+    // Sequence number assigned by the sender, unique per session.
+    private long sequence;
+
+    // System.nanoTime() of the sender when the request was sent. Only meaningful to the sender.
+    private long sendNanos;
+
+    // System.nanoTime() of the responder when the request arrived and when the reply was sent.
+    // Only carried by version 2 frames, and only meaningful to the responder's clock.
+    private long responderReceiveNanos;
+    private long responderSendNanos;
+
+    // Number of zero bytes appended after the header, used to test larger payloads.
+    private int paddingLength;
+
+    /**
+     * Resets this frame to a request.
+     *
+     * @param sequence      sequence number of the ping
+     * @param sendNanos     {@link System#nanoTime()} at the time of sending
+     * @param paddingLength number of padding bytes to append
+     * @return this frame
+     */
+    public PingFrame setRequest(long sequence, long sendNanos, int paddingLength) {
+        return set(PingCodec.VERSION_1, PingCodec.TYPE_REQUEST, sequence, sendNanos, 0, 0,
+                paddingLength);
+    }
+
+    /**
+     * Resets this frame to a version 2 request, whose reply carries the responder's timestamps.
+     *
+     * @param sequence      sequence number of the ping
+     * @param sendNanos     {@link System#nanoTime()} at the time of sending
+     * @param paddingLength number of padding bytes to append
+     * @return this frame
+     */
+    public PingFrame setTimedRequest(long sequence, long sendNanos, int paddingLength) {
+        return set(PingCodec.VERSION_2, PingCodec.TYPE_REQUEST, sequence, sendNanos, 0, 0,
+                paddingLength);
+    }
+
+    /**
+     * Turns this frame into the reply for the request it currently holds, keeping the sequence
+     * number, send timestamp and padding so the sender can match and time it.
+     *
+     * @return this frame
+     */
+    public PingFrame toReply() {
+        type = PingCodec.TYPE_REPLY;
+        return this;
+    }
+
+    /**
+     * Turns this frame into the reply for the request it currently holds, like
+     * {@link #toReply()}, and stamps it with this device's timestamps if it is a version 2 frame.
+     *
+     * @param receiveNanos {@link System#nanoTime()} when the request arrived
+     * @param sendNanos    {@link System#nanoTime()} when the reply is sent
+     * @return this frame
+     */
+    public PingFrame toReply(long receiveNanos, long sendNanos) {
+        if (isTimed()) {
+            responderReceiveNanos = receiveNanos;
+            responderSendNanos = sendNanos;
+        }
+        return toReply();
+    }
+
+    PingFrame set(byte version, byte type, long sequence, long sendNanos,
+                  long responderReceiveNanos, long responderSendNanos, int paddingLength) {
+        if (paddingLength < 0) {
+            throw new IllegalArgumentException("Padding length must not be negative.");
+        }
+        this.version = version;
+        this.responderReceiveNanos = responderReceiveNanos;
+        this.responderSendNanos = responderSendNanos;
+        this.type = type;
+        this.sequence = sequence;
+        this.sendNanos = sendNanos;
+        this.paddingLength = paddingLength;
+        return this;
+    }
+
+    public byte getVersion() {
+        return version;
+    }
+
+    /**
+     * Whether this frame carries the responder's timestamps.
+     *
+     * @return true for version 2 frames
+     */
+    public boolean isTimed() {
+        return version == PingCodec.VERSION_2;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public boolean isRequest() {
+        return type == PingCodec.TYPE_REQUEST;
+    }
+
+    public boolean isReply() {
+        return type == PingCodec.TYPE_REPLY;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getSendNanos() {
+        return sendNanos;
+    }
+
+    public long getResponderReceiveNanos() {
+        return responderReceiveNanos;
+    }
+
+    public long getResponderSendNanos() {
+        return responderSendNanos;
+    }
+
+    public int getPaddingLength() {
+        return paddingLength;
+    }
+
+    /**
+     * Total size of this frame on the wire.
+     *
+     * @return encoded length in bytes
+     */
+    public int getEncodedLength() {
+        return (isTimed() ? PingCodec.HEADER_LENGTH_V2 : PingCodec.HEADER_LENGTH) + paddingLength;
+    }
+
+    @Override
+    public String toString() {
+        return "PingFrame{version=" + version + ", type=" + type + ", sequence=" + sequence
+                + ", sendNanos=" + sendNanos + ", responderReceiveNanos=" + responderReceiveNanos
+                + ", responderSendNanos=" + responderSendNanos + ", paddingLength="
+                + paddingLength + "}";
+    }
+}
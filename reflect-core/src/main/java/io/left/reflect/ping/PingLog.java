@@ -0,0 +1,192 @@
+package io.left.reflect.ping;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Fixed-capacity ping log backed by a ring buffer.
+ *
+ * The log is viewed as a read-only list with the newest record at position 0. Pushing a record
+ * takes constant time; once the log is full, the oldest record is evicted and rolled into an
+ * aggregate {@link PingSummary} instead of being kept around, so memory use is bounded no matter
+ * how long a session runs.
+ *
+ * Not thread-safe.
+ *
+ * @param <P> type identifying peers
+ */
+public final class PingLog<P> extends AbstractList<PingRecord<P>> implements RandomAccess {
+    /**
+     * Number of records kept when no capacity is configured.
+     */
+    public static final int DEFAULT_CAPACITY = 500;
+
+    /**
+     * Smallest capacity the log can be configured with.
+     */
+    public static final int MIN_CAPACITY = 10;
+
+    /**
+     * Largest capacity the log can be configured with.
+     */
+    public static final int MAX_CAPACITY = 100_000;
+
+    // Only ever holds PingRecord<P>, but generic arrays can't be created.
+    private PingRecord<?>[] entries;
+    private int size;
+
+    // Total number of records ever pushed, also the log index of the next record.
+    private long pushed;
+
+    private final PingSummary archived = new PingSummary();
+
+    /**
+     * Creates an empty log.
+     *
+     * @param capacity number of records to keep, between {@link #MIN_CAPACITY} and
+     *                 {@link #MAX_CAPACITY}
+     */
+    public PingLog(int capacity) {
+        entries = new PingRecord<?>[checkCapacity(capacity)];
+    }
+
+    /**
+     * Adds a record as the newest entry, evicting the oldest one if the log is full.
+     *
+     * @param record record to add
+     */
+    public void push(PingRecord<P> record) {
+        if (size == entries.length) {
+            archive(slotOf(size - 1));
+        } else {
+            size++;
+        }
+        record.setLogIndex(pushed);
+        entries[(int) (pushed % entries.length)] = record;
+        pushed++;
+    }
+
+    /**
+     * Marks a sent ping as received. If the record has already been evicted, the archived summary
+     * is updated instead.
+     *
+     * @param record       record of the sent ping
+     * @param receiveNanos {@link System#nanoTime()} when the echo arrived
+     * @return position of the record in this list, or -1 if it has been evicted or hasn't been
+     *         pushed yet
+     */
+    public int markReceived(PingRecord<P> record, long receiveNanos) {
+        record.markReceived(receiveNanos);
+        int position = positionOf(record);
+        if (position < 0 && record.getLogIndex() >= 0) {
+            archived.addLateReceipt(record);
+        }
+        return position;
+    }
+
+    /**
+     * Marks a ping as lost, updating the archived summary if the record has already been evicted.
+     *
+     * @param record record of a sent ping
+     * @return true if the ping was waiting for its echo and is now lost
+     */
+    public boolean markLost(PingRecord<P> record) {
+        if (!record.markLost()) {
+            return false;
+        }
+        if (positionOf(record) < 0 && record.getLogIndex() >= 0) {
+            archived.addLateLoss();
+        }
+        return true;
+    }
+
+    /**
+     * Finds a record in constant time.
+     *
+     * @param record record to find
+     * @return position of the record in this list, or -1 if it has been evicted or was never
+     *         pushed to this log
+     */
+    public int positionOf(PingRecord<P> record) {
+        long position = pushed - 1 - record.getLogIndex();
+        if (record.getLogIndex() < 0 || position >= size
+                || entries[slotOf((int) position)] != record) {
+            return -1;
+        }
+        return (int) position;
+    }
+
+    /**
+     * Changes the number of records kept. The newest records are kept when shrinking, and the
+     * rest are rolled into the archived summary.
+     *
+     * @param capacity number of records to keep, between {@link #MIN_CAPACITY} and
+     *                 {@link #MAX_CAPACITY}
+     */
+    public void setCapacity(int capacity) {
+        checkCapacity(capacity);
+        if (capacity == entries.length) {
+            return;
+        }
+        while (size > capacity) {
+            archive(slotOf(size - 1));
+            size--;
+        }
+
+        PingRecord<?>[] resized = new PingRecord<?>[capacity];
+        for (int position = 0; position < size; position++) {
+            resized[(int) ((pushed - 1 - position) % capacity)] = entries[slotOf(position)];
+        }
+        entries = resized;
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    /**
+     * Aggregate statistics of the records that have been evicted from this log.
+     *
+     * @return summary of evicted records
+     */
+    public PingSummary getArchived() {
+        return archived;
+    }
+
+    /**
+     * Gets a record, newest first.
+     *
+     * @param position position in the log, 0 being the newest record
+     * @return the record
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public PingRecord<P> get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size " + size);
+        }
+        return (PingRecord<P>) entries[slotOf(position)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private int slotOf(int position) {
+        return (int) ((pushed - 1 - position) % entries.length);
+    }
+
+    private void archive(int slot) {
+        archived.add(entries[slot]);
+        entries[slot] = null;
+    }
+
+    private static int checkCapacity(int capacity) {
+        if (capacity < MIN_CAPACITY || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between " + MIN_CAPACITY
+                    + " and " + MAX_CAPACITY);
+        }
+        return capacity;
+    }
+}
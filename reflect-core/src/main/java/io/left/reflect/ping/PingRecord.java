@@ -0,0 +1,120 @@
+package io.left.reflect.ping;
+
+/**
+ * A single entry in the ping log: either a ping this device sent, or a ping it echoed for a peer.
+ */
+public final class PingRecord<P> {
+    /**
+     * Lifecycle of a logged ping.
+     */
+    public enum Status {
+        // Sent by this device, waiting for the echo.
+        SENT,
+        // Sent by this device and echoed back.
+        RECEIVED,
+        // Sent by this device and not echoed back in time.
+        LOST,
+        // Sent by this device and echoed back after it was counted as lost.
+        LATE,
+        // Sent by a peer and echoed back to it by this device.
+        ECHOED
+    }
+
+    private final long sequence;
+    private final P peer;
+    private final long sendNanos;
+
+    private Status status;
+    private long rttNanos;
+
+    // Position in the stream of records pushed to a PingLog, or -1 if never logged.
+    private long logIndex;
+
+    private PingRecord(long sequence, P peer, long sendNanos, Status status) {
+        this.sequence = sequence;
+        this.peer = peer;
+        this.sendNanos = sendNanos;
+        this.status = status;
+        this.rttNanos = -1;
+        this.logIndex = -1;
+    }
+
+    /**
+     * Creates a record for a ping sent by this device.
+     *
+     * @param sequence  sequence number of the ping
+     * @param peer      recipient of the ping
+     * @param sendNanos {@link System#nanoTime()} when the ping was sent
+     * @return a record with status {@link Status#SENT}
+     */
+    public static <P> PingRecord<P> sent(long sequence, P peer, long sendNanos) {
+        return new PingRecord<>(sequence, peer, sendNanos, Status.SENT);
+    }
+
+    /**
+     * Creates a record for a ping this device echoed back to a peer.
+     *
+     * @param sequence sequence number assigned by the peer, or -1 for legacy text pings
+     * @param peer     peer whose ping was echoed
+     * @return a record with status {@link Status#ECHOED}
+     */
+    public static <P> PingRecord<P> echoed(long sequence, P peer) {
+        return new PingRecord<>(sequence, peer, -1, Status.ECHOED);
+    }
+
+    /**
+     * Marks a sent ping as echoed back to this device, late if it has been marked as lost.
+     *
+     * @param receiveNanos {@link System#nanoTime()} when the echo arrived
+     */
+    public void markReceived(long receiveNanos) {
+        status = status == Status.LOST ? Status.LATE : Status.RECEIVED;
+        rttNanos = receiveNanos - sendNanos;
+    }
+
+    /**
+     * Marks a sent ping as lost, if it is still waiting for its echo.
+     *
+     * @return true if the ping was waiting and is now lost
+     */
+    public boolean markLost() {
+        if (status != Status.SENT) {
+            return false;
+        }
+        status = Status.LOST;
+        return true;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public P getPeer() {
+        return peer;
+    }
+
+    public long getSendNanos() {
+        return sendNanos;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Round trip time of a received ping.
+     *
+     * @return round trip time in nanoseconds, or -1 if the echo hasn't arrived
+     */
+    public long getRttNanos() {
+        return rttNanos;
+    }
+
+    long getLogIndex() {
+        return logIndex;
+    }
+
+    void setLogIndex(long logIndex) {
+        this.logIndex = logIndex;
+    }
+}
@@ -0,0 +1,137 @@
+package io.left.reflect.ping;
+
+/**
+ * Running totals for pings that are no longer kept individually.
+ *
+ * Not thread-safe.
+ */
+public final class PingSummary {
+    private long sent;
+    private long received;
+    private long lost;
+    private long late;
+    private long echoed;
+
+    private long rttSumNanos;
+    private long rttMinNanos = Long.MAX_VALUE;
+    private long rttMaxNanos = Long.MIN_VALUE;
+
+    /**
+     * Adds a record to the totals, according to its current status.
+     *
+     * @param record record being rolled up
+     */
+    public void add(PingRecord<?> record) {
+        switch (record.getStatus()) {
+            case ECHOED:
+                echoed++;
+                break;
+            case RECEIVED:
+                sent++;
+                addRtt(record.getRttNanos());
+                break;
+            case LATE:
+                sent++;
+                lost++;
+                late++;
+                addRtt(record.getRttNanos());
+                break;
+            case LOST:
+                sent++;
+                lost++;
+                break;
+            case SENT:
+            default:
+                sent++;
+                break;
+        }
+    }
+
+    /**
+     * Counts the echo of a ping that was still waiting for it when it was added to the totals.
+     *
+     * @param record record of the ping, already marked as received
+     */
+    public void addLateReceipt(PingRecord<?> record) {
+        if (record.getStatus() == PingRecord.Status.LATE) {
+            late++;
+        }
+        addRtt(record.getRttNanos());
+    }
+
+    /**
+     * Counts the loss of a ping that was still waiting for its echo when it was added to the
+     * totals.
+     */
+    public void addLateLoss() {
+        lost++;
+    }
+
+    private void addRtt(long rttNanos) {
+        received++;
+        rttSumNanos += rttNanos;
+        rttMinNanos = Math.min(rttMinNanos, rttNanos);
+        rttMaxNanos = Math.max(rttMaxNanos, rttNanos);
+    }
+
+    public boolean isEmpty() {
+        return sent == 0 && echoed == 0;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public long getReceived() {
+        return received;
+    }
+
+    /**
+     * Number of pings counted as lost, including those whose echo arrived late.
+     *
+     * @return lost pings
+     */
+    public long getLost() {
+        return lost;
+    }
+
+    /**
+     * Number of lost pings whose echo eventually arrived.
+     *
+     * @return late pings
+     */
+    public long getLate() {
+        return late;
+    }
+
+    public long getEchoed() {
+        return echoed;
+    }
+
+    /**
+     * Mean round trip time of the received pings.
+     *
+     * @return mean round trip time in nanoseconds, or 0 if none were received
+     */
+    public double getMeanRttNanos() {
+        return received == 0 ? 0 : (double) rttSumNanos / received;
+    }
+
+    /**
+     * Fastest round trip time of the received pings.
+     *
+     * @return minimum round trip time in nanoseconds, or 0 if none were received
+     */
+    public long getMinRttNanos() {
+        return received == 0 ? 0 : rttMinNanos;
+    }
+
+    /**
+     * Slowest round trip time of the received pings.
+     *
+     * @return maximum round trip time in nanoseconds, or 0 if none were received
+     */
+    public long getMaxRttNanos() {
+        return received == 0 ? 0 : rttMaxNanos;
+    }
+}
@@ -0,0 +1,327 @@
+package io.left.reflect.schedule;
+
+import io.left.reflect.ping.PingCodec;
+import io.left.reflect.stats.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pings a peer with payloads of growing size, one ping at a time, and measures the round trip
+ * time and goodput at each size. A sudden drop in goodput or rise in loss from one size to the
+ * next shows where the route starts fragmenting payloads.
+ *
+ * Each ping is sent by a {@link SweepTask} on the executor once the previous one has settled,
+ * so pings of different sizes never compete for the route. The caller reports what happened to
+ * every ping through {@link #onSettled(long, long)}; pings that aren't part of the sweep are
+ * ignored, so all settled pings can simply be passed on.
+ */
+public final class PayloadSweep {
+    /**
+     * Smallest payload a ping can have: the header of the timed frames pings are sent in, without
+     * any padding.
+     */
+    public static final int MIN_PAYLOAD_LENGTH = PingCodec.HEADER_LENGTH_V2;
+
+    // Sequence number meaning no ping is awaited.
+    private static final long NONE = -1;
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(2);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Executor executor;
+    private final int[] payloadLengths;
+    private final int pingsPerStep;
+    private final SweepTask task;
+    private final Listener listener;
+
+    // Guarded by this.
+    private int stepIndex;
+    private Step step;
+    private long awaited = NONE;
+    private boolean sending;
+    private boolean finished;
+    // Pings settled while the awaited one was being sent, by sequence number.
+    private final Map<Long, Long> settledWhileSending = new HashMap<>();
+
+    /**
+     * Creates a sweep.
+     *
+     * @param executor       executor the pings are sent from
+     * @param payloadLengths payload length of each step, in bytes, each at least
+     *                       {@link #MIN_PAYLOAD_LENGTH}
+     * @param pingsPerStep   number of pings sent at each payload length
+     * @param task           sends a single ping
+     * @param listener       notified as steps and the sweep end, on the executor or the thread
+     *                       settling pings
+     */
+    public PayloadSweep(Executor executor, int[] payloadLengths, int pingsPerStep,
+                        SweepTask task, Listener listener) {
+        if (payloadLengths.length == 0 || pingsPerStep < 1) {
+            throw new IllegalArgumentException("A sweep needs at least one step and ping.");
+        }
+        for (int length : payloadLengths) {
+            if (length < MIN_PAYLOAD_LENGTH) {
+                throw new IllegalArgumentException("Payloads must be at least "
+                        + MIN_PAYLOAD_LENGTH + " bytes.");
+            }
+        }
+        this.executor = executor;
+        this.payloadLengths = payloadLengths.clone();
+        this.pingsPerStep = pingsPerStep;
+        this.task = task;
+        this.listener = listener;
+    }
+
+    /**
+     * Lists payload lengths growing geometrically from one bound to the other, both included.
+     *
+     * @param min    smallest payload length, at least {@link #MIN_PAYLOAD_LENGTH}
+     * @param max    largest payload length
+     * @param factor ratio between consecutive lengths, greater than 1
+     * @return the payload lengths, smallest first
+     */
+    public static int[] geometricLengths(int min, int max, double factor) {
+        if (min < MIN_PAYLOAD_LENGTH || max < min || !(factor > 1)) {
+            throw new IllegalArgumentException("Invalid sweep range.");
+        }
+        List<Integer> lengths = new ArrayList<>();
+        for (double length = min; length < max; length *= factor) {
+            int rounded = (int) Math.round(length);
+            if (lengths.isEmpty() || rounded > lengths.get(lengths.size() - 1)) {
+                lengths.add(rounded);
+            }
+        }
+        if (lengths.isEmpty() || lengths.get(lengths.size() - 1) < max) {
+            lengths.add(max);
+        }
+        int[] result = new int[lengths.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = lengths.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Sends the first ping.
+     */
+    public void start() {
+        synchronized (this) {
+            if (step != null) {
+                throw new IllegalStateException("The sweep has already started.");
+            }
+            step = new Step(payloadLengths[0]);
+        }
+        executor.execute(this::sendNext);
+    }
+
+    /**
+     * Stops the sweep. The listener is told it didn't complete, unless it already has.
+     */
+    public void stop() {
+        finish(false);
+    }
+
+    /**
+     * Reports that a ping has been echoed or lost. Can be called from any thread, for any ping.
+     *
+     * @param sequence sequence number of the ping
+     * @param rttNanos round trip time of the ping, or a negative value if it was lost
+     */
+    public void onSettled(long sequence, long rttNanos) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            if (sending) {
+                // The echo may beat the sequence number back from the task.
+                settledWhileSending.put(sequence, rttNanos);
+                return;
+            }
+            if (sequence != awaited) {
+                return;
+            }
+            awaited = NONE;
+        }
+        advance(rttNanos);
+    }
+
+    /**
+     * Whether the sweep is still running.
+     *
+     * @return false once it has completed or stopped
+     */
+    public synchronized boolean isRunning() {
+        return !finished;
+    }
+
+    private void sendNext() {
+        int length;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            sending = true;
+            length = step.payloadLength;
+        }
+        long sequence = task.sendPing(length);
+        Long early;
+        synchronized (this) {
+            sending = false;
+            early = settledWhileSending.remove(sequence);
+            settledWhileSending.clear();
+            if (finished) {
+                return;
+            }
+            if (sequence < 0) {
+                early = null;
+            } else if (early == null) {
+                awaited = sequence;
+                return;
+            }
+        }
+        if (early == null) {
+            finish(false);
+        } else {
+            advance(early);
+        }
+    }
+
+    /**
+     * Counts the settled ping and moves on to the next one, step, or the end of the sweep.
+     *
+     * @param rttNanos round trip time of the ping, or a negative value if it was lost
+     */
+    private void advance(long rttNanos) {
+        Step done = null;
+        boolean more = true;
+        synchronized (this) {
+            step.add(rttNanos);
+            if (step.getSent() == pingsPerStep) {
+                done = step;
+                stepIndex++;
+                more = stepIndex < payloadLengths.length;
+                if (more) {
+                    step = new Step(payloadLengths[stepIndex]);
+                }
+            }
+        }
+        if (done != null) {
+            listener.onStepFinished(done);
+        }
+        if (more) {
+            executor.execute(this::sendNext);
+        } else {
+            finish(true);
+        }
+    }
+
+    private void finish(boolean completed) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+        }
+        listener.onFinished(completed);
+    }
+
+    /**
+     * Results of the pings sent at one payload length.
+     */
+    public static final class Step {
+        private final int payloadLength;
+        private final LatencyHistogram rtts =
+                new LatencyHistogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        private long sent;
+        private long lost;
+        private long rttSumNanos;
+
+        Step(int payloadLength) {
+            this.payloadLength = payloadLength;
+        }
+
+        void add(long rttNanos) {
+            sent++;
+            if (rttNanos < 0) {
+                lost++;
+            } else {
+                rtts.record(rttNanos);
+                rttSumNanos += rttNanos;
+            }
+        }
+
+        public int getPayloadLength() {
+            return payloadLength;
+        }
+
+        public long getSent() {
+            return sent;
+        }
+
+        public long getLost() {
+            return lost;
+        }
+
+        /**
+         * Round trip times of the pings echoed.
+         *
+         * @return histogram of round trip times, in nanoseconds
+         */
+        public LatencyHistogram getRtts() {
+            return rtts;
+        }
+
+        /**
+         * Payload carried per second over the round trips of the pings echoed, counting the
+         * payload once each way.
+         *
+         * @return goodput in bytes per second, or 0 if no ping was echoed
+         */
+        public double getGoodputBytesPerSecond() {
+            long received = sent - lost;
+            if (received == 0 || rttSumNanos == 0) {
+                return 0;
+            }
+            return 2.0 * payloadLength * received * TimeUnit.SECONDS.toNanos(1) / rttSumNanos;
+        }
+    }
+
+    /**
+     * Sends a single ping of the sweep.
+     */
+    public interface SweepTask {
+        /**
+         * Sends a ping.
+         *
+         * @param payloadLength length of the ping's payload, in bytes
+         * @return sequence number of the ping, or a negative value if it couldn't be sent and
+         *         the sweep should stop
+         */
+        long sendPing(int payloadLength);
+    }
+
+    /**
+     * Notified of the progress of a sweep.
+     */
+    public interface Listener {
+        /**
+         * All the pings of a step have settled.
+         *
+         * @param step results of the step
+         */
+        void onStepFinished(Step step);
+
+        /**
+         * The sweep has ended.
+         *
+         * @param completed true if all steps were completed, false if the sweep was stopped or
+         *                  a ping couldn't be sent
+         */
+        void onFinished(boolean completed);
+    }
+}
@@ -0,0 +1,181 @@
+package io.left.reflect.schedule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pings every peer of a mesh at once, each at its own limited rate, to map a whole deployment in
+ * the time it takes to ping a single peer.
+ *
+ * Every peer gets its own series of pings on the scheduler. The series start staggered across
+ * one period, so the peers' pings are spread evenly over time rather than sent in a burst, and
+ * each series waits a full period after a ping before sending the next, so a scheduler that falls
+ * behind never catches up with a burst either.
+ *
+ * @param <P> type identifying peers
+ */
+public final class PeerSurvey<P> {
+    private final ScheduledExecutorService scheduler;
+    private final List<P> peers;
+    private final long pingsPerPeer;
+    private final long periodNanos;
+    private final PingTask<P> task;
+    private final Listener listener;
+
+    // Guarded by this.
+    private final List<Series> series = new ArrayList<>();
+    private int running;
+    private long sent;
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * Creates a survey.
+     *
+     * @param scheduler    scheduler the pings are sent from
+     * @param peers        peers to ping
+     * @param pingsPerPeer number of pings sent to each peer
+     * @param ratePerPeer  pings per second sent to each peer
+     * @param task         sends a single ping
+     * @param listener     notified when the survey ends, on the scheduler or the thread stopping
+     *                     it
+     */
+    public PeerSurvey(ScheduledExecutorService scheduler, List<P> peers, long pingsPerPeer,
+                      double ratePerPeer, PingTask<P> task, Listener listener) {
+        if (peers.isEmpty() || pingsPerPeer < 1 || !(ratePerPeer > 0)) {
+            throw new IllegalArgumentException("A survey needs peers, pings and a rate.");
+        }
+        this.scheduler = scheduler;
+        this.peers = new ArrayList<>(peers);
+        this.pingsPerPeer = pingsPerPeer;
+        this.periodNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerPeer));
+        this.task = task;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts pinging the peers.
+     */
+    public synchronized void start() {
+        if (started) {
+            throw new IllegalStateException("The survey has already started.");
+        }
+        started = true;
+        int count = peers.size();
+        running = count;
+        for (int i = 0; i < count; i++) {
+            Series peerSeries = new Series(peers.get(i));
+            series.add(peerSeries);
+            peerSeries.future = scheduler.scheduleWithFixedDelay(peerSeries,
+                    periodNanos * i / count, periodNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops the survey. The listener is told it didn't complete, unless it already has.
+     */
+    public void stop() {
+        finish(false);
+    }
+
+    /**
+     * Whether the survey is still running.
+     *
+     * @return false once it has completed or stopped
+     */
+    public synchronized boolean isRunning() {
+        return !finished;
+    }
+
+    public List<P> getPeers() {
+        return new ArrayList<>(peers);
+    }
+
+    private void finish(boolean completed) {
+        long total;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            for (Series peerSeries : series) {
+                if (peerSeries.future != null) {
+                    peerSeries.future.cancel(false);
+                }
+            }
+            total = sent;
+        }
+        listener.onFinished(total, completed);
+    }
+
+    /**
+     * The pings to a single peer.
+     */
+    private final class Series implements Runnable {
+        final P peer;
+        // Guarded by the survey.
+        long sentToPeer;
+        ScheduledFuture<?> future;
+
+        Series(P peer) {
+            this.peer = peer;
+        }
+
+        @Override
+        public void run() {
+            synchronized (PeerSurvey.this) {
+                if (finished || sentToPeer == pingsPerPeer) {
+                    return;
+                }
+            }
+            PingGenerator.PingTask.Result result = task.sendPing(peer);
+            boolean done = false;
+            synchronized (PeerSurvey.this) {
+                if (result == PingGenerator.PingTask.Result.SENT) {
+                    sent++;
+                    if (++sentToPeer == pingsPerPeer) {
+                        future.cancel(false);
+                        done = --running == 0;
+                    }
+                }
+            }
+            if (result == PingGenerator.PingTask.Result.ABORT) {
+                finish(false);
+            } else if (done) {
+                finish(true);
+            }
+        }
+    }
+
+    /**
+     * Sends a single ping of the survey.
+     *
+     * @param <P> type identifying peers
+     */
+    public interface PingTask<P> {
+        /**
+         * Sends the next ping to a peer.
+         *
+         * @param peer peer to ping
+         * @return whether the ping was sent, held back, or the survey should be aborted
+         */
+        PingGenerator.PingTask.Result sendPing(P peer);
+    }
+
+    /**
+     * Notified when a survey ends.
+     */
+    public interface Listener {
+        /**
+         * The survey has ended.
+         *
+         * @param sent      number of pings sent to all peers
+         * @param completed true if every peer was sent all its pings, false if the survey was
+         *                  stopped or aborted
+         */
+        void onFinished(long sent, boolean completed);
+    }
+}
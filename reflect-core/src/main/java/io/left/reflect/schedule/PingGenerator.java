@@ -0,0 +1,250 @@
+package io.left.reflect.schedule;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a series of pings at a target rate from a background scheduler.
+ *
+ * Only one series runs at a time; starting a new one stops the previous one. The ping itself is
+ * sent by a {@link PingTask} supplied by the caller, which is always run on the scheduler's
+ * thread.
+ *
+ * A task can push back by reporting {@link PingTask.Result#BLOCKED}, for example when its
+ * {@link PingWindow} is full. At a fixed rate the blocked tick is simply skipped; back to back,
+ * the series pauses until {@link #wake()} is called.
+ */
+public final class PingGenerator {
+    /**
+     * Count meaning the generator keeps sending until stopped.
+     */
+    public static final long UNLIMITED = 0;
+
+    /**
+     * Rate meaning pings are sent back to back, as fast as the task allows.
+     */
+    public static final double AS_FAST_AS_POSSIBLE = 0;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final ScheduledExecutorService executor;
+
+    // Series currently running, guarded by this.
+    private Series current;
+
+    /**
+     * Creates a generator.
+     *
+     * @param executor scheduler the pings are sent from, should be single-threaded
+     */
+    public PingGenerator(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Starts sending pings, stopping any series already running.
+     *
+     * @param count         number of pings to send, or {@link #UNLIMITED}
+     * @param ratePerSecond pings per second, or {@link #AS_FAST_AS_POSSIBLE}
+     * @param task          sends a single ping
+     * @param listener      notified when the series ends, on the scheduler's thread or the
+     *                      thread stopping it
+     */
+    public synchronized void start(long count, double ratePerSecond, PingTask task,
+                                   Listener listener) {
+        if (count < 0 || ratePerSecond < 0) {
+            throw new IllegalArgumentException("Count and rate must not be negative.");
+        }
+        stop();
+
+        current = new Series(count, ratePerSecond == AS_FAST_AS_POSSIBLE, task, listener);
+        if (ratePerSecond == AS_FAST_AS_POSSIBLE) {
+            current.future = executor.schedule(current, 0, TimeUnit.NANOSECONDS);
+        } else {
+            long periodNanos = Math.max(1, (long) (NANOS_PER_SECOND / ratePerSecond));
+            current.future = executor.scheduleAtFixedRate(current, 0, periodNanos,
+                    TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops the running series, if any. Its listener is notified that it didn't complete.
+     */
+    public synchronized void stop() {
+        if (current != null) {
+            current.finish(false);
+        }
+    }
+
+    /**
+     * Resumes a back to back series paused by a blocked task, typically because a window slot has
+     * been released. Can be called from any thread, and does nothing if no series is paused.
+     */
+    public synchronized void wake() {
+        if (current != null) {
+            current.wake();
+        }
+    }
+
+    /**
+     * Whether a series is currently running.
+     *
+     * @return true if pings are being sent
+     */
+    public synchronized boolean isRunning() {
+        return current != null;
+    }
+
+    private synchronized void onFinished(Series series) {
+        if (current == series) {
+            current = null;
+        }
+    }
+
+    /**
+     * A single series of pings.
+     */
+    private final class Series implements Runnable {
+        private final long count;
+        private final boolean backToBack;
+        private final PingTask task;
+        private final Listener listener;
+
+        // Only written on the scheduler's thread.
+        private volatile long sent;
+        private volatile ScheduledFuture<?> future;
+        // Guarded by this.
+        private boolean finished;
+        private boolean paused;
+        private boolean woken;
+
+        Series(long count, boolean backToBack, PingTask task, Listener listener) {
+            this.count = count;
+            this.backToBack = backToBack;
+            this.task = task;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            if (!begin()) {
+                return;
+            }
+            switch (task.sendPing()) {
+                case ABORT:
+                    finish(false);
+                    return;
+                case BLOCKED:
+                    if (backToBack) {
+                        pause();
+                    }
+                    return;
+                case SENT:
+                default:
+                    break;
+            }
+            sent++;
+            if (count != UNLIMITED && sent >= count) {
+                finish(true);
+            } else if (backToBack) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized boolean begin() {
+            woken = false;
+            return !finished;
+        }
+
+        private synchronized void pause() {
+            if (finished) {
+                return;
+            }
+            if (woken) {
+                // A slot was released after the task found none, so it is worth trying again now
+                // rather than waiting for a release that may never come.
+                scheduleNext();
+            } else {
+                paused = true;
+            }
+        }
+
+        synchronized void wake() {
+            if (finished) {
+                return;
+            }
+            if (paused) {
+                paused = false;
+                scheduleNext();
+            } else {
+                woken = true;
+            }
+        }
+
+        private void scheduleNext() {
+            // Queue the next ping behind anything else waiting to run, so other work on the
+            // scheduler isn't starved.
+            future = executor.schedule(this, 0, TimeUnit.NANOSECONDS);
+        }
+
+        void finish(boolean completed) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+            }
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            onFinished(this);
+            listener.onFinished(sent, completed);
+        }
+    }
+
+    /**
+     * Sends a single ping.
+     */
+    public interface PingTask {
+        /**
+         * Sends the next ping of the series.
+         *
+         * @return whether the ping was sent, held back, or the series should be aborted
+         */
+        Result sendPing();
+
+        /**
+         * Outcome of an attempt to send a ping.
+         */
+        enum Result {
+            /**
+             * The ping was sent.
+             */
+            SENT,
+            /**
+             * No ping could be sent yet, try again later.
+             */
+            BLOCKED,
+            /**
+             * Sending failed for good, stop the series.
+             */
+            ABORT
+        }
+    }
+
+    /**
+     * Notified when a series ends.
+     */
+    public interface Listener {
+        /**
+         * The series has ended.
+         *
+         * @param sent      number of pings sent
+         * @param completed true if all pings were sent, false if the series was stopped or
+         *                  aborted
+         */
+        void onFinished(long sent, boolean completed);
+    }
+}
@@ -0,0 +1,83 @@
+package io.left.reflect.schedule;
+
+/**
+ * Limits how many of a flood's pings can be outstanding at once.
+ *
+ * Each flood owns its window, so other pings to the same peer neither take its slots nor wait for
+ * them. A slot is taken when one of the flood's pings is sent and given back when its echo arrives
+ * or it times out. Keeping the window small stops the flood from simply filling the mesh's queues,
+ * so the measured latency is that of the route at the offered load rather than of the backlog.
+ */
+public final class PingWindow {
+    /**
+     * Window size meaning any number of pings may be outstanding.
+     */
+    public static final int UNLIMITED = 0;
+
+    // Guarded by this.
+    private int size;
+    private int inFlight;
+
+    /**
+     * Creates a window.
+     *
+     * @param size maximum number of outstanding pings, or {@link #UNLIMITED}
+     */
+    public PingWindow(int size) {
+        setSize(size);
+    }
+
+    /**
+     * Takes a slot if one is free.
+     *
+     * @return true if the ping may be sent, false if the window is full
+     */
+    public synchronized boolean tryAcquire() {
+        if (size != UNLIMITED && inFlight >= size) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Gives back a slot taken by {@link #tryAcquire()}.
+     */
+    public synchronized void release() {
+        if (inFlight == 0) {
+            throw new IllegalStateException("No slot to release.");
+        }
+        inFlight--;
+    }
+
+    /**
+     * Changes the window size. Pings already outstanding are unaffected, but no new slot is handed
+     * out until the count drops below the new size.
+     *
+     * @param size maximum number of outstanding pings, or {@link #UNLIMITED}
+     */
+    public synchronized void setSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Window size must not be negative.");
+        }
+        this.size = size;
+    }
+
+    /**
+     * Gets the window size.
+     *
+     * @return maximum number of outstanding pings, or {@link #UNLIMITED}
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the number of slots in use.
+     *
+     * @return number of outstanding pings
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,171 @@
+package io.left.reflect.schedule;
+
+import java.util.List;
+
+/**
+ * Hashed timer wheel, tracking large numbers of deadlines with constant time scheduling and
+ * cancellation.
+ *
+ * Time is split into ticks, and each deadline is filed in the bucket of the tick it falls in,
+ * modulo the size of the wheel. Deadlines more than one turn of the wheel away wait in their bucket
+ * for the remaining turns. Deadlines are only precise to a tick: an item expires on the first call
+ * to {@link #expire(long, List)} after the end of its tick.
+ *
+ * Not thread-safe.
+ *
+ * @param <T> type of the items whose deadlines are tracked
+ */
+public final class TimeoutWheel<T> {
+    private final long tickNanos;
+    private final Timeout<T>[] buckets;
+    private final int mask;
+
+    // Next tick to expire; every earlier tick has ended and been expired.
+    private long tick;
+    private int size;
+
+    /**
+     * Creates a wheel.
+     *
+     * @param tickNanos  length of a tick, the precision of the deadlines
+     * @param ticks      number of buckets, rounded up to a power of two; a turn of the wheel should
+     *                   cover the usual deadline so items rarely wait more than one turn
+     * @param startNanos time the wheel starts at, on the same clock as the deadlines
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimeoutWheel(long tickNanos, int ticks, long startNanos) {
+        if (tickNanos <= 0 || ticks <= 0) {
+            throw new IllegalArgumentException("Tick length and count must be positive.");
+        }
+        int length = Integer.highestOneBit(ticks);
+        if (length < ticks) {
+            length <<= 1;
+        }
+        this.tickNanos = tickNanos;
+        this.buckets = new Timeout[length];
+        this.mask = length - 1;
+        this.tick = startNanos / tickNanos;
+    }
+
+    /**
+     * Files an item to expire at a deadline.
+     *
+     * @param item          item to hand back once the deadline has passed
+     * @param deadlineNanos deadline, on the same clock as the times passed to
+     *                      {@link #expire(long, List)}
+     * @return handle to cancel the deadline with
+     */
+    public Timeout<T> schedule(T item, long deadlineNanos) {
+        // Deadlines already passed expire with the next call.
+        long deadlineTick = Math.max(deadlineNanos / tickNanos, tick);
+        Timeout<T> timeout = new Timeout<>(item, (deadlineTick - tick) / buckets.length);
+        link(timeout, (int) (deadlineTick & mask));
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancels a deadline, so its item is never handed back.
+     *
+     * @param timeout handle returned when the item was scheduled
+     * @return true if the deadline was pending, false if it had already expired or been cancelled
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket < 0) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Advances the wheel, handing back the items whose deadline is in a tick that has ended.
+     *
+     * @param nowNanos current time
+     * @param expired  list the expired items are added to
+     * @return number of items added
+     */
+    public int expire(long nowNanos, List<T> expired) {
+        long nowTick = nowNanos / tickNanos;
+        int count = 0;
+        for (; tick < nowTick; tick++) {
+            count += expireBucket((int) (tick & mask), expired);
+        }
+        return count;
+    }
+
+    private int expireBucket(int bucket, List<T> expired) {
+        int count = 0;
+        Timeout<T> timeout = buckets[bucket];
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            if (timeout.rounds <= 0) {
+                unlink(timeout);
+                size--;
+                expired.add(timeout.item);
+                count++;
+            } else {
+                timeout.rounds--;
+            }
+            timeout = next;
+        }
+        return count;
+    }
+
+    /**
+     * Number of pending deadlines.
+     *
+     * @return number of items scheduled and neither expired nor cancelled
+     */
+    public int size() {
+        return size;
+    }
+
+    private void link(Timeout<T> timeout, int bucket) {
+        timeout.bucket = bucket;
+        timeout.next = buckets[bucket];
+        if (timeout.next != null) {
+            timeout.next.previous = timeout;
+        }
+        buckets[bucket] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.previous == null) {
+            buckets[timeout.bucket] = timeout.next;
+        } else {
+            timeout.previous.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    /**
+     * A pending deadline, linked into its bucket.
+     *
+     * @param <T> type of the item
+     */
+    public static final class Timeout<T> {
+        private final T item;
+        // Turns of the wheel left before the deadline's tick comes round.
+        private long rounds;
+        // Bucket the timeout is filed in, or -1 once it has expired or been cancelled.
+        private int bucket;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(T item, long rounds) {
+            this.item = item;
+            this.rounds = rounds;
+        }
+
+        public T getItem() {
+            return item;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.left.reflect.session;
+
+import io.left.reflect.ping.PingRecord;
+
+/**
+ * A change of a ping's status, read back from a {@link SessionLog}. Entries are reused by the
+ * {@link SessionReader}, so copy out anything that must outlive the next read.
+ */
+public final class SessionEntry {
+    private long sequence;
+    private String peer;
+    private PingRecord.Status status;
+    private long sendNanos;
+    private long receiveNanos;
+
+    void set(long sequence, String peer, PingRecord.Status status, long sendNanos,
+             long receiveNanos) {
+        this.sequence = sequence;
+        this.peer = peer;
+        this.status = status;
+        this.sendNanos = sendNanos;
+        this.receiveNanos = receiveNanos;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Name of the peer, as it was when logged.
+     *
+     * @return the peer's {@link String#valueOf(Object) string form}, possibly truncated
+     */
+    public String getPeer() {
+        return peer;
+    }
+
+    public PingRecord.Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Time the ping was sent, relative to {@link SessionReader#getStartNanos()}.
+     *
+     * @return {@link System#nanoTime()} when the ping was sent, or -1 for an echoed ping
+     */
+    public long getSendNanos() {
+        return sendNanos;
+    }
+
+    /**
+     * Time the echo arrived, relative to {@link SessionReader#getStartNanos()}.
+     *
+     * @return {@link System#nanoTime()} when the echo arrived, or -1 if it hadn't
+     */
+    public long getReceiveNanos() {
+        return receiveNanos;
+    }
+
+    /**
+     * Round trip time of the ping.
+     *
+     * @return round trip time in nanoseconds, or -1 if the echo hadn't arrived
+     */
+    public long getRttNanos() {
+        return receiveNanos < 0 ? -1 : receiveNanos - sendNanos;
+    }
+}
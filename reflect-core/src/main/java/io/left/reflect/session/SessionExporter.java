@@ -0,0 +1,337 @@
+package io.left.reflect.session;
+
+import io.left.reflect.ping.PeerStats;
+import io.left.reflect.ping.PingRecord;
+import io.left.reflect.stats.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Streams a session read from a {@link SessionLog} out as CSV or newline-delimited JSON: one row
+ * per ping, then one row per peer with its delivery statistics.
+ *
+ * The log holds every change of a ping's status, so a ping is only written once its fate is
+ * known: when its echo arrives, or when nothing more can happen to it because the session has
+ * moved on past its horizon. Only the pings still within their horizon and the statistics of
+ * each peer are held in memory, whatever the length of the session. Rows are therefore in the
+ * order pings were settled, not the order they were sent.
+ */
+public final class SessionExporter {
+    /**
+     * Output format.
+     */
+    public enum Format {
+        // Comma-separated values with a header row, as in RFC 4180.
+        CSV,
+        // One JSON object per line.
+        NDJSON
+    }
+
+    private static final String[] PING_COLUMNS = {"sequence", "peer", "status", "send_unix_ms",
+        "receive_unix_ms", "rtt_ms"};
+    private static final String[] PEER_COLUMNS = {"peer", "sent", "received", "lost", "late",
+        "loss_rate", "rtt_min_ms", "rtt_mean_ms", "rtt_p50_ms", "rtt_p90_ms", "rtt_p99_ms",
+        "rtt_p99_9_ms", "rtt_max_ms", "jitter_ms"};
+
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final Format format;
+    private final long horizonNanos;
+
+    /**
+     * Creates an exporter.
+     *
+     * @param format       output format
+     * @param horizonNanos time after it was sent beyond which nothing more can happen to a ping,
+     *                     its timeout plus its late window
+     */
+    public SessionExporter(Format format, long horizonNanos) {
+        this.format = format;
+        this.horizonNanos = horizonNanos;
+    }
+
+    /**
+     * Exports a session. Neither writer is closed.
+     *
+     * @param reader reader positioned at the start of the session
+     * @param pings  receives a row per ping
+     * @param peers  receives a row per peer pinged, once all pings have been written
+     * @throws IOException The session couldn't be read or the rows couldn't be written.
+     */
+    public void export(SessionReader reader, Writer pings, Writer peers) throws IOException {
+        Table pingTable = newTable(pings, PING_COLUMNS);
+        Object[] row = new Object[PING_COLUMNS.length];
+        long startWallMillis = reader.getStartWallMillis();
+        long startNanos = reader.getStartNanos();
+
+        // Pings whose fate isn't known yet, in the order they were sent. Peers number their pings
+        // independently, so a sequence number alone doesn't tell pings apart.
+        Map<PingKey, PingRecord<String>> pending = new LinkedHashMap<>();
+        Map<String, PeerStats> stats = new TreeMap<>();
+        SessionEntry entry = new SessionEntry();
+        long nowNanos = Long.MIN_VALUE;
+
+        while (reader.next(entry)) {
+            if (entry.getStatus() == PingRecord.Status.ECHOED) {
+                // A peer's ping is settled as soon as it is echoed, and never pending.
+                writePing(pingTable, row, PingRecord.echoed(entry.getSequence(), entry.getPeer()),
+                        startWallMillis, startNanos);
+            } else {
+                PingKey key = new PingKey(entry.getPeer(), entry.getSequence());
+                PingRecord<String> ping = pending.get(key);
+                boolean wasPending = ping != null;
+                if (!wasPending || entry.getStatus() == PingRecord.Status.SENT) {
+                    // A later status may have outlived the ping's horizon.
+                    ping = PingRecord.sent(entry.getSequence(), entry.getPeer(),
+                            entry.getSendNanos());
+                }
+                PeerStats peer = stats.get(entry.getPeer());
+                if (peer == null) {
+                    peer = new PeerStats();
+                    stats.put(entry.getPeer(), peer);
+                }
+                switch (entry.getStatus()) {
+                    case SENT:
+                        pending.put(key, ping);
+                        peer.onSent();
+                        break;
+                    case LOST:
+                        if (ping.markLost()) {
+                            peer.onLost();
+                            if (!wasPending) {
+                                writePing(pingTable, row, ping, startWallMillis, startNanos);
+                            }
+                        }
+                        break;
+                    case RECEIVED:
+                    case LATE:
+                    default:
+                        if (entry.getStatus() == PingRecord.Status.LATE) {
+                            ping.markLost();
+                        }
+                        ping.markReceived(entry.getReceiveNanos());
+                        peer.onReceived(ping);
+                        pending.remove(key);
+                        writePing(pingTable, row, ping, startWallMillis, startNanos);
+                        break;
+                }
+            }
+
+            nowNanos = Math.max(nowNanos, Math.max(entry.getSendNanos(),
+                    entry.getReceiveNanos()));
+            Iterator<PingRecord<String>> oldest = pending.values().iterator();
+            while (oldest.hasNext()) {
+                PingRecord<String> settled = oldest.next();
+                if (nowNanos - settled.getSendNanos() <= horizonNanos) {
+                    break;
+                }
+                writePing(pingTable, row, settled, startWallMillis, startNanos);
+                oldest.remove();
+            }
+        }
+        for (PingRecord<String> settled : pending.values()) {
+            writePing(pingTable, row, settled, startWallMillis, startNanos);
+        }
+        pingTable.end();
+
+        Table peerTable = newTable(peers, PEER_COLUMNS);
+        row = new Object[PEER_COLUMNS.length];
+        for (Map.Entry<String, PeerStats> peer : stats.entrySet()) {
+            writePeer(peerTable, row, peer.getKey(), peer.getValue());
+        }
+        peerTable.end();
+    }
+
+    private Table newTable(Writer out, String[] columns) throws IOException {
+        return format == Format.CSV ? new CsvTable(out, columns) : new JsonTable(out, columns);
+    }
+
+    private static void writePing(Table table, Object[] row, PingRecord<String> ping,
+                                  long startWallMillis, long startNanos) throws IOException {
+        long sendNanos = ping.getSendNanos();
+        long rttNanos = ping.getRttNanos();
+        row[0] = ping.getSequence();
+        row[1] = ping.getPeer();
+        row[2] = ping.getStatus().name();
+        row[3] = ping.getStatus() == PingRecord.Status.ECHOED ? null
+                : toWallMillis(sendNanos, startWallMillis, startNanos);
+        row[4] = rttNanos < 0 ? null
+                : toWallMillis(sendNanos + rttNanos, startWallMillis, startNanos);
+        row[5] = rttNanos < 0 ? null : rttNanos / NANOS_PER_MILLI;
+        table.row(row);
+    }
+
+    private static void writePeer(Table table, Object[] row, String peer, PeerStats stats)
+            throws IOException {
+        LatencyHistogram rtts = stats.getRtts();
+        boolean anyRtt = rtts.getTotalCount() > 0;
+        row[0] = peer;
+        row[1] = stats.getSent();
+        row[2] = stats.getReceived();
+        row[3] = stats.getLost();
+        row[4] = stats.getLate();
+        row[5] = stats.getLossRate();
+        row[6] = anyRtt ? rtts.getMin() / NANOS_PER_MILLI : null;
+        row[7] = anyRtt ? rtts.getMean() / NANOS_PER_MILLI : null;
+        row[8] = anyRtt ? rtts.getValueAtPercentile(50) / NANOS_PER_MILLI : null;
+        row[9] = anyRtt ? rtts.getValueAtPercentile(90) / NANOS_PER_MILLI : null;
+        row[10] = anyRtt ? rtts.getValueAtPercentile(99) / NANOS_PER_MILLI : null;
+        row[11] = anyRtt ? rtts.getValueAtPercentile(99.9) / NANOS_PER_MILLI : null;
+        row[12] = anyRtt ? rtts.getMax() / NANOS_PER_MILLI : null;
+        row[13] = anyRtt ? stats.getJitterNanos() / NANOS_PER_MILLI : null;
+        table.row(row);
+    }
+
+    private static long toWallMillis(long nanos, long startWallMillis, long startNanos) {
+        return startWallMillis + Math.round((nanos - startNanos) / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Formats a number.
+     *
+     * @param value a Long or a Double
+     * @return the number, or null if it isn't one
+     */
+    private static String formatNumber(Object value) {
+        if (value instanceof Double) {
+            double number = (Double) value;
+            return Double.isNaN(number) ? null : String.format(Locale.US, "%.3f", number);
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Identifies a ping sent by this device by the peer it was sent to and its sequence number.
+     */
+    private static final class PingKey {
+        private final String peer;
+        private final long sequence;
+
+        PingKey(String peer, long sequence) {
+            this.peer = peer;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof PingKey)) {
+                return false;
+            }
+            PingKey key = (PingKey) other;
+            return sequence == key.sequence && peer.equals(key.peer);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * peer.hashCode() + (int) (sequence ^ (sequence >>> 32));
+        }
+    }
+
+    /**
+     * Rows of values under named columns, in one of the output formats.
+     */
+    private abstract static class Table {
+        final Writer out;
+        final String[] columns;
+
+        Table(Writer out, String[] columns) {
+            this.out = out;
+            this.columns = columns;
+        }
+
+        /**
+         * Writes a row.
+         *
+         * @param values strings, numbers, or null for missing values, one per column
+         * @throws IOException The row couldn't be written.
+         */
+        abstract void row(Object[] values) throws IOException;
+
+        void end() throws IOException {
+            out.flush();
+        }
+    }
+
+    private static final class CsvTable extends Table {
+        CsvTable(Writer out, String[] columns) throws IOException {
+            super(out, columns);
+            row(columns);
+        }
+
+        @Override
+        void row(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                Object value = values[i];
+                String number = value == null ? null : formatNumber(value);
+                if (value instanceof String) {
+                    writeField((String) value);
+                } else if (number != null) {
+                    out.write(number);
+                }
+            }
+            out.write("\r\n");
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                    && value.indexOf('\r') < 0) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+    }
+
+    private static final class JsonTable extends Table {
+        JsonTable(Writer out, String[] columns) {
+            super(out, columns);
+        }
+
+        @Override
+        void row(Object[] values) throws IOException {
+            out.write('{');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                writeString(columns[i]);
+                out.write(':');
+                Object value = values[i];
+                String number = value == null ? null : formatNumber(value);
+                if (value instanceof String) {
+                    writeString((String) value);
+                } else {
+                    out.write(number == null ? "null" : number);
+                }
+            }
+            out.write("}\n");
+        }
+
+        private void writeString(String value) throws IOException {
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.write('\\');
+                    out.write(c);
+                } else if (c < 0x20) {
+                    out.write(String.format(Locale.US, "\\u%04x", (int) c));
+                } else {
+                    out.write(c);
+                }
+            }
+            out.write('"');
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package io.left.reflect.session;
+
+import io.left.reflect.ping.PingRecord;
+import io.left.reflect.ping.PingSummary;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of everything that happened to the pings of a session, written through
+ * a memory-mapped file so it survives the app being killed or crashing.
+ *
+ * The file is a header followed by fixed-size records, each one a change of a ping's status.
+ * Peers are written once, the first time they appear, and referred to by index afterwards. Every
+ * record ends with a checksum written after the rest of it, so a record torn by a crash is
+ * recognized and ignored by the {@link SessionReader}.
+ *
+ * Appending copies a record into the mapping and never waits for the disk: the kernel writes the
+ * pages back in its own time, and still does if the process dies. Only {@link #sync()} and
+ * {@link #close()} wait for the data to be on disk, which is what survives a power loss.
+ *
+ * Not thread-safe.
+ */
+public final class SessionLog implements Closeable {
+    /**
+     * Size of the header and of every record, in bytes.
+     */
+    public static final int RECORD_SIZE = 64;
+
+    /**
+     * Longest peer name kept, in bytes of UTF-8. Longer names are truncated.
+     */
+    public static final int MAX_PEER_NAME_LENGTH = 52;
+
+    static final int MAGIC = 0x52464c53; // "RFLS"
+    static final short VERSION = 1;
+
+    static final byte KIND_PING = 1;
+    static final byte KIND_PEER = 2;
+
+    // Offset of the checksum, covering all the bytes before it.
+    static final int CHECKSUM_OFFSET = RECORD_SIZE - 4;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Records mapped at a time. The file grows by this much whenever the mapping is full.
+    private static final int CHUNK_RECORDS = 4096;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final byte[] scratch = new byte[RECORD_SIZE];
+    private final ByteBuffer record = ByteBuffer.wrap(scratch);
+    private final CRC32 crc = new CRC32();
+    private final Map<Object, Integer> peers = new HashMap<>();
+
+    private MappedByteBuffer mapping;
+    // Offset of the mapping in the file.
+    private long mappingOffset;
+    private boolean closed;
+
+    private SessionLog(RandomAccessFile file) {
+        this.file = file;
+        this.channel = file.getChannel();
+    }
+
+    /**
+     * Creates a log, replacing any file already there.
+     *
+     * @param path            file to write
+     * @param startWallMillis {@link System#currentTimeMillis()} when the session started
+     * @param startNanos      {@link System#nanoTime()} at the same moment, which the times of
+     *                        the records are relative to
+     * @return the log, ready to append to
+     * @throws IOException The file couldn't be created or mapped.
+     */
+    public static SessionLog create(File path, long startWallMillis, long startNanos)
+            throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        SessionLog log = new SessionLog(file);
+        try {
+            file.setLength(0);
+            log.map(0);
+            log.record.clear();
+            log.record.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_SIZE)
+                    .putLong(startWallMillis).putLong(startNanos);
+            log.write();
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        return log;
+    }
+
+    /**
+     * Recovers a log left behind by an earlier session, trimming off anything after the last
+     * intact record, and totals what happened to its pings.
+     *
+     * @param path file written by a {@link SessionLog}
+     * @return totals of the session's pings
+     * @throws IOException The file couldn't be read or trimmed, or isn't a session log.
+     */
+    public static PingSummary recover(File path) throws IOException {
+        PingSummary summary = new PingSummary();
+        SessionEntry entry = new SessionEntry();
+        long validLength;
+        SessionReader reader = new SessionReader(path);
+        try {
+            while (reader.next(entry)) {
+                // Each entry is one change of status, so count the change rather than the ping.
+                PingRecord<String> ping = PingRecord.sent(entry.getSequence(), entry.getPeer(),
+                        entry.getSendNanos());
+                switch (entry.getStatus()) {
+                    case SENT:
+                        summary.add(ping);
+                        break;
+                    case LOST:
+                        summary.addLateLoss();
+                        break;
+                    case LATE:
+                        ping.markLost();
+                        ping.markReceived(entry.getReceiveNanos());
+                        summary.addLateReceipt(ping);
+                        break;
+                    case RECEIVED:
+                        ping.markReceived(entry.getReceiveNanos());
+                        summary.addLateReceipt(ping);
+                        break;
+                    case ECHOED:
+                    default:
+                        summary.add(PingRecord.echoed(entry.getSequence(), entry.getPeer()));
+                        break;
+                }
+            }
+            validLength = reader.getValidLength();
+        } finally {
+            reader.close();
+        }
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            if (file.length() > validLength) {
+                file.setLength(validLength);
+            }
+        } finally {
+            file.close();
+        }
+        return summary;
+    }
+
+    /**
+     * Appends the current status of a ping.
+     *
+     * @param ping record of the ping
+     * @throws IOException The file couldn't be grown.
+     */
+    public void append(PingRecord<?> ping) throws IOException {
+        append(ping.getPeer(), ping.getStatus(), ping.getSequence(), ping.getSendNanos(),
+                ping.getRttNanos());
+    }
+
+    /**
+     * Appends a status of a ping copied out earlier, for logging on another thread than the one
+     * updating the {@link PingRecord}.
+     *
+     * @param peer      peer of the ping
+     * @param status    status to log
+     * @param sequence  sequence number of the ping
+     * @param sendNanos time the ping was sent, or -1 for an echoed ping
+     * @param rttNanos  round trip time, or -1 if the echo hadn't arrived
+     * @throws IOException The file couldn't be grown.
+     */
+    public void append(Object peer, PingRecord.Status status, long sequence, long sendNanos,
+                       long rttNanos) throws IOException {
+        int peerIndex = indexOf(peer);
+        record.clear();
+        record.put(KIND_PING).put((byte) status.ordinal()).putShort((short) 0)
+                .putInt(peerIndex).putLong(sequence).putLong(sendNanos)
+                .putLong(rttNanos < 0 ? -1 : sendNanos + rttNanos);
+        write();
+    }
+
+    /**
+     * Waits until everything appended so far is on disk.
+     */
+    public void sync() {
+        if (!closed) {
+            mapping.force();
+        }
+    }
+
+    /**
+     * Syncs the log and trims the file to the records written.
+     *
+     * @throws IOException The file couldn't be trimmed or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            mapping.force();
+            long length = mappingOffset + mapping.position();
+            mapping = null;
+            channel.truncate(length);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Gets the index of a peer, writing its name the first time it appears.
+     *
+     * @param peer peer of a ping, which may be null
+     * @return index of the peer in this log
+     * @throws IOException The file couldn't be grown.
+     */
+    private int indexOf(Object peer) throws IOException {
+        Integer index = peers.get(peer);
+        if (index != null) {
+            return index;
+        }
+        int newIndex = peers.size();
+        byte[] name = String.valueOf(peer).getBytes(UTF_8);
+        int length = Math.min(name.length, MAX_PEER_NAME_LENGTH);
+        record.clear();
+        record.put(KIND_PEER).put((byte) length).putShort((short) 0).putInt(newIndex)
+                .put(name, 0, length);
+        write();
+        peers.put(peer, newIndex);
+        return newIndex;
+    }
+
+    /**
+     * Copies the scratch record into the mapping, checksum last.
+     *
+     * @throws IOException The file couldn't be grown.
+     */
+    private void write() throws IOException {
+        if (closed) {
+            throw new IOException("Session log is closed.");
+        }
+        // Whatever the record didn't use is left over from the previous one, so clear it.
+        for (int i = record.position(); i < CHECKSUM_OFFSET; i++) {
+            scratch[i] = 0;
+        }
+        crc.reset();
+        crc.update(scratch, 0, CHECKSUM_OFFSET);
+        if (!mapping.hasRemaining()) {
+            map(mappingOffset + mapping.capacity());
+        }
+        int start = mapping.position();
+        mapping.put(scratch, 0, CHECKSUM_OFFSET);
+        mapping.putInt(start + CHECKSUM_OFFSET, (int) crc.getValue());
+        mapping.position(start + RECORD_SIZE);
+    }
+
+    /**
+     * Maps the next chunk of the file, growing it.
+     *
+     * @param offset start of the chunk
+     * @throws IOException The file couldn't be grown or mapped.
+     */
+    private void map(long offset) throws IOException {
+        mapping = channel.map(FileChannel.MapMode.READ_WRITE, offset,
+                (long) CHUNK_RECORDS * RECORD_SIZE);
+        mappingOffset = offset;
+    }
+}
@@ -0,0 +1,154 @@
+package io.left.reflect.session;
+
+import io.left.reflect.ping.PingRecord;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reads a {@link SessionLog} back, one status change at a time.
+ *
+ * Reading stops at the end of the file or at the first record that is incomplete or fails its
+ * checksum, which is where a session cut short by a crash ends.
+ */
+public final class SessionReader implements Closeable {
+    private static final PingRecord.Status[] STATUSES = PingRecord.Status.values();
+
+    private final InputStream in;
+    private final byte[] scratch = new byte[SessionLog.RECORD_SIZE];
+    private final ByteBuffer record = ByteBuffer.wrap(scratch);
+    private final CRC32 crc = new CRC32();
+    private final List<String> peers = new ArrayList<>();
+
+    private final long startWallMillis;
+    private final long startNanos;
+    private long validLength;
+    private boolean ended;
+
+    /**
+     * Opens a log and reads its header.
+     *
+     * @param path file written by a {@link SessionLog}
+     * @throws IOException The file couldn't be read, or isn't a session log.
+     */
+    public SessionReader(File path) throws IOException {
+        in = new BufferedInputStream(new FileInputStream(path));
+        try {
+            if (!readRecord()) {
+                throw new IOException(path + " has no session header.");
+            }
+            if (record.getInt() != SessionLog.MAGIC || record.getShort() != SessionLog.VERSION
+                    || record.getShort() != SessionLog.RECORD_SIZE) {
+                throw new IOException(path + " isn't a version " + SessionLog.VERSION
+                        + " session log.");
+            }
+            startWallMillis = record.getLong();
+            startNanos = record.getLong();
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next status change.
+     *
+     * @param entry entry to populate
+     * @return false if there are no more valid records
+     * @throws IOException The file couldn't be read.
+     */
+    public boolean next(SessionEntry entry) throws IOException {
+        while (readRecord()) {
+            byte kind = record.get();
+            if (kind == SessionLog.KIND_PEER) {
+                int length = record.get();
+                record.getShort();
+                record.getInt();
+                peers.add(new String(scratch, record.position(), length, SessionLog.UTF_8));
+            } else if (kind == SessionLog.KIND_PING) {
+                int status = record.get();
+                record.getShort();
+                int peer = record.getInt();
+                if (status < 0 || status >= STATUSES.length || peer < 0 || peer >= peers.size()) {
+                    // Written by a later version, or damaged in a way the checksum missed.
+                    ended = true;
+                    return false;
+                }
+                entry.set(record.getLong(), peers.get(peer), STATUSES[status], record.getLong(),
+                        record.getLong());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wall clock time when the session started.
+     *
+     * @return {@link System#currentTimeMillis()} at the start of the session
+     */
+    public long getStartWallMillis() {
+        return startWallMillis;
+    }
+
+    /**
+     * Monotonic time when the session started, which the times of its entries are relative to.
+     *
+     * @return {@link System#nanoTime()} at the start of the session
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Length of the part of the file read so far that is intact.
+     *
+     * @return bytes of the header and the valid records read
+     */
+    public long getValidLength() {
+        return validLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads a whole record into the scratch buffer and checks it.
+     *
+     * @return false at the end of the file or at the first invalid record
+     * @throws IOException The file couldn't be read.
+     */
+    private boolean readRecord() throws IOException {
+        if (ended) {
+            return false;
+        }
+        int read = 0;
+        while (read < scratch.length) {
+            int count = in.read(scratch, read, scratch.length - read);
+            if (count < 0) {
+                ended = true;
+                return false;
+            }
+            read += count;
+        }
+        crc.reset();
+        crc.update(scratch, 0, SessionLog.CHECKSUM_OFFSET);
+        record.clear();
+        if (record.getInt(SessionLog.CHECKSUM_OFFSET) != (int) crc.getValue()) {
+            ended = true;
+            return false;
+        }
+        validLength += scratch.length;
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+package io.left.reflect.session;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Directory holding the {@link SessionLog}s of the most recent sessions, one file each.
+ */
+public final class SessionStore {
+    /**
+     * Extension of session log files.
+     */
+    public static final String EXTENSION = ".rlog";
+
+    private static final String PREFIX = "session-";
+
+    private final File directory;
+    private final int keep;
+
+    /**
+     * Creates a store.
+     *
+     * @param directory directory the logs are kept in, created when the first session starts
+     * @param keep      number of sessions kept, including the current one
+     */
+    public SessionStore(File directory, int keep) {
+        if (keep < 1) {
+            throw new IllegalArgumentException("At least one session must be kept.");
+        }
+        this.directory = directory;
+        this.keep = keep;
+    }
+
+    /**
+     * Lists the logs in the store.
+     *
+     * @return log files, oldest first
+     */
+    public List<File> list() {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                String name = file.getName();
+                return file.isFile() && name.startsWith(PREFIX) && name.endsWith(EXTENSION);
+            }
+        });
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        // Names hold the zero-padded start time, so they sort in the order sessions started.
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    /**
+     * Starts logging a new session, deleting the oldest ones to make room for it.
+     *
+     * @param startWallMillis {@link System#currentTimeMillis()} when the session started
+     * @param startNanos      {@link System#nanoTime()} at the same moment
+     * @return log of the new session
+     * @throws IOException The directory or the log couldn't be created.
+     */
+    public SessionLog start(long startWallMillis, long startNanos) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Couldn't create " + directory + ".");
+        }
+        List<File> files = list();
+        for (int i = 0; i <= files.size() - keep; i++) {
+            if (!files.get(i).delete()) {
+                throw new IOException("Couldn't delete " + files.get(i) + ".");
+            }
+        }
+        File file = new File(directory,
+                PREFIX + String.format(Locale.US, "%013d", startWallMillis) + EXTENSION);
+        return SessionLog.create(file, startWallMillis, startNanos);
+    }
+}
@@ -0,0 +1,78 @@
+package io.left.reflect.sim;
+
+import java.util.Random;
+
+/**
+ * Distribution of the time a payload takes to cross a single hop of a {@link SimulatedMesh}.
+ */
+public abstract class LatencyModel {
+    /**
+     * Samples the latency of one hop.
+     *
+     * @param random source of randomness, owned by the mesh
+     * @return latency in nanoseconds, never negative
+     */
+    public abstract long sampleNanos(Random random);
+
+    /**
+     * Every hop takes exactly the same time.
+     *
+     * @param nanos latency in nanoseconds
+     * @return the model
+     */
+    public static LatencyModel constant(long nanos) {
+        checkNotNegative(nanos);
+        return new LatencyModel() {
+            @Override
+            public long sampleNanos(Random random) {
+                return nanos;
+            }
+        };
+    }
+
+    /**
+     * Hops take any time between two bounds, with equal probability.
+     *
+     * @param minNanos shortest latency in nanoseconds
+     * @param maxNanos longest latency in nanoseconds
+     * @return the model
+     */
+    public static LatencyModel uniform(long minNanos, long maxNanos) {
+        checkNotNegative(minNanos);
+        if (maxNanos < minNanos) {
+            throw new IllegalArgumentException("Maximum latency is below the minimum.");
+        }
+        return new LatencyModel() {
+            @Override
+            public long sampleNanos(Random random) {
+                return minNanos + (long) (random.nextDouble() * (maxNanos - minNanos));
+            }
+        };
+    }
+
+    /**
+     * Hops take a fixed time plus an exponentially distributed delay, the usual shape of queueing
+     * on a busy radio link: most hops are fast, with a long tail of slow ones.
+     *
+     * @param baseNanos  fixed part of the latency in nanoseconds
+     * @param extraNanos mean of the exponential part in nanoseconds
+     * @return the model
+     */
+    public static LatencyModel exponential(long baseNanos, long extraNanos) {
+        checkNotNegative(baseNanos);
+        checkNotNegative(extraNanos);
+        return new LatencyModel() {
+            @Override
+            public long sampleNanos(Random random) {
+                // 1 - nextDouble() is in (0, 1], so the logarithm is finite.
+                return baseNanos + (long) (-Math.log(1 - random.nextDouble()) * extraNanos);
+            }
+        };
+    }
+
+    private static void checkNotNegative(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Latency must not be negative.");
+        }
+    }
+}
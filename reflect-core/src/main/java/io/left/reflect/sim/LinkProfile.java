@@ -0,0 +1,124 @@
+package io.left.reflect.sim;
+
+/**
+ * How a virtual peer is connected to the rest of a {@link SimulatedMesh}.
+ *
+ * A peer reaches the mesh through a route of one or more hops. A payload crosses the sender's
+ * route and then the recipient's, so two peers three hops out are six hops apart. Every hop adds
+ * a latency sampled from the same {@link LatencyModel} and may drop the payload. The peer's own
+ * radio is limited to a number of bytes per second in each direction, and the peer can be made
+ * to drop off the mesh and rejoin at random.
+ *
+ * Setters return the profile so they can be chained. Several peers can share a profile, but it
+ * shouldn't be changed once a peer has joined with it.
+ */
+public final class LinkProfile {
+    /**
+     * Bandwidth meaning the radio never holds payloads back.
+     */
+    public static final long UNLIMITED = 0;
+
+    private int hops = 1;
+    private LatencyModel hopLatency = LatencyModel.constant(0);
+    private double hopLossRate;
+    private long bytesPerSecond = UNLIMITED;
+    private long meanUpNanos;
+    private long meanDownNanos;
+
+    /**
+     * Sets the number of hops between the peer and the rest of the mesh.
+     *
+     * @param hops hop count, 0 for a peer that is the core of the mesh
+     * @return this profile
+     */
+    public LinkProfile setHops(int hops) {
+        if (hops < 0) {
+            throw new IllegalArgumentException("Hop count must not be negative.");
+        }
+        this.hops = hops;
+        return this;
+    }
+
+    /**
+     * Sets the latency of each hop.
+     *
+     * @param hopLatency distribution of the latency of one hop
+     * @return this profile
+     */
+    public LinkProfile setHopLatency(LatencyModel hopLatency) {
+        if (hopLatency == null) {
+            throw new IllegalArgumentException("Latency model must not be null.");
+        }
+        this.hopLatency = hopLatency;
+        return this;
+    }
+
+    /**
+     * Sets the probability of each hop dropping a payload.
+     *
+     * @param hopLossRate probability between 0 and 1
+     * @return this profile
+     */
+    public LinkProfile setHopLossRate(double hopLossRate) {
+        if (!(hopLossRate >= 0 && hopLossRate <= 1)) {
+            throw new IllegalArgumentException("Loss rate must be between 0 and 1.");
+        }
+        this.hopLossRate = hopLossRate;
+        return this;
+    }
+
+    /**
+     * Caps the peer's radio, in each direction. Payloads queue behind each other once it is busy.
+     *
+     * @param bytesPerSecond bandwidth, or {@link #UNLIMITED}
+     * @return this profile
+     */
+    public LinkProfile setBytesPerSecond(long bytesPerSecond) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("Bandwidth must not be negative.");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Makes the peer leave and rejoin the mesh at random, staying up and down for exponentially
+     * distributed times.
+     *
+     * @param meanUpNanos   mean time the peer stays reachable, or 0 for a peer that never leaves
+     * @param meanDownNanos mean time the peer stays unreachable
+     * @return this profile
+     */
+    public LinkProfile setChurn(long meanUpNanos, long meanDownNanos) {
+        if (meanUpNanos < 0 || meanDownNanos < 0) {
+            throw new IllegalArgumentException("Churn times must not be negative.");
+        }
+        this.meanUpNanos = meanUpNanos;
+        this.meanDownNanos = meanDownNanos;
+        return this;
+    }
+
+    public int getHops() {
+        return hops;
+    }
+
+    public LatencyModel getHopLatency() {
+        return hopLatency;
+    }
+
+    public double getHopLossRate() {
+        return hopLossRate;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public long getMeanUpNanos() {
+        return meanUpNanos;
+    }
+
+    public long getMeanDownNanos() {
+        return meanDownNanos;
+    }
+}
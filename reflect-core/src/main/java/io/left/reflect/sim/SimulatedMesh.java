@@ -0,0 +1,293 @@
+package io.left.reflect.sim;
+
+import io.left.reflect.transport.MeshTransport;
+import io.left.reflect.transport.TransportException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process mesh of virtual peers, for running the ping engine headless and at scale.
+ *
+ * Each peer {@link #join joins} with a {@link LinkProfile} and gets its own {@link MeshTransport}.
+ * Payloads sent through it are delayed, dropped and queued as the profiles of the sender and the
+ * recipient dictate, then delivered on the scheduler's thread. Peers leave and rejoin the mesh
+ * as their profiles' churn dictates, or when {@link #setReachable} is called, and every other
+ * peer's {@link MeshTransport.PeerListener} is told.
+ *
+ * All randomness comes from a single seeded generator, so a run can be repeated, although the
+ * interleaving of threads sending at the same time can still differ.
+ *
+ * @param <P> type identifying peers
+ */
+public final class SimulatedMesh<P> {
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Guarded by this.
+    private final Random random;
+    private final Map<P, Node> nodes = new HashMap<>();
+    private boolean shutdown;
+
+    /**
+     * Creates an empty mesh.
+     *
+     * @param scheduler scheduler payloads are delivered and peers churned on
+     * @param seed      seed of the mesh's randomness
+     */
+    public SimulatedMesh(ScheduledExecutorService scheduler, long seed) {
+        this.scheduler = scheduler;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Adds a reachable peer to the mesh.
+     *
+     * @param peer    the new peer
+     * @param profile how the peer is connected to the mesh
+     * @return transport sending and receiving as the peer
+     */
+    public MeshTransport<P> join(P peer, LinkProfile profile) {
+        Node node = new Node(peer, profile);
+        synchronized (this) {
+            if (nodes.containsKey(peer)) {
+                throw new IllegalArgumentException("Peer " + peer + " has already joined.");
+            }
+            nodes.put(peer, node);
+        }
+        setReachable(peer, true);
+        return node;
+    }
+
+    /**
+     * Makes a peer leave or rejoin the mesh. Payloads still on their way to or from a peer that
+     * leaves are lost.
+     *
+     * @param peer      peer to change
+     * @param reachable true to rejoin, false to leave
+     */
+    public void setReachable(P peer, boolean reachable) {
+        List<Node> others = new ArrayList<>();
+        Node node;
+        synchronized (this) {
+            node = nodes.get(peer);
+            if (node == null) {
+                throw new IllegalArgumentException("Peer " + peer + " hasn't joined.");
+            }
+            if (shutdown || node.reachable == reachable) {
+                return;
+            }
+            node.reachable = reachable;
+            node.epoch++;
+            for (Node other : nodes.values()) {
+                if (other != node && other.reachable) {
+                    others.add(other);
+                }
+            }
+            scheduleChurn(node);
+        }
+        // Tell both sides of every link that appeared or disappeared, outside the lock.
+        for (Node other : others) {
+            other.notifyPeerChanged(peer, reachable);
+            node.notifyPeerChanged(other.peer, reachable);
+        }
+    }
+
+    /**
+     * Stops the mesh. Payloads still on their way are dropped and every transport becomes
+     * disconnected. The scheduler is left to its owner.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+    }
+
+    /**
+     * Number of payloads that reached their recipient.
+     *
+     * @return delivered payloads
+     */
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    /**
+     * Number of payloads lost on a hop or because a peer left the mesh.
+     *
+     * @return dropped payloads
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Routes a payload across the mesh and schedules its delivery.
+     *
+     * @param from    sender
+     * @param peer    recipient
+     * @param payload data to send
+     * @throws TransportException The mesh is shut down, or either peer is unreachable.
+     */
+    private void route(Node from, P peer, byte[] payload) throws TransportException {
+        long nowNanos = System.nanoTime();
+        Node to;
+        long arrivalNanos;
+        long fromEpoch;
+        long toEpoch;
+        synchronized (this) {
+            if (shutdown) {
+                throw new TransportException.TransportDisconnectedException("Mesh shut down.");
+            }
+            to = nodes.get(peer);
+            if (!from.reachable || to == null || !to.reachable) {
+                throw new TransportException("No route to " + peer + ".");
+            }
+            long latencyNanos = 0;
+            int hops = from.profile.getHops() + to.profile.getHops();
+            for (int i = 0; i < hops; i++) {
+                LinkProfile hop = i < from.profile.getHops() ? from.profile : to.profile;
+                if (random.nextDouble() < hop.getHopLossRate()) {
+                    // Lost on the way, which the sender has no way of knowing.
+                    dropped.incrementAndGet();
+                    return;
+                }
+                latencyNanos += hop.getHopLatency().sampleNanos(random);
+            }
+            long departureNanos = from.uplink.transmit(nowNanos, payload.length);
+            arrivalNanos = to.downlink.transmit(departureNanos + latencyNanos, payload.length);
+            fromEpoch = from.epoch;
+            toEpoch = to.epoch;
+        }
+        // The sender may reuse its buffer once the payload is on the air.
+        byte[] copy = payload.clone();
+        scheduler.schedule(() -> deliver(from, fromEpoch, to, toEpoch, copy),
+                arrivalNanos - nowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Hands a payload to its recipient, unless either peer left the mesh since it was sent.
+     *
+     * @param from      sender
+     * @param fromEpoch sender's epoch when the payload was sent
+     * @param to        recipient
+     * @param toEpoch   recipient's epoch when the payload was sent
+     * @param payload   data sent
+     */
+    private void deliver(Node from, long fromEpoch, Node to, long toEpoch, byte[] payload) {
+        synchronized (this) {
+            if (shutdown || from.epoch != fromEpoch || to.epoch != toEpoch) {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+        delivered.incrementAndGet();
+        MeshTransport.Receiver<P> receiver = to.receiver;
+        if (receiver != null) {
+            receiver.onReceive(from.peer, payload, System.nanoTime());
+        }
+    }
+
+    /**
+     * Schedules a churning peer's next change, if its profile churns.
+     *
+     * @param node peer that just joined or left
+     */
+    private void scheduleChurn(Node node) {
+        if (node.profile.getMeanUpNanos() == 0) {
+            return;
+        }
+        long meanNanos = node.reachable
+                ? node.profile.getMeanUpNanos() : node.profile.getMeanDownNanos();
+        long delayNanos = (long) (-Math.log(1 - random.nextDouble()) * meanNanos);
+        boolean next = !node.reachable;
+        long epoch = node.epoch;
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                if (node.epoch != epoch) {
+                    // Changed by hand in the meantime, which scheduled its own next change.
+                    return;
+                }
+            }
+            setReachable(node.peer, next);
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * A peer's radio in one direction, serializing payloads when its bandwidth is capped.
+     */
+    private static final class Radio {
+        private final long bytesPerSecond;
+        // Guarded by the mesh.
+        private long freeNanos;
+
+        Radio(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        /**
+         * Puts a payload on the air.
+         *
+         * @param readyNanos when the payload is ready to go
+         * @param bytes      payload size
+         * @return when the last byte is through
+         */
+        long transmit(long readyNanos, int bytes) {
+            if (bytesPerSecond == LinkProfile.UNLIMITED) {
+                return readyNanos;
+            }
+            long startNanos = Math.max(readyNanos, freeNanos);
+            freeNanos = startNanos + bytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+            return freeNanos;
+        }
+    }
+
+    /**
+     * A virtual peer, and the transport sending as it.
+     */
+    private final class Node implements MeshTransport<P> {
+        private final P peer;
+        private final LinkProfile profile;
+        private final Radio uplink;
+        private final Radio downlink;
+        private volatile Receiver<P> receiver;
+        private volatile PeerListener<P> peerListener;
+        // Guarded by the mesh. The epoch changes whenever the peer joins or leaves.
+        private boolean reachable;
+        private long epoch;
+
+        Node(P peer, LinkProfile profile) {
+            this.peer = peer;
+            this.profile = profile;
+            this.uplink = new Radio(profile.getBytesPerSecond());
+            this.downlink = new Radio(profile.getBytesPerSecond());
+        }
+
+        @Override
+        public void send(P peer, byte[] payload) throws TransportException {
+            route(this, peer, payload);
+        }
+
+        @Override
+        public void setReceiver(Receiver<P> receiver) {
+            this.receiver = receiver;
+        }
+
+        @Override
+        public void setPeerListener(PeerListener<P> listener) {
+            this.peerListener = listener;
+        }
+
+        void notifyPeerChanged(P other, boolean reachable) {
+            PeerListener<P> listener = peerListener;
+            if (listener != null) {
+                listener.onPeerChanged(other, reachable);
+            }
+        }
+    }
+}
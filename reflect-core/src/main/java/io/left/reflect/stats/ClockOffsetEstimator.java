@@ -0,0 +1,217 @@
+package io.left.reflect.stats;
+
+import java.util.Arrays;
+
+/**
+ * Estimates the offset and skew of a peer's clock relative to this device's from the timestamps of
+ * echoed pings, NTP-style, to split round trips into their forward and reverse one-way delays.
+ *
+ * Each timed echo gives four timestamps: t1 when this device sent the ping, t2 and t3 when the
+ * peer received it and sent the echo, on the peer's clock, and t4 when the echo arrived. As in NTP,
+ * they give an offset sample ((t2 - t1) + (t3 - t4)) / 2 and the delay (t4 - t1) - (t3 - t2) it was
+ * measured over. A sample can be off by up to half its delay, as queueing on either leg shifts it,
+ * so the estimator keeps the last samples in a ring and trusts only the quarter with the smallest
+ * delays, which were queued least. A line fitted through their offsets over time gives the skew
+ * between the two clocks' rates as its slope, and the offset at any time as its value.
+ *
+ * No timestamps can tell a fixed asymmetry of the path from a clock offset, so the fastest round
+ * trips are taken to have been as long each way. Queueing on one leg, and changes in either leg's
+ * delay, are measured exactly though, so a leg that congests or is rerouted shows in its own
+ * one-way delay.
+ *
+ * Both clocks may be monotonic clocks with unrelated origins, such as each device's
+ * {@link System#nanoTime()}. Not thread-safe.
+ */
+public final class ClockOffsetEstimator {
+    /**
+     * Number of samples kept by default.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    // Share of the kept samples, those with the smallest delays, the offset is fitted through.
+    private static final int FILTER_DIVISOR = 4;
+
+    // Ring of the last samples: when each round trip was halfway through on this device's clock,
+    // the time the ping took to reach the peer and the echo to come back, each measured across
+    // the two clocks, and so including the offset.
+    private final long[] midNanos;
+    private final long[] forwardNanos;
+    private final long[] reverseNanos;
+    private int next;
+    private int count;
+
+    // Scratch space for choosing the samples with the smallest delays.
+    private final long[] sortedDelays;
+
+    // Line fitted through the offsets, recomputed after new samples, relative to the oldest
+    // sample's midpoint and offset.
+    private boolean dirty;
+    private long originNanos;
+    private long originOffsetTwiceNanos;
+    private double interceptNanos;
+    private double skew;
+
+    /**
+     * Creates an estimator keeping {@link #DEFAULT_CAPACITY} samples.
+     */
+    public ClockOffsetEstimator() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an estimator.
+     *
+     * @param capacity number of most recent samples the estimate is based on
+     */
+    public ClockOffsetEstimator(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        midNanos = new long[capacity];
+        forwardNanos = new long[capacity];
+        reverseNanos = new long[capacity];
+        sortedDelays = new long[capacity];
+    }
+
+    /**
+     * Adds the timestamps of an echoed ping. Echoes whose timestamps run backwards are ignored.
+     *
+     * @param sendNanos             this device's clock when the ping was sent
+     * @param responderReceiveNanos the peer's clock when the ping arrived
+     * @param responderSendNanos    the peer's clock when the echo was sent
+     * @param receiveNanos          this device's clock when the echo arrived
+     */
+    public void addSample(long sendNanos, long responderReceiveNanos, long responderSendNanos,
+                          long receiveNanos) {
+        if (receiveNanos - sendNanos < 0 || responderSendNanos - responderReceiveNanos < 0) {
+            return;
+        }
+        midNanos[next] = sendNanos + (receiveNanos - sendNanos) / 2;
+        forwardNanos[next] = responderReceiveNanos - sendNanos;
+        reverseNanos[next] = receiveNanos - responderSendNanos;
+        next = (next + 1) % midNanos.length;
+        if (count < midNanos.length) {
+            count++;
+        }
+        dirty = true;
+    }
+
+    public int getSampleCount() {
+        return count;
+    }
+
+    /**
+     * Offset of the peer's clock at a given time.
+     *
+     * @param localNanos this device's clock
+     * @return the peer's clock minus this device's, or NaN before the first sample
+     */
+    public double getOffsetNanos(long localNanos) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        fit();
+        return offsetAt(localNanos);
+    }
+
+    /**
+     * Rate at which the peer's clock drifts away from this device's.
+     *
+     * @return nanoseconds gained by the peer's clock per nanosecond, so 1e-6 is one part per
+     *         million, or NaN before the first sample
+     */
+    public double getSkew() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        fit();
+        return skew;
+    }
+
+    /**
+     * Mean time the kept pings took to reach the peer.
+     *
+     * @return forward one-way delay in nanoseconds, or NaN before the first sample
+     */
+    public double getForwardDelayNanos() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        fit();
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            total += forwardNanos[i] - offsetAt(midNanos[i]);
+        }
+        return total / count;
+    }
+
+    /**
+     * Mean time the echoes of the kept pings took to come back.
+     *
+     * @return reverse one-way delay in nanoseconds, or NaN before the first sample
+     */
+    public double getReverseDelayNanos() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        fit();
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            total += reverseNanos[i] + offsetAt(midNanos[i]);
+        }
+        return total / count;
+    }
+
+    private double offsetAt(long localNanos) {
+        return originOffsetTwiceNanos / 2.0 + interceptNanos + skew * (localNanos - originNanos);
+    }
+
+    /**
+     * Fits a line through the offsets of the samples with the smallest delays, by least squares.
+     */
+    private void fit() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+
+        for (int i = 0; i < count; i++) {
+            sortedDelays[i] = forwardNanos[i] + reverseNanos[i];
+        }
+        Arrays.sort(sortedDelays, 0, count);
+        long maxDelay = sortedDelays[Math.max(Math.min(count, 2), count / FILTER_DIVISOR) - 1];
+
+        // Work relative to the oldest sample, so the sums keep their precision.
+        int oldest = count < midNanos.length ? 0 : next;
+        originNanos = midNanos[oldest];
+        originOffsetTwiceNanos = forwardNanos[oldest] - reverseNanos[oldest];
+        int used = 0;
+        double sumX = 0;
+        double sumY = 0;
+        for (int i = 0; i < count; i++) {
+            if (forwardNanos[i] + reverseNanos[i] <= maxDelay) {
+                used++;
+                sumX += midNanos[i] - originNanos;
+                sumY += relativeOffset(i);
+            }
+        }
+        double meanX = sumX / used;
+        double meanY = sumY / used;
+        double sumXx = 0;
+        double sumXy = 0;
+        for (int i = 0; i < count; i++) {
+            if (forwardNanos[i] + reverseNanos[i] <= maxDelay) {
+                double x = midNanos[i] - originNanos - meanX;
+                sumXx += x * x;
+                sumXy += x * (relativeOffset(i) - meanY);
+            }
+        }
+        skew = sumXx > 0 ? sumXy / sumXx : 0;
+        interceptNanos = meanY - skew * meanX;
+    }
+
+    // Offset of a sample, relative to the oldest sample's.
+    private double relativeOffset(int index) {
+        return (forwardNanos[index] - reverseNanos[index] - originOffsetTwiceNanos) / 2.0;
+    }
+}
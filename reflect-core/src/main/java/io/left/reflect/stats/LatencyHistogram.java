@@ -0,0 +1,182 @@
+package io.left.reflect.stats;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-memory histogram of latencies, with a bounded relative error at every scale.
+ *
+ * Values are filed log-linearly, like HdrHistogram: the range is split into buckets covering a
+ * power of two each, and every bucket is split into the same number of linear sub-buckets. A
+ * sub-bucket therefore never spans more than a set fraction of the values it holds, so a 2 ms and a
+ * 2 s round trip are both reported to within that fraction. All memory is allocated up front, and
+ * recording a value is a couple of shifts and an array increment.
+ *
+ * Min, max and mean are exact; percentiles are precise to the resolution of their sub-bucket.
+ * Values above the highest trackable value are counted as that value.
+ *
+ * Not thread-safe.
+ */
+public final class LatencyHistogram {
+    /**
+     * Smallest latency told apart from zero, in nanoseconds.
+     */
+    public static final long LOWEST_DISCERNIBLE_NANOS = 1000;
+
+    private final long highestTrackableNanos;
+
+    // Values below 2^unitMagnitude fall in the first sub-bucket.
+    private final int unitMagnitude;
+    // Each bucket past the first holds subBucketHalfCount sub-buckets.
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final long subBucketMask;
+
+    private final long[] counts;
+
+    private long totalCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * Creates a histogram.
+     *
+     * @param highestTrackableNanos largest latency recorded as is
+     * @param significantDigits     number of significant decimal digits kept, between 1 and 4
+     */
+    public LatencyHistogram(long highestTrackableNanos, int significantDigits) {
+        if (significantDigits < 1 || significantDigits > 4) {
+            throw new IllegalArgumentException("Significant digits must be between 1 and 4.");
+        }
+        if (highestTrackableNanos < 2 * LOWEST_DISCERNIBLE_NANOS
+                || highestTrackableNanos > Long.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Highest trackable value is out of range.");
+        }
+        this.highestTrackableNanos = highestTrackableNanos;
+
+        // Enough sub-buckets per bucket to tell apart values differing in the last digit kept.
+        long largestSingleUnitResolution = 2 * pow10(significantDigits);
+        int subBucketCountMagnitude =
+                64 - Long.numberOfLeadingZeros(largestSingleUnitResolution - 1);
+        unitMagnitude = 63 - Long.numberOfLeadingZeros(LOWEST_DISCERNIBLE_NANOS);
+        subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+        int subBucketCount = 1 << subBucketCountMagnitude;
+        subBucketHalfCount = subBucketCount / 2;
+        subBucketMask = ((long) subBucketCount - 1) << unitMagnitude;
+
+        // Add buckets, each doubling the range, until the highest value is covered.
+        long smallestUntrackable = (long) subBucketCount << unitMagnitude;
+        int bucketCount = 1;
+        while (smallestUntrackable <= highestTrackableNanos) {
+            smallestUntrackable <<= 1;
+            bucketCount++;
+        }
+        counts = new long[(bucketCount + 1) * subBucketHalfCount];
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos latency in nanoseconds, negative values are counted as zero
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), highestTrackableNanos);
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Finds the latency below or at which a share of the recorded latencies fall.
+     *
+     * @param percentile share of the latencies, between 0 and 100
+     * @return latency in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double share = Math.min(Math.max(percentile, 0), 100) / 100;
+        long target = Math.max(1, (long) Math.ceil(share * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                // Report the top of the sub-bucket, but never beyond what was recorded.
+                return Math.max(min, Math.min(max, highestEquivalentValue(i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Forgets every recorded latency.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Smallest recorded latency.
+     *
+     * @return latency in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long getMin() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    /**
+     * Largest recorded latency.
+     *
+     * @return latency in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Mean recorded latency.
+     *
+     * @return latency in nanoseconds, or 0 if nothing has been recorded
+     */
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    private int indexOf(long value) {
+        int bucketIndex = 64 - Long.numberOfLeadingZeros(value | subBucketMask)
+                - (unitMagnitude + subBucketHalfCountMagnitude + 1);
+        int subBucketIndex = (int) (value >>> (bucketIndex + unitMagnitude));
+        return ((bucketIndex + 1) << subBucketHalfCountMagnitude)
+                + (subBucketIndex - subBucketHalfCount);
+    }
+
+    private long highestEquivalentValue(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        long lowest = (long) subBucketIndex << (bucketIndex + unitMagnitude);
+        return lowest + (1L << (bucketIndex + unitMagnitude)) - 1;
+    }
+
+    private static long pow10(int exponent) {
+        long value = 1;
+        for (int i = 0; i < exponent; i++) {
+            value *= 10;
+        }
+        return value;
+    }
+}
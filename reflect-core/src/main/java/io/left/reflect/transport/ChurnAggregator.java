@@ -0,0 +1,121 @@
+package io.left.reflect.transport;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collapses bursts of peers joining and leaving into their net effect, so a list of peers can be
+ * updated once per burst instead of once per event.
+ *
+ * Events are collected until {@link #drain(Listener)} is called, typically a short while after
+ * the first event of a burst. Only the last event of each peer counts: a peer that left and came
+ * back within the burst is simply reported as present. Peers are reported in the order they were
+ * first seen in the burst.
+ *
+ * Not thread-safe.
+ *
+ * @param <P> type identifying peers
+ */
+public final class ChurnAggregator<P> {
+    // Latest state of each peer seen since the last drain, and the peers in order of first event.
+    private final Map<P, Boolean> joined = new HashMap<>();
+    private final List<P> order = new ArrayList<>();
+
+    private long events;
+    private long coalesced;
+    private long batches;
+
+    /**
+     * Records that a peer joined.
+     *
+     * @param peer peer that joined
+     */
+    public void onJoined(P peer) {
+        record(peer, true);
+    }
+
+    /**
+     * Records that a peer left.
+     *
+     * @param peer peer that left
+     */
+    public void onLeft(P peer) {
+        record(peer, false);
+    }
+
+    private void record(P peer, boolean present) {
+        events++;
+        if (joined.put(peer, present) == null) {
+            order.add(peer);
+        } else {
+            coalesced++;
+        }
+    }
+
+    /**
+     * Checks whether events are waiting to be drained.
+     *
+     * @return true if no peer joined or left since the last drain
+     */
+    public boolean isEmpty() {
+        return order.isEmpty();
+    }
+
+    /**
+     * Reports the latest state of every peer that joined or left since the last drain, and starts
+     * a new burst.
+     *
+     * @param listener receives each peer's state, in order of its first event in the burst
+     */
+    public void drain(Listener<P> listener) {
+        if (order.isEmpty()) {
+            return;
+        }
+        batches++;
+        // Copy out first, so the listener may record new events.
+        List<P> peers = new ArrayList<>(order);
+        boolean[] present = new boolean[peers.size()];
+        for (int i = 0; i < present.length; i++) {
+            present[i] = joined.get(peers.get(i));
+        }
+        order.clear();
+        joined.clear();
+        for (int i = 0; i < present.length; i++) {
+            listener.onPeerChanged(peers.get(i), present[i]);
+        }
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    /**
+     * Number of events superseded by a later event of the same peer in the same burst.
+     *
+     * @return events that didn't need applying
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * Receives the net changes of a burst.
+     *
+     * @param <P> type identifying peers
+     */
+    public interface Listener<P> {
+        /**
+         * A peer joined or left during the burst.
+         *
+         * @param peer    peer whose state changed
+         * @param present true if the peer's last event was joining, false if leaving
+         */
+        void onPeerChanged(P peer, boolean present);
+    }
+}
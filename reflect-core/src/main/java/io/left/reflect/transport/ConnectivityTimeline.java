@@ -0,0 +1,145 @@
+package io.left.reflect.transport;
+
+/**
+ * History of a peer joining and leaving the mesh, to tell stable links from flapping ones.
+ *
+ * Only the last transitions are kept, in two fixed arrays, so a peer costs the same memory however
+ * long it has been seen. The statistics cover the time since the oldest transition kept: the share
+ * of it the peer was connected, how long its sessions lasted, and how often it dropped out.
+ * Repeated events in the same direction, such as a peer announced twice, are not transitions and
+ * are ignored.
+ *
+ * Times are in milliseconds of any monotonic clock. Not thread-safe.
+ */
+public final class ConnectivityTimeline {
+    /**
+     * Number of transitions kept by default.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static final double MILLIS_PER_HOUR = 3_600_000;
+
+    // Ring of the last transitions: when each happened, and whether the peer joined or left.
+    private final long[] times;
+    private final boolean[] joined;
+    private int next;
+    private int count;
+
+    /**
+     * Creates an empty timeline keeping {@link #DEFAULT_CAPACITY} transitions.
+     */
+    public ConnectivityTimeline() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty timeline.
+     *
+     * @param capacity number of most recent transitions kept
+     */
+    public ConnectivityTimeline(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("At least two transitions must be kept.");
+        }
+        times = new long[capacity];
+        joined = new boolean[capacity];
+    }
+
+    /**
+     * Records that the peer joined or left.
+     *
+     * @param up         true if the peer joined, false if it left
+     * @param timeMillis when it happened
+     */
+    public void record(boolean up, long timeMillis) {
+        if (count > 0 && joined[index(count - 1)] == up) {
+            return;
+        }
+        times[next] = timeMillis;
+        joined[next] = up;
+        next = (next + 1) % times.length;
+        if (count < times.length) {
+            count++;
+        }
+    }
+
+    /**
+     * Whether the peer is connected, as of the last transition.
+     *
+     * @return true if the peer last joined
+     */
+    public boolean isUp() {
+        return count > 0 && joined[index(count - 1)];
+    }
+
+    public int getTransitionCount() {
+        return count;
+    }
+
+    /**
+     * Share of the time since the oldest transition kept that the peer was connected.
+     *
+     * @param nowMillis current time
+     * @return uptime ratio between 0 and 1, or NaN before any time has passed
+     */
+    public double getUptimeRatio(long nowMillis) {
+        if (count == 0 || nowMillis <= times[index(0)]) {
+            return Double.NaN;
+        }
+        long upMillis = 0;
+        for (int i = 0; i < count; i++) {
+            if (joined[index(i)]) {
+                upMillis += endOf(i, nowMillis) - times[index(i)];
+            }
+        }
+        return (double) upMillis / (nowMillis - times[index(0)]);
+    }
+
+    /**
+     * Mean length of the peer's sessions kept, the current one included.
+     *
+     * @param nowMillis current time
+     * @return mean time from joining to leaving in milliseconds, or NaN if the peer never joined
+     */
+    public double getMeanSessionMillis(long nowMillis) {
+        long total = 0;
+        int sessions = 0;
+        for (int i = 0; i < count; i++) {
+            if (joined[index(i)]) {
+                total += endOf(i, nowMillis) - times[index(i)];
+                sessions++;
+            }
+        }
+        return sessions == 0 ? Double.NaN : (double) total / sessions;
+    }
+
+    /**
+     * Rate at which the peer dropped out over the time since the oldest transition kept. Over a
+     * short time, a single drop makes a high rate.
+     *
+     * @param nowMillis current time
+     * @return departures per hour, or NaN before any time has passed
+     */
+    public double getFlapsPerHour(long nowMillis) {
+        if (count == 0 || nowMillis <= times[index(0)]) {
+            return Double.NaN;
+        }
+        int departures = 0;
+        for (int i = 0; i < count; i++) {
+            if (!joined[index(i)]) {
+                departures++;
+            }
+        }
+        return departures * MILLIS_PER_HOUR / (nowMillis - times[index(0)]);
+    }
+
+    // Slot of the i-th oldest transition kept.
+    private int index(int i) {
+        return (next - count + i + times.length) % times.length;
+    }
+
+    // Time the state entered by the i-th oldest transition kept ended.
+    private long endOf(int i, long nowMillis) {
+        return i + 1 < count ? times[index(i + 1)] : nowMillis;
+    }
+}
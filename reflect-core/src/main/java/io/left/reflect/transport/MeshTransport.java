@@ -0,0 +1,68 @@
+package io.left.reflect.transport;
+
+/**
+ * Moves raw payloads between this device and its peers.
+ *
+ * This is all the ping engine needs from a mesh, so it can run over RightMesh on a handset or over
+ * a simulated network on a plain JVM.
+ *
+ * @param <P> type identifying peers
+ */
+public interface MeshTransport<P> {
+    /**
+     * Sends a payload to a peer. Delivery is best effort: returning normally only means the
+     * payload was handed to the mesh, after which the caller may reuse the payload array.
+     *
+     * @param peer    recipient
+     * @param payload data to send
+     * @throws TransportException.TransportDisconnectedException The transport is gone for good.
+     * @throws TransportException                                The payload couldn't be sent.
+     */
+    void send(P peer, byte[] payload) throws TransportException;
+
+    /**
+     * Sets the receiver of incoming payloads, replacing any previous one.
+     *
+     * @param receiver receiver, or null to drop incoming payloads
+     */
+    void setReceiver(Receiver<P> receiver);
+
+    /**
+     * Sets the listener notified when peers come and go, replacing any previous one.
+     *
+     * @param listener listener, or null to stop listening
+     */
+    void setPeerListener(PeerListener<P> listener);
+
+    /**
+     * Receives the payloads arriving from peers.
+     *
+     * @param <P> type identifying peers
+     */
+    interface Receiver<P> {
+        /**
+         * A payload has arrived. Called on a thread owned by the transport, so implementations
+         * must hand the work off rather than block.
+         *
+         * @param peer         sender
+         * @param payload      data received
+         * @param receiveNanos {@link System#nanoTime()} when the payload arrived
+         */
+        void onReceive(P peer, byte[] payload, long receiveNanos);
+    }
+
+    /**
+     * Notified when peers become reachable or unreachable.
+     *
+     * @param <P> type identifying peers
+     */
+    interface PeerListener<P> {
+        /**
+         * A peer has joined or left the mesh. Called on a thread owned by the transport.
+         *
+         * @param peer      peer that changed
+         * @param reachable true if payloads can now be sent to the peer
+         */
+        void onPeerChanged(P peer, boolean reachable);
+    }
+}
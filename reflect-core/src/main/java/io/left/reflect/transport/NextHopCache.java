@@ -0,0 +1,162 @@
+package io.left.reflect.transport;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the next hop towards each peer for a short while, so a mesh whose route lookups are
+ * expensive only has to look a route up once per burst of sends.
+ *
+ * Routes change as peers come and go. When a peer leaves, the routes to it and through it are
+ * forgotten; when a peer joins, only the route to it is, as a direct route to it may now exist.
+ * Other routes the new peer shortens are picked up once their entry expires. A route that fails
+ * a send should also be forgotten, so the next send looks it up again.
+ *
+ * A lookup can race with an invalidation: a route looked up just before a peer left would
+ * otherwise be cached after the invalidation meant to clear it, and trusted for a whole TTL. Every
+ * invalidation therefore bumps a generation, and a route is only remembered if no invalidation
+ * happened since the {@link #getGeneration() generation} read before looking it up.
+ *
+ * Safe to use from any thread: lookups never lock, and hits and misses are counted without
+ * contention on the entries.
+ *
+ * @param <P> type identifying peers
+ */
+public final class NextHopCache<P> {
+    private final long ttlNanos;
+    // Declared as a ConcurrentMap so remove(key, value) is its own, not Map's API 24 default.
+    private final ConcurrentMap<P, Entry<P>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // Number of invalidations so far.
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param ttlMillis time after which a route is looked up again
+     */
+    public NextHopCache(long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Gets the next hop towards a peer, counting a hit or a miss.
+     *
+     * @param target   peer to reach
+     * @param nowNanos {@link System#nanoTime()} now
+     * @return the next hop, or null if it isn't known or has expired
+     */
+    public P get(P target, long nowNanos) {
+        Entry<P> entry = entries.get(target);
+        if (entry == null || nowNanos - entry.expiresNanos >= 0) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.hop;
+    }
+
+    /**
+     * Remembers the next hop towards a peer, unless a route was invalidated while it was being
+     * looked up.
+     *
+     * @param target     peer to reach
+     * @param hop        next hop towards it, or null to remember nothing
+     * @param nowNanos   {@link System#nanoTime()} when the hop was looked up
+     * @param generation {@link #getGeneration()} before the hop was looked up
+     * @return true if the hop was remembered
+     */
+    public boolean put(P target, P hop, long nowNanos, long generation) {
+        if (hop == null || this.generation.get() != generation) {
+            return false;
+        }
+        Entry<P> entry = new Entry<>(hop, nowNanos + ttlNanos);
+        entries.put(target, entry);
+        // Invalidations bump the generation before removing, so one that missed the entry shows.
+        if (this.generation.get() != generation) {
+            entries.remove(target, entry);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the generation to pass to {@link #put(Object, Object, long, long)}, read before a
+     * hop is looked up.
+     *
+     * @return number of invalidations so far
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Forgets the route to a peer.
+     *
+     * @param target peer whose route to forget
+     */
+    public void invalidate(P target) {
+        generation.incrementAndGet();
+        entries.remove(target);
+    }
+
+    /**
+     * Forgets the routes to and through a peer that has left.
+     *
+     * @param peer peer that is no longer reachable
+     */
+    public void invalidateVia(P peer) {
+        generation.incrementAndGet();
+        entries.remove(peer);
+        Iterator<Entry<P>> routes = entries.values().iterator();
+        while (routes.hasNext()) {
+            if (routes.next().hop.equals(peer)) {
+                routes.remove();
+            }
+        }
+    }
+
+    /**
+     * Forgets every route.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Share of lookups answered from the cache.
+     *
+     * @return hit rate between 0 and 1, or NaN before the first lookup
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? Double.NaN : (double) hitCount / total;
+    }
+
+    /**
+     * A next hop and when it stops being trusted.
+     */
+    private static final class Entry<P> {
+        final P hop;
+        final long expiresNanos;
+
+        Entry(P hop, long expiresNanos) {
+            this.hop = hop;
+            this.expiresNanos = expiresNanos;
+        }
+    }
+}
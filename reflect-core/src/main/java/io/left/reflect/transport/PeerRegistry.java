@@ -0,0 +1,152 @@
+package io.left.reflect.transport;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Set of peers in the order they joined, indexed by peer, for lists that are looked up by peer
+ * far more often than by position.
+ *
+ * Membership, adding and removing are a hash lookup each. Positions stay in joining order, but
+ * removing a peer only leaves a hole in the list: the holes are closed in one pass the next time
+ * a position is asked for, so a burst of departures costs a single pass rather than one per peer.
+ *
+ * Not thread-safe.
+ *
+ * @param <P> type identifying peers
+ */
+public final class PeerRegistry<P> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Slot of each peer in the list.
+    private final Map<P, Slot> slots = new HashMap<>();
+    // Peers in joining order, with null holes left by removed peers up to the first free slot.
+    private Object[] peers = new Object[INITIAL_CAPACITY];
+    private int end;
+
+    /**
+     * Checks whether a peer is in the registry.
+     *
+     * @param peer peer to look for
+     * @return true if the peer has been added and not removed since
+     */
+    public boolean contains(P peer) {
+        return slots.containsKey(peer);
+    }
+
+    /**
+     * Adds a peer after the others.
+     *
+     * @param peer peer that joined
+     * @return true if the peer wasn't in the registry yet
+     */
+    public boolean add(P peer) {
+        if (slots.containsKey(peer)) {
+            return false;
+        }
+        if (end == peers.length) {
+            // Closing the holes may be enough to make room.
+            compact();
+            if (end == peers.length) {
+                peers = Arrays.copyOf(peers, peers.length * 2);
+            }
+        }
+        slots.put(peer, new Slot(end));
+        peers[end++] = peer;
+        return true;
+    }
+
+    /**
+     * Removes a peer, keeping the others in order.
+     *
+     * @param peer peer that left
+     * @return true if the peer was in the registry
+     */
+    public boolean remove(P peer) {
+        Slot slot = slots.remove(peer);
+        if (slot == null) {
+            return false;
+        }
+        peers[slot.index] = null;
+        return true;
+    }
+
+    /**
+     * Removes every peer.
+     */
+    public void clear() {
+        slots.clear();
+        Arrays.fill(peers, 0, end, null);
+        end = 0;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Gets a peer by position.
+     *
+     * @param position position in joining order
+     * @return the peer
+     * @throws IndexOutOfBoundsException if there is no peer at that position
+     */
+    @SuppressWarnings("unchecked")
+    public P get(int position) {
+        if (position < 0 || position >= slots.size()) {
+            throw new IndexOutOfBoundsException("No peer at position " + position + ".");
+        }
+        compact();
+        return (P) peers[position];
+    }
+
+    /**
+     * Gets the position of a peer.
+     *
+     * @param peer peer to look for
+     * @return its position in joining order, or -1 if it isn't in the registry
+     */
+    public int indexOf(P peer) {
+        Slot slot = slots.get(peer);
+        if (slot == null) {
+            return -1;
+        }
+        compact();
+        return slot.index;
+    }
+
+    /**
+     * Closes the holes left by removed peers, moving the others down in order.
+     */
+    @SuppressWarnings("unchecked")
+    private void compact() {
+        if (end == slots.size()) {
+            return;
+        }
+        int to = 0;
+        for (int from = 0; from < end; from++) {
+            Object peer = peers[from];
+            if (peer != null) {
+                if (from != to) {
+                    peers[to] = peer;
+                    slots.get((P) peer).index = to;
+                }
+                to++;
+            }
+        }
+        Arrays.fill(peers, to, end, null);
+        end = to;
+    }
+
+    /**
+     * Position of a peer in the list, updated when holes are closed.
+     */
+    private static final class Slot {
+        int index;
+
+        Slot(int index) {
+            this.index = index;
+        }
+    }
+}
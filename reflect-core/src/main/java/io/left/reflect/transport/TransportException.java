@@ -0,0 +1,53 @@
+package io.left.reflect.transport;
+
+/**
+ * Thrown when a {@link MeshTransport} can't send a payload.
+ */
+public class TransportException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates an exception.
+     *
+     * @param message description of the failure
+     */
+    public TransportException(String message) {
+        super(message);
+    }
+
+    /**
+     * Creates an exception wrapping the failure of the underlying mesh.
+     *
+     * @param message description of the failure
+     * @param cause   exception thrown by the mesh
+     */
+    public TransportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Thrown when the transport has been disconnected, so no further payload can be sent.
+     */
+    public static class TransportDisconnectedException extends TransportException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Creates an exception.
+         *
+         * @param message description of the failure
+         */
+        public TransportDisconnectedException(String message) {
+            super(message);
+        }
+
+        /**
+         * Creates an exception.
+         *
+         * @param message description of the failure
+         * @param cause   exception thrown by the mesh
+         */
+        public TransportDisconnectedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
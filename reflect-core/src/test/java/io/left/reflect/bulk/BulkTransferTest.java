@@ -0,0 +1,182 @@
+package io.left.reflect.bulk;
+
+import io.left.reflect.sim.LatencyModel;
+import io.left.reflect.sim.LinkProfile;
+import io.left.reflect.sim.SimulatedMesh;
+import io.left.reflect.transport.MeshTransport;
+import io.left.reflect.transport.TransportException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class BulkTransferTest {
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int CHUNK_LENGTH = 1000;
+
+    private ScheduledExecutorService scheduler;
+    private SimulatedMesh<String> mesh;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        mesh = new SimulatedMesh<>(scheduler, 7);
+    }
+
+    @After
+    public void tearDown() {
+        mesh.shutdown();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Sends from one simulated peer to another over the given profile, and waits for the end.
+     */
+    private BulkTransfer.Result transfer(LinkProfile profile, long totalBytes, long[] received,
+                                         boolean[] completed) throws Exception {
+        MeshTransport<String> sender = mesh.join("sender", profile);
+        MeshTransport<String> recipient = mesh.join("recipient", profile);
+        BulkReceiver<String> receiver = new BulkReceiver<>(recipient,
+                new BulkReceiver.Listener<String>() {
+                    @Override
+                    public void onTransferReceived(String peer, long bytes, long elapsedNanos) {
+                        received[0] = bytes;
+                    }
+
+                    @Override
+                    public void onAckFailed(String peer, TransportException cause) {
+                    }
+                });
+        recipient.setReceiver((peer, payload, receiveNanos) -> receiver.onChunk(peer, payload));
+        CountDownLatch finished = new CountDownLatch(1);
+        BulkTransfer.Result[] result = new BulkTransfer.Result[1];
+        BulkTransfer<String> transfer = new BulkTransfer<>(sender, scheduler, "recipient",
+                totalBytes, CHUNK_LENGTH, 16, 50, (r, c) -> {
+                    result[0] = r;
+                    completed[0] = c;
+                    finished.countDown();
+                });
+        sender.setReceiver((peer, payload, receiveNanos) -> transfer.onAck(peer, payload));
+
+        transfer.start();
+
+        Assert.assertTrue(finished.await(10, TimeUnit.SECONDS));
+        return result[0];
+    }
+
+    @Test
+    public void transfer_overCleanRoute_completesWithoutRetransmits() throws Exception {
+        long[] received = new long[1];
+        boolean[] completed = new boolean[1];
+
+        BulkTransfer.Result result = transfer(new LinkProfile()
+                .setHopLatency(LatencyModel.constant(MILLI)), 100_500, received, completed);
+
+        Assert.assertTrue(completed[0]);
+        Assert.assertEquals(100_500, result.getBytes());
+        Assert.assertEquals(101, result.getChunks());
+        Assert.assertEquals(0, result.getRetransmits());
+        Assert.assertTrue(result.getMegabytesPerSecond() > 0);
+        Assert.assertEquals(100_500, received[0]);
+    }
+
+    @Test
+    public void transfer_overLossyRoute_retransmitsAndCompletes() throws Exception {
+        long[] received = new long[1];
+        boolean[] completed = new boolean[1];
+
+        BulkTransfer.Result result = transfer(new LinkProfile().setHopLossRate(0.05)
+                .setHopLatency(LatencyModel.constant(MILLI)), 200_000, received, completed);
+
+        Assert.assertTrue(completed[0]);
+        Assert.assertEquals(200_000, result.getBytes());
+        Assert.assertTrue(result.getRetransmits() > 0);
+        Assert.assertEquals(200_000, received[0]);
+    }
+
+    @Test
+    public void transfer_whenSendFails_stopsWithFailure() throws Exception {
+        boolean[] completed = {true};
+        BulkTransfer.Result[] result = new BulkTransfer.Result[1];
+        CountDownLatch finished = new CountDownLatch(1);
+
+        new BulkTransfer<>(mesh.join("lonely", new LinkProfile()), scheduler, "nobody",
+                10_000, CHUNK_LENGTH, 4, 50, (r, c) -> {
+                    result[0] = r;
+                    completed[0] = c;
+                    finished.countDown();
+                }).start();
+
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(completed[0]);
+        Assert.assertNotNull(result[0].getFailure());
+        Assert.assertEquals(0, result[0].getBytes());
+    }
+
+    @Test
+    public void onChunk_acknowledgesCumulativelyAndReportsGaps() throws Exception {
+        List<byte[]> acks = new ArrayList<>();
+        MeshTransport<String> transport = new MeshTransport<String>() {
+            @Override
+            public void send(String peer, byte[] payload) {
+                acks.add(payload);
+            }
+
+            @Override
+            public void setReceiver(Receiver<String> receiver) {
+            }
+
+            @Override
+            public void setPeerListener(PeerListener<String> listener) {
+            }
+        };
+        long[] received = new long[1];
+        BulkReceiver<String> receiver = new BulkReceiver<>(transport,
+                new BulkReceiver.Listener<String>() {
+                    @Override
+                    public void onTransferReceived(String peer, long bytes, long elapsedNanos) {
+                        received[0] = bytes;
+                    }
+
+                    @Override
+                    public void onAckFailed(String peer, TransportException cause) {
+                    }
+                });
+        byte[] chunk = new byte[BulkCodec.HEADER_LENGTH + 10];
+
+        // In order and not asked for: no acknowledgement.
+        BulkCodec.writeHeader(chunk, BulkCodec.TYPE_CHUNK, (byte) 0, 5, 0, 3);
+        receiver.onChunk("sender", chunk);
+        Assert.assertEquals(0, acks.size());
+
+        // Chunk 1 is missing, so chunk 2 is acknowledged straight away, covering chunk 0 only.
+        BulkCodec.writeHeader(chunk, BulkCodec.TYPE_CHUNK, (byte) 0, 5, 2, 3);
+        receiver.onChunk("sender", chunk);
+        Assert.assertEquals(1, acks.size());
+        Assert.assertTrue(BulkCodec.isAck(acks.get(0)));
+        Assert.assertEquals(1, BulkCodec.getIndex(acks.get(0)));
+
+        // Filling the gap completes the transfer.
+        BulkCodec.writeHeader(chunk, BulkCodec.TYPE_CHUNK, (byte) 0, 5, 1, 3);
+        receiver.onChunk("sender", chunk);
+        Assert.assertEquals(2, acks.size());
+        Assert.assertEquals(3, BulkCodec.getIndex(acks.get(1)));
+        Assert.assertEquals(30, received[0]);
+
+        // A duplicate is only acknowledged when asked for.
+        receiver.onChunk("sender", chunk);
+        Assert.assertEquals(2, acks.size());
+        BulkCodec.writeHeader(chunk, BulkCodec.TYPE_CHUNK, BulkCodec.FLAG_ACK_NOW, 5, 1, 3);
+        receiver.onChunk("sender", chunk);
+        Assert.assertEquals(3, acks.size());
+        Assert.assertEquals(3, BulkCodec.getIndex(acks.get(2)));
+    }
+}
@@ -0,0 +1,140 @@
+package io.left.reflect.engine;
+
+import io.left.reflect.ping.PingCodec;
+import io.left.reflect.ping.PingEvent;
+import io.left.reflect.ping.PingFrame;
+import io.left.reflect.transport.MeshTransport;
+import io.left.reflect.transport.TransportException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PingResponderTest {
+    private static final String PEER = "peer";
+
+    private final List<byte[]> sent = new ArrayList<>();
+    private final List<PingEvent<String>> events = new ArrayList<>();
+    private final List<byte[]> data = new ArrayList<>();
+    private final List<TransportException> failures = new ArrayList<>();
+    private boolean failSends;
+
+    private PingResponder<String> responder;
+
+    /**
+     * Handle payloads synchronously, over a transport recording what is sent.
+     */
+    @Before
+    public void setUp() {
+        MeshTransport<String> transport = new MeshTransport<String>() {
+            @Override
+            public void send(String peer, byte[] payload) throws TransportException {
+                if (failSends) {
+                    throw new TransportException("no route");
+                }
+                sent.add(payload);
+            }
+
+            @Override
+            public void setReceiver(Receiver<String> receiver) {
+            }
+
+            @Override
+            public void setPeerListener(PeerListener<String> listener) {
+            }
+        };
+        responder = new PingResponder<>(transport, new MeshEventDispatcher(Runnable::run),
+                new PingResponder.Listener<String>() {
+                    @Override
+                    public void onPingEvent(PingEvent<String> event) {
+                        events.add(event);
+                    }
+
+                    @Override
+                    public void onData(String peer, byte[] payload) {
+                        data.add(payload);
+                    }
+
+                    @Override
+                    public void onEchoFailed(String peer, TransportException cause) {
+                        failures.add(cause);
+                    }
+                });
+    }
+
+    @Test
+    public void onReceive_request_isEchoed() {
+        responder.onReceive(PEER, new PingCodec().encode(new PingFrame().setRequest(3, 9, 0)), 1);
+
+        PingFrame reply = new PingFrame();
+        Assert.assertTrue(PingCodec.decode(sent.get(0), reply));
+        Assert.assertTrue(reply.isReply());
+        Assert.assertEquals(3, reply.getSequence());
+        Assert.assertEquals(PingEvent.Type.ECHOED, events.get(0).getType());
+        Assert.assertEquals(PEER, events.get(0).getPeer());
+    }
+
+    @Test
+    public void onReceive_reply_isReported() {
+        byte[] reply = new PingCodec().encode(new PingFrame().setRequest(4, 9, 0).toReply());
+
+        responder.onReceive(PEER, reply, 42);
+
+        Assert.assertTrue(sent.isEmpty());
+        Assert.assertEquals(PingEvent.Type.RETURNED, events.get(0).getType());
+        Assert.assertEquals(4, events.get(0).getSequence());
+        Assert.assertEquals(42, events.get(0).getReceiveNanos());
+    }
+
+    @Test
+    public void onReceive_timedRequest_isEchoedWithTimes() {
+        long before = System.nanoTime();
+        responder.onReceive(PEER,
+                new PingCodec().encode(new PingFrame().setTimedRequest(3, 9, 0)), 1);
+
+        PingFrame reply = new PingFrame();
+        Assert.assertTrue(PingCodec.decode(sent.get(0), reply));
+        Assert.assertTrue(reply.isTimed());
+        Assert.assertEquals(1, reply.getResponderReceiveNanos());
+        Assert.assertTrue(reply.getResponderSendNanos() - before >= 0);
+    }
+
+    @Test
+    public void onReceive_timedReply_reportsTimes() {
+        byte[] reply = new PingCodec().encode(
+                new PingFrame().setTimedRequest(4, 9, 0).toReply(20, 30));
+
+        responder.onReceive(PEER, reply, 42);
+
+        PingEvent<String> event = events.get(0);
+        Assert.assertTrue(event.isTimed());
+        Assert.assertEquals(4, event.getSequence());
+        Assert.assertEquals(20, event.getResponderReceiveNanos());
+        Assert.assertEquals(30, event.getResponderSendNanos());
+        Assert.assertEquals(42, event.getReceiveNanos());
+    }
+
+    @Test
+    public void onReceive_echoFails_isReported() {
+        failSends = true;
+
+        responder.onReceive(PEER, new PingCodec().encode(new PingFrame().setRequest(3, 9, 0)), 1);
+
+        Assert.assertEquals(1, failures.size());
+        Assert.assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void onReceive_otherData_isPassedOn() {
+        byte[] payload = "hello".getBytes(Charset.forName("UTF-8"));
+
+        responder.onReceive(PEER, payload, 1);
+
+        Assert.assertSame(payload, data.get(0));
+        Assert.assertTrue(events.isEmpty());
+    }
+}
@@ -0,0 +1,66 @@
+package io.left.reflect.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MetricsRegistryTest {
+    @Test
+    public void counter_fromManyThreads_sumsEveryAddition() throws InterruptedException {
+        StripedCounter counter = new StripedCounter(3);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counter.increment();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        counter.add(5);
+
+        Assert.assertEquals(80_005, counter.sum());
+        counter.reset();
+        Assert.assertEquals(0, counter.sum());
+    }
+
+    @Test
+    public void metrics_sameName_areShared() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        Assert.assertSame(registry.counter("sends"), registry.counter("sends"));
+        Assert.assertSame(registry.timer("send"), registry.timer("send"));
+        Assert.assertNotSame(registry.counter("sends"), registry.counter("failures"));
+    }
+
+    @Test
+    public void format_listsMetricsByKindAndName() {
+        MetricsRegistry registry = new MetricsRegistry();
+        AtomicLong queued = new AtomicLong(7);
+        registry.counter("send.failures").add(2);
+        registry.counter("send.attempts").add(10);
+        registry.gauge("queue.size", queued::get);
+        LatencyTimer timer = registry.timer("send");
+        timer.record(2_000_000);
+        timer.record(2_000_000);
+
+        Assert.assertEquals("counters\n"
+                + "  send.attempts 10\n"
+                + "  send.failures 2\n"
+                + "gauges\n"
+                + "  queue.size 7\n"
+                + "timers (ms)\n"
+                + "  send count 2, mean 2.000, p50 2.000, p90 2.000, p99 2.000, max 2.000\n",
+                registry.format());
+
+        registry.reset();
+        queued.set(0);
+        Assert.assertEquals(0, registry.counter("send.attempts").sum());
+        Assert.assertEquals(0, timer.getCount());
+        Assert.assertTrue(registry.format().contains("  queue.size 0\n"));
+    }
+}
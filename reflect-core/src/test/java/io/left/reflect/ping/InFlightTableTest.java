@@ -0,0 +1,71 @@
+package io.left.reflect.ping;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class InFlightTableTest {
+
+    @Test
+    public void put_get_remove() {
+        InFlightTable<String> table = new InFlightTable<>();
+
+        Assert.assertNull(table.put(1L, "one"));
+        Assert.assertNull(table.put(-5L, "minus five"));
+        Assert.assertEquals("one", table.put(1L, "uno"));
+
+        Assert.assertEquals(2, table.size());
+        Assert.assertEquals("uno", table.get(1L));
+        Assert.assertTrue(table.contains(-5L));
+        Assert.assertNull(table.get(2L));
+
+        Assert.assertEquals("minus five", table.remove(-5L));
+        Assert.assertNull(table.remove(-5L));
+        Assert.assertEquals(1, table.size());
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        InFlightTable<Long> table = new InFlightTable<>(4);
+
+        for (long i = 0; i < 10_000; i++) {
+            table.put(i, i);
+        }
+
+        Assert.assertEquals(10_000, table.size());
+        for (long i = 0; i < 10_000; i++) {
+            Assert.assertEquals(Long.valueOf(i), table.get(i));
+        }
+    }
+
+    /**
+     * Interleaves random puts and removes, as echoes arriving out of order would, and checks the
+     * table against a {@link HashMap} to exercise backward-shift deletion.
+     */
+    @Test
+    public void randomOperations_matchHashMap() {
+        InFlightTable<Long> table = new InFlightTable<>(8);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(1234);
+
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(512);
+            if (random.nextBoolean()) {
+                Assert.assertEquals(expected.put(key, (long) i), table.put(key, (long) i));
+            } else {
+                Assert.assertEquals(expected.remove(key), table.remove(key));
+            }
+            Assert.assertEquals(expected.size(), table.size());
+        }
+        for (long key = 0; key < 512; key++) {
+            Assert.assertEquals(expected.get(key), table.get(key));
+        }
+
+        table.clear();
+        Assert.assertTrue(table.isEmpty());
+        Assert.assertNull(table.get(0L));
+    }
+}
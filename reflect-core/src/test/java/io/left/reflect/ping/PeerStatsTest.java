@@ -0,0 +1,49 @@
+package io.left.reflect.ping;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PeerStatsTest {
+
+    @Test
+    public void lossRate_countsLateAsLost() {
+        PeerStats stats = new PeerStats();
+        for (int i = 0; i < 4; i++) {
+            stats.onSent();
+        }
+        stats.onReceived(received(0, 1_000_000));
+        stats.onReceived(received(1, 1_000_000));
+        stats.onLost();
+
+        Assert.assertEquals(1, stats.getOutstanding());
+        Assert.assertEquals(1.0 / 3, stats.getLossRate(), 1e-9);
+
+        PingRecord<String> late = PingRecord.sent(2, null, 0);
+        late.markLost();
+        late.markReceived(9_000_000);
+        stats.onReceived(late);
+
+        Assert.assertEquals(1, stats.getLate());
+        Assert.assertEquals(2, stats.getReceived());
+        Assert.assertEquals(3, stats.getRtts().getTotalCount());
+    }
+
+    @Test
+    public void jitter_followsRttVariation() {
+        PeerStats stats = new PeerStats();
+        stats.onReceived(received(0, 10_000_000));
+        Assert.assertEquals(0, stats.getJitterNanos(), 0);
+
+        stats.onReceived(received(1, 26_000_000));
+        Assert.assertEquals(1_000_000, stats.getJitterNanos(), 1);
+
+        stats.onReceived(received(2, 26_000_000));
+        Assert.assertEquals(937_500, stats.getJitterNanos(), 1);
+    }
+
+    private static PingRecord<String> received(long sequence, long rttNanos) {
+        PingRecord<String> record = PingRecord.sent(sequence, null, 0);
+        record.markReceived(rttNanos);
+        return record;
+    }
+}
@@ -0,0 +1,129 @@
+package io.left.reflect.ping;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+public class PingCodecTest {
+    private final PingCodec codec = new PingCodec();
+
+    @Test
+    public void encode_decode_roundTrip() {
+        PingFrame sent = new PingFrame().setRequest(42L, 123456789012345L, 0);
+
+        byte[] data = codec.encode(sent);
+        PingFrame received = new PingFrame();
+
+        Assert.assertEquals(PingCodec.HEADER_LENGTH, data.length);
+        Assert.assertTrue(PingCodec.decode(data, received));
+        Assert.assertTrue(received.isRequest());
+        Assert.assertEquals(42L, received.getSequence());
+        Assert.assertEquals(123456789012345L, received.getSendNanos());
+        Assert.assertEquals(0, received.getPaddingLength());
+    }
+
+    @Test
+    public void encode_withPadding_isZeroFilled() {
+        PingFrame sent = new PingFrame().setRequest(-1L, Long.MIN_VALUE, 4096);
+
+        byte[] data = codec.encode(sent);
+        PingFrame received = new PingFrame();
+
+        Assert.assertEquals(PingCodec.HEADER_LENGTH + 4096, data.length);
+        Assert.assertTrue(PingCodec.decode(data, received));
+        Assert.assertEquals(-1L, received.getSequence());
+        Assert.assertEquals(Long.MIN_VALUE, received.getSendNanos());
+        Assert.assertEquals(4096, received.getPaddingLength());
+        for (int i = PingCodec.HEADER_LENGTH; i < data.length; i++) {
+            Assert.assertEquals(0, data[i]);
+        }
+    }
+
+    @Test
+    public void encode_reply_keepsRequestFields() {
+        PingFrame frame = new PingFrame().setRequest(7L, 99L, 10);
+        PingFrame received = new PingFrame();
+
+        Assert.assertTrue(PingCodec.decode(codec.encode(frame.toReply()), received));
+        Assert.assertTrue(received.isReply());
+        Assert.assertEquals(7L, received.getSequence());
+        Assert.assertEquals(99L, received.getSendNanos());
+        Assert.assertEquals(10, received.getPaddingLength());
+    }
+
+    @Test
+    public void encode_timedReply_carriesResponderTimes() {
+        PingFrame frame = new PingFrame().setTimedRequest(7L, 99L, 10);
+        PingFrame request = new PingFrame();
+        PingFrame received = new PingFrame();
+
+        byte[] data = codec.encode(frame);
+        Assert.assertEquals(PingCodec.HEADER_LENGTH_V2 + 10, data.length);
+        Assert.assertEquals(PingCodec.VERSION_2, data[0]);
+        Assert.assertTrue(PingCodec.decode(data, request));
+        Assert.assertTrue(request.isTimed());
+
+        Assert.assertTrue(PingCodec.decode(codec.encode(request.toReply(500L, 600L)), received));
+        Assert.assertTrue(received.isReply());
+        Assert.assertTrue(received.isTimed());
+        Assert.assertEquals(7L, received.getSequence());
+        Assert.assertEquals(99L, received.getSendNanos());
+        Assert.assertEquals(500L, received.getResponderReceiveNanos());
+        Assert.assertEquals(600L, received.getResponderSendNanos());
+        Assert.assertEquals(10, received.getPaddingLength());
+    }
+
+    @Test
+    public void encode_untimedReply_staysVersion1() {
+        PingFrame received = new PingFrame();
+
+        byte[] data = codec.encode(new PingFrame().setRequest(7L, 99L, 0).toReply(500L, 600L));
+
+        Assert.assertEquals(PingCodec.HEADER_LENGTH, data.length);
+        Assert.assertTrue(PingCodec.decode(data, received));
+        Assert.assertFalse(received.isTimed());
+        Assert.assertEquals(0, received.getResponderReceiveNanos());
+    }
+
+    @Test
+    public void encode_intoCallerBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.position(3);
+
+        PingCodec.encode(new PingFrame().setRequest(1L, 2L, 0), buffer);
+
+        Assert.assertEquals(3 + PingCodec.HEADER_LENGTH, buffer.position());
+        Assert.assertEquals(PingCodec.VERSION_1, buffer.get(3));
+    }
+
+    @Test
+    public void decode_legacyText_isRejected() {
+        byte[] legacy = "1Jan 01 12:00:00:0000".getBytes(Charset.forName("UTF-8"));
+        PingFrame frame = new PingFrame();
+
+        Assert.assertTrue(PingCodec.isLegacy(legacy));
+        Assert.assertFalse(PingCodec.decode(legacy, frame));
+    }
+
+    @Test
+    public void decode_malformed_isRejected() {
+        PingFrame frame = new PingFrame();
+        byte[] truncated = new byte[PingCodec.HEADER_LENGTH - 1];
+        truncated[0] = PingCodec.VERSION_1;
+        truncated[1] = PingCodec.TYPE_REQUEST;
+        byte[] unknownType = new byte[PingCodec.HEADER_LENGTH];
+        unknownType[0] = PingCodec.VERSION_1;
+        unknownType[1] = 0x7F;
+
+        Assert.assertFalse(PingCodec.decode(null, frame));
+        Assert.assertFalse(PingCodec.decode(truncated, frame));
+        Assert.assertFalse(PingCodec.decode(unknownType, frame));
+        byte[] truncatedV2 = new byte[PingCodec.HEADER_LENGTH_V2 - 1];
+        truncatedV2[0] = PingCodec.VERSION_2;
+        truncatedV2[1] = PingCodec.TYPE_REPLY;
+        Assert.assertFalse(PingCodec.decode(truncatedV2, frame));
+        Assert.assertFalse(PingCodec.isLegacy(new byte[0]));
+    }
+}
@@ -0,0 +1,141 @@
+package io.left.reflect.ping;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PingLogTest {
+
+    @Test
+    public void push_newestFirst() {
+        PingLog<String> log = new PingLog<>(PingLog.MIN_CAPACITY);
+
+        for (long i = 0; i < 3; i++) {
+            log.push(PingRecord.sent(i, null, 0));
+        }
+
+        Assert.assertEquals(3, log.size());
+        Assert.assertEquals(2, log.get(0).getSequence());
+        Assert.assertEquals(0, log.get(2).getSequence());
+        Assert.assertTrue(log.getArchived().isEmpty());
+    }
+
+    @Test
+    public void push_whenFull_archivesOldest() {
+        PingLog<String> log = new PingLog<>(PingLog.MIN_CAPACITY);
+        PingRecord<String> oldest = PingRecord.sent(0, null, 0);
+        log.push(oldest);
+        log.markReceived(oldest, 2_000_000);
+
+        for (long i = 1; i <= PingLog.MIN_CAPACITY; i++) {
+            log.push(PingRecord.sent(i, null, 0));
+        }
+
+        Assert.assertEquals(PingLog.MIN_CAPACITY, log.size());
+        Assert.assertEquals(PingLog.MIN_CAPACITY, log.get(0).getSequence());
+        Assert.assertEquals(1, log.get(PingLog.MIN_CAPACITY - 1).getSequence());
+        Assert.assertEquals(-1, log.positionOf(oldest));
+        Assert.assertEquals(1, log.getArchived().getSent());
+        Assert.assertEquals(1, log.getArchived().getReceived());
+        Assert.assertEquals(2_000_000, log.getArchived().getMaxRttNanos());
+    }
+
+    @Test
+    public void markReceived_afterEviction_updatesArchive() {
+        PingLog<String> log = new PingLog<>(PingLog.MIN_CAPACITY);
+        PingRecord<String> late = PingRecord.sent(0, null, 0);
+        log.push(late);
+        for (long i = 1; i <= PingLog.MIN_CAPACITY; i++) {
+            log.push(PingRecord.echoed(i, null));
+        }
+
+        Assert.assertEquals(0, log.getArchived().getReceived());
+        Assert.assertEquals(-1, log.markReceived(late, 5_000_000));
+        Assert.assertEquals(1, log.getArchived().getReceived());
+        Assert.assertEquals(5_000_000, log.getArchived().getMeanRttNanos(), 0);
+    }
+
+    @Test
+    public void markReceived_beforePush_leavesArchive() {
+        PingLog<String> log = new PingLog<>(PingLog.MIN_CAPACITY);
+        PingRecord<String> record = PingRecord.sent(0, null, 0);
+
+        Assert.assertEquals(-1, log.markReceived(record, 1));
+        Assert.assertEquals(0, log.getArchived().getReceived());
+
+        log.push(record);
+        Assert.assertEquals(PingRecord.Status.RECEIVED, log.get(0).getStatus());
+    }
+
+    @Test
+    public void markLost_thenReceived_isLate() {
+        PingLog<String> log = new PingLog<>(PingLog.MIN_CAPACITY);
+        PingRecord<String> record = PingRecord.sent(0, null, 0);
+        log.push(record);
+
+        Assert.assertTrue(log.markLost(record));
+        Assert.assertFalse(log.markLost(record));
+        Assert.assertEquals(PingRecord.Status.LOST, record.getStatus());
+
+        log.markReceived(record, 7_000_000);
+        Assert.assertEquals(PingRecord.Status.LATE, record.getStatus());
+        Assert.assertFalse(log.markLost(record));
+    }
+
+    @Test
+    public void markLost_afterEviction_updatesArchive() {
+        PingLog<String> log = new PingLog<>(PingLog.MIN_CAPACITY);
+        PingRecord<String> lost = PingRecord.sent(0, null, 0);
+        log.push(lost);
+        for (long i = 1; i <= PingLog.MIN_CAPACITY; i++) {
+            log.push(PingRecord.echoed(i, null));
+        }
+
+        Assert.assertTrue(log.markLost(lost));
+        Assert.assertEquals(1, log.getArchived().getLost());
+
+        log.markReceived(lost, 9_000_000);
+        Assert.assertEquals(1, log.getArchived().getLate());
+        Assert.assertEquals(1, log.getArchived().getReceived());
+    }
+
+    @Test
+    public void positionOf_tracksInsertions() {
+        PingLog<String> log = new PingLog<>(PingLog.MIN_CAPACITY);
+        PingRecord<String> record = PingRecord.sent(0, null, 0);
+        log.push(record);
+
+        for (int i = 0; i < PingLog.MIN_CAPACITY - 1; i++) {
+            Assert.assertEquals(i, log.positionOf(record));
+            log.push(PingRecord.echoed(i, null));
+        }
+        Assert.assertEquals(PingLog.MIN_CAPACITY - 1, log.positionOf(record));
+        Assert.assertEquals(-1, log.positionOf(PingRecord.sent(1, null, 0)));
+    }
+
+    @Test
+    public void setCapacity_keepsNewest() {
+        PingLog<String> log = new PingLog<>(30);
+        for (long i = 0; i < 45; i++) {
+            log.push(PingRecord.sent(i, null, 0));
+        }
+
+        log.setCapacity(12);
+
+        Assert.assertEquals(12, log.size());
+        Assert.assertEquals(44, log.get(0).getSequence());
+        Assert.assertEquals(33, log.get(11).getSequence());
+        Assert.assertEquals(33, log.getArchived().getSent());
+
+        log.setCapacity(20);
+        log.push(PingRecord.sent(45, null, 0));
+
+        Assert.assertEquals(13, log.size());
+        Assert.assertEquals(45, log.get(0).getSequence());
+        Assert.assertEquals(33, log.get(12).getSequence());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setCapacity_belowMinimum_throws() {
+        new PingLog<String>(PingLog.MIN_CAPACITY).setCapacity(PingLog.MIN_CAPACITY - 1);
+    }
+}
@@ -0,0 +1,113 @@
+package io.left.reflect.schedule;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PayloadSweepTest {
+    private final List<PayloadSweep.Step> steps = new ArrayList<>();
+    private final List<Boolean> finished = new ArrayList<>();
+    private final List<Integer> sentLengths = new ArrayList<>();
+
+    private final PayloadSweep.Listener listener = new PayloadSweep.Listener() {
+        @Override
+        public void onStepFinished(PayloadSweep.Step step) {
+            steps.add(step);
+        }
+
+        @Override
+        public void onFinished(boolean completed) {
+            finished.add(completed);
+        }
+    };
+
+    @Test
+    public void geometricLengths_includesBothBounds() {
+        Assert.assertArrayEquals(new int[] {100, 300, 900, 1000},
+                PayloadSweep.geometricLengths(100, 1000, 3));
+        int[] lengths = PayloadSweep.geometricLengths(64, 1 << 20, 2);
+        Assert.assertEquals(15, lengths.length);
+        Assert.assertEquals(64, lengths[0]);
+        Assert.assertEquals(1 << 20, lengths[14]);
+    }
+
+    @Test
+    public void sweep_echoesBeforeSendReturns_stepsThroughLengths() {
+        PayloadSweep[] sweep = new PayloadSweep[1];
+        long[] sequence = new long[1];
+        sweep[0] = new PayloadSweep(Runnable::run, new int[] {100, 200}, 2, length -> {
+            sentLengths.add(length);
+            long sent = sequence[0]++;
+            // Lose the very first ping, and echo the others in 1 ms per 100 bytes.
+            sweep[0].onSettled(sent, sent == 0 ? -1 : length * 10_000L);
+            return sent;
+        }, listener);
+
+        sweep[0].start();
+
+        Assert.assertEquals(4, sentLengths.size());
+        Assert.assertEquals(2, steps.size());
+        Assert.assertEquals(100, steps.get(0).getPayloadLength());
+        Assert.assertEquals(1, steps.get(0).getLost());
+        Assert.assertEquals(200_000, steps.get(0).getGoodputBytesPerSecond(), 1);
+        Assert.assertEquals(0, steps.get(1).getLost());
+        Assert.assertEquals(200_000, steps.get(1).getGoodputBytesPerSecond(), 1);
+        Assert.assertEquals(1, finished.size());
+        Assert.assertTrue(finished.get(0));
+        Assert.assertFalse(sweep[0].isRunning());
+    }
+
+    @Test
+    public void sweep_echoesAfterSendReturns_waitsForEach() {
+        List<Long> sequences = new ArrayList<>();
+        PayloadSweep sweep = new PayloadSweep(Runnable::run, new int[] {100}, 3, length -> {
+            long sent = 10 + sequences.size();
+            sequences.add(sent);
+            return sent;
+        }, listener);
+
+        sweep.start();
+        Assert.assertEquals(1, sequences.size());
+        // Pings that aren't part of the sweep are ignored.
+        sweep.onSettled(99, 1000);
+        Assert.assertEquals(1, sequences.size());
+
+        sweep.onSettled(10, 1000);
+        sweep.onSettled(11, 1000);
+        Assert.assertTrue(steps.isEmpty());
+        sweep.onSettled(12, 1000);
+
+        Assert.assertEquals(3, steps.get(0).getSent());
+        Assert.assertEquals(3, steps.get(0).getRtts().getTotalCount());
+        Assert.assertTrue(finished.get(0));
+    }
+
+    @Test
+    public void sweep_sendFails_stops() {
+        PayloadSweep sweep = new PayloadSweep(Runnable::run, new int[] {100}, 3,
+                length -> -1, listener);
+
+        sweep.start();
+
+        Assert.assertTrue(steps.isEmpty());
+        Assert.assertEquals(1, finished.size());
+        Assert.assertFalse(finished.get(0));
+    }
+
+    @Test
+    public void stop_notifiesOnce() {
+        PayloadSweep sweep = new PayloadSweep(Runnable::run, new int[] {100}, 3,
+                length -> 1, listener);
+        sweep.start();
+
+        sweep.stop();
+        sweep.stop();
+        sweep.onSettled(1, 1000);
+
+        Assert.assertEquals(1, finished.size());
+        Assert.assertFalse(finished.get(0));
+        Assert.assertTrue(steps.isEmpty());
+    }
+}
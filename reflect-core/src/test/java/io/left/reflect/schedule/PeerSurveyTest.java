@@ -0,0 +1,118 @@
+package io.left.reflect.schedule;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class PeerSurveyTest {
+    private static final List<String> PEERS = Arrays.asList("a", "b", "c", "d");
+
+    private ScheduledExecutorService executor;
+
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile long finishedSent = -1;
+    private volatile boolean finishedCompleted;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newScheduledThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void onFinished(long sent, boolean completed) {
+        finishedSent = sent;
+        finishedCompleted = completed;
+        finished.countDown();
+    }
+
+    @Test
+    public void start_sendsEveryPeerItsPingsStaggered() throws InterruptedException {
+        Map<String, Integer> counts = new HashMap<>();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        PeerSurvey<String> survey = new PeerSurvey<>(executor, PEERS, 3, 20, peer -> {
+            synchronized (counts) {
+                Integer count = counts.get(peer);
+                counts.put(peer, count == null ? 1 : count + 1);
+            }
+            order.add(peer);
+            return PingGenerator.PingTask.Result.SENT;
+        }, this::onFinished);
+
+        survey.start();
+
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(finishedCompleted);
+        Assert.assertEquals(12, finishedSent);
+        Assert.assertFalse(survey.isRunning());
+        for (String peer : PEERS) {
+            Assert.assertEquals(Integer.valueOf(3), counts.get(peer));
+        }
+        // Each peer's first ping is offset by a quarter period from the previous peer's.
+        Assert.assertEquals(PEERS, order.subList(0, PEERS.size()));
+    }
+
+    @Test
+    public void blockedPings_areSkippedNotCounted() throws InterruptedException {
+        Map<String, Integer> attempts = new HashMap<>();
+        new PeerSurvey<>(executor, PEERS, 2, 200, peer -> {
+            int attempt;
+            synchronized (attempts) {
+                Integer count = attempts.get(peer);
+                attempt = count == null ? 1 : count + 1;
+                attempts.put(peer, attempt);
+            }
+            return attempt % 2 == 1 ? PingGenerator.PingTask.Result.BLOCKED
+                    : PingGenerator.PingTask.Result.SENT;
+        }, this::onFinished).start();
+
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(finishedCompleted);
+        Assert.assertEquals(8, finishedSent);
+        synchronized (attempts) {
+            for (String peer : PEERS) {
+                Assert.assertEquals(Integer.valueOf(4), attempts.get(peer));
+            }
+        }
+    }
+
+    @Test
+    public void abort_stopsEveryPeer() throws InterruptedException {
+        new PeerSurvey<>(executor, PEERS, 100, 100,
+                peer -> "c".equals(peer) ? PingGenerator.PingTask.Result.ABORT
+                        : PingGenerator.PingTask.Result.SENT,
+                this::onFinished).start();
+
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(finishedCompleted);
+        Assert.assertTrue(finishedSent < 300);
+    }
+
+    @Test
+    public void stop_beforeCompletion_reportsIncomplete() throws InterruptedException {
+        PeerSurvey<String> survey = new PeerSurvey<>(executor, PEERS, 1000, 1,
+                peer -> PingGenerator.PingTask.Result.SENT, this::onFinished);
+        survey.start();
+
+        survey.stop();
+
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(finishedCompleted);
+        Assert.assertFalse(survey.isRunning());
+    }
+}
@@ -0,0 +1,123 @@
+package io.left.reflect.schedule;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PingGeneratorTest {
+    private ScheduledExecutorService executor;
+    private PingGenerator generator;
+
+    private final AtomicLong pings = new AtomicLong();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile long finishedSent = -1;
+    private volatile boolean finishedCompleted;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        generator = new PingGenerator(executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void onFinished(long sent, boolean completed) {
+        finishedSent = sent;
+        finishedCompleted = completed;
+        finished.countDown();
+    }
+
+    @Test
+    public void start_asFastAsPossible_sendsCount() throws InterruptedException {
+        generator.start(1000, PingGenerator.AS_FAST_AS_POSSIBLE, () -> {
+            pings.incrementAndGet();
+            return PingGenerator.PingTask.Result.SENT;
+        }, this::onFinished);
+
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1000, pings.get());
+        Assert.assertEquals(1000, finishedSent);
+        Assert.assertTrue(finishedCompleted);
+        Assert.assertFalse(generator.isRunning());
+    }
+
+    @Test
+    public void start_withRate_sendsCount() throws InterruptedException {
+        generator.start(5, 1000, () -> {
+            pings.incrementAndGet();
+            return PingGenerator.PingTask.Result.SENT;
+        }, this::onFinished);
+
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(5, pings.get());
+        Assert.assertTrue(finishedCompleted);
+    }
+
+    @Test
+    public void sendPing_false_abortsSeries() throws InterruptedException {
+        generator.start(PingGenerator.UNLIMITED, PingGenerator.AS_FAST_AS_POSSIBLE,
+                () -> pings.incrementAndGet() < 3 ? PingGenerator.PingTask.Result.SENT
+                        : PingGenerator.PingTask.Result.ABORT, this::onFinished);
+
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, finishedSent);
+        Assert.assertFalse(finishedCompleted);
+    }
+
+    @Test
+    public void sendPing_blocked_waitsForWake() throws InterruptedException {
+        PingWindow window = new PingWindow(2);
+        generator.start(10, PingGenerator.AS_FAST_AS_POSSIBLE, () -> {
+            if (!window.tryAcquire()) {
+                return PingGenerator.PingTask.Result.BLOCKED;
+            }
+            pings.incrementAndGet();
+            return PingGenerator.PingTask.Result.SENT;
+        }, this::onFinished);
+
+        Thread.sleep(50);
+        Assert.assertEquals(2, pings.get());
+        Assert.assertTrue(generator.isRunning());
+
+        // Release slots from another thread, as echoes would.
+        while (finished.getCount() > 0 && pings.get() < 10) {
+            if (window.getInFlight() > 0) {
+                window.release();
+                generator.wake();
+            }
+            Thread.sleep(1);
+        }
+
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(10, pings.get());
+        Assert.assertTrue(finishedCompleted);
+    }
+
+    @Test
+    public void stop_endsUnlimitedSeries() throws InterruptedException {
+        generator.start(PingGenerator.UNLIMITED, 100, () -> {
+            pings.incrementAndGet();
+            return PingGenerator.PingTask.Result.SENT;
+        }, this::onFinished);
+        Assert.assertTrue(generator.isRunning());
+
+        generator.stop();
+
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(finishedCompleted);
+        Assert.assertFalse(generator.isRunning());
+        long sent = pings.get();
+        Thread.sleep(50);
+        Assert.assertEquals(sent, pings.get());
+    }
+}
@@ -0,0 +1,50 @@
+package io.left.reflect.schedule;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PingWindowTest {
+
+    @Test
+    public void tryAcquire_full_refuses() {
+        PingWindow window = new PingWindow(2);
+
+        Assert.assertTrue(window.tryAcquire());
+        Assert.assertTrue(window.tryAcquire());
+        Assert.assertFalse(window.tryAcquire());
+        Assert.assertEquals(2, window.getInFlight());
+
+        window.release();
+        Assert.assertTrue(window.tryAcquire());
+    }
+
+    @Test
+    public void tryAcquire_unlimited_neverRefuses() {
+        PingWindow window = new PingWindow(PingWindow.UNLIMITED);
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(window.tryAcquire());
+        }
+    }
+
+    @Test
+    public void setSize_smaller_waitsForOutstanding() {
+        PingWindow window = new PingWindow(3);
+        window.tryAcquire();
+        window.tryAcquire();
+        window.tryAcquire();
+
+        window.setSize(2);
+
+        Assert.assertFalse(window.tryAcquire());
+        window.release();
+        Assert.assertFalse(window.tryAcquire());
+        window.release();
+        Assert.assertTrue(window.tryAcquire());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void release_empty_throws() {
+        new PingWindow(1).release();
+    }
+}
@@ -0,0 +1,68 @@
+package io.left.reflect.schedule;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TimeoutWheelTest {
+    private static final long TICK = 100;
+
+    private final TimeoutWheel<String> wheel = new TimeoutWheel<>(TICK, 8, 0);
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    public void expire_afterDeadlineTick() {
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 420);
+
+        Assert.assertEquals(0, wheel.expire(299, expired));
+        Assert.assertEquals(1, wheel.expire(300, expired));
+        Assert.assertEquals(Arrays.asList("a"), expired);
+        Assert.assertEquals(1, wheel.expire(500, expired));
+        Assert.assertEquals(Arrays.asList("a", "b"), expired);
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void expire_beyondOneTurn_waitsForItsRound() {
+        // The wheel turns every 800; this deadline shares a bucket with 150.
+        wheel.schedule("far", 2 * 800 + 150);
+        wheel.schedule("near", 150);
+
+        wheel.expire(1000, expired);
+        Assert.assertEquals(Arrays.asList("near"), expired);
+
+        wheel.expire(1700, expired);
+        Assert.assertEquals(Arrays.asList("near"), expired);
+
+        wheel.expire(1800, expired);
+        Assert.assertEquals(Arrays.asList("near", "far"), expired);
+    }
+
+    @Test
+    public void schedule_pastDeadline_expiresOnNextTick() {
+        wheel.expire(1000, expired);
+        wheel.schedule("late", 10);
+
+        Assert.assertEquals(1, wheel.expire(1100, expired));
+    }
+
+    @Test
+    public void cancel_preventsExpiry() {
+        TimeoutWheel.Timeout<String> a = wheel.schedule("a", 150);
+        TimeoutWheel.Timeout<String> b = wheel.schedule("b", 150);
+        wheel.schedule("c", 150);
+
+        Assert.assertTrue(wheel.cancel(b));
+        Assert.assertFalse(wheel.cancel(b));
+        Assert.assertEquals(2, wheel.size());
+
+        wheel.expire(200, expired);
+        Assert.assertEquals(2, expired.size());
+        Assert.assertFalse(expired.contains("b"));
+        Assert.assertFalse(wheel.cancel(a));
+    }
+}
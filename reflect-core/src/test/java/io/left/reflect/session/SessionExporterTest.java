@@ -0,0 +1,107 @@
+package io.left.reflect.session;
+
+import io.left.reflect.ping.PingRecord;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class SessionExporterTest {
+    private static final long MILLI = 1_000_000;
+    private static final long HORIZON_NANOS = 1000 * MILLI;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    /**
+     * Logs a session starting at 10 s past the epoch, where a ping is received, another is lost
+     * and a peer's ping is echoed, then a last ping is sent well past the lost one's horizon.
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = folder.newFile();
+        SessionLog log = SessionLog.create(file, 10_000, 0);
+        PingRecord<String> received = PingRecord.sent(0, "a", 0);
+        PingRecord<String> lost = PingRecord.sent(1, "b,c", 5 * MILLI);
+        log.append(received);
+        log.append(lost);
+        received.markReceived(20 * MILLI);
+        log.append(received);
+        log.append(PingRecord.echoed(7, "a"));
+        lost.markLost();
+        log.append(lost);
+        log.append(PingRecord.sent(2, "a", 3000 * MILLI));
+        log.close();
+    }
+
+    private String[] export(SessionExporter.Format format, StringWriter peers)
+            throws IOException {
+        StringWriter pings = new StringWriter();
+        SessionReader reader = new SessionReader(file);
+        new SessionExporter(format, HORIZON_NANOS).export(reader, pings, peers);
+        reader.close();
+        return pings.toString().split("\n");
+    }
+
+    @Test
+    public void export_csv_writesPingsAsTheyAreSettled() throws IOException {
+        StringWriter peers = new StringWriter();
+        String[] pings = export(SessionExporter.Format.CSV, peers);
+
+        Assert.assertEquals(5, pings.length);
+        Assert.assertEquals("sequence,peer,status,send_unix_ms,receive_unix_ms,rtt_ms\r",
+                pings[0]);
+        Assert.assertEquals("0,a,RECEIVED,10000,10020,20.000\r", pings[1]);
+        Assert.assertEquals("7,a,ECHOED,,,\r", pings[2]);
+        // Settled once the last ping is sent past its horizon, and quoted for its comma.
+        Assert.assertEquals("1,\"b,c\",LOST,10005,,\r", pings[3]);
+        Assert.assertEquals("2,a,SENT,13000,,\r", pings[4]);
+
+        String[] peerRows = peers.toString().split("\r\n");
+        Assert.assertEquals(3, peerRows.length);
+        Assert.assertTrue(peerRows[1].startsWith("a,2,1,0,0,0.000,"));
+        Assert.assertEquals("\"b,c\",1,0,1,0,1.000,,,,,,,,", peerRows[2]);
+    }
+
+    @Test
+    public void export_ndjson_writesAnObjectPerLine() throws IOException {
+        StringWriter peers = new StringWriter();
+        String[] pings = export(SessionExporter.Format.NDJSON, peers);
+
+        Assert.assertEquals(4, pings.length);
+        Assert.assertEquals("{\"sequence\":0,\"peer\":\"a\",\"status\":\"RECEIVED\","
+                + "\"send_unix_ms\":10000,\"receive_unix_ms\":10020,\"rtt_ms\":20.000}",
+                pings[0]);
+        Assert.assertEquals("{\"sequence\":7,\"peer\":\"a\",\"status\":\"ECHOED\","
+                + "\"send_unix_ms\":null,\"receive_unix_ms\":null,\"rtt_ms\":null}", pings[1]);
+        Assert.assertTrue(peers.toString().startsWith("{\"peer\":\"a\",\"sent\":2,"));
+    }
+
+    @Test
+    public void export_sameSequenceFromTwoPeers_keepsPingsApart() throws IOException {
+        file = folder.newFile();
+        SessionLog log = SessionLog.create(file, 10_000, 0);
+        PingRecord<String> toB = PingRecord.sent(0, "b", MILLI);
+        log.append(PingRecord.sent(0, "a", 0));
+        log.append(toB);
+        log.append(PingRecord.echoed(0, "b"));
+        toB.markReceived(6 * MILLI);
+        log.append(toB);
+        log.close();
+
+        String[] pings = export(SessionExporter.Format.CSV, new StringWriter());
+
+        Assert.assertEquals(4, pings.length);
+        Assert.assertEquals("0,b,ECHOED,,,\r", pings[1]);
+        Assert.assertEquals("0,b,RECEIVED,10001,10006,5.000\r", pings[2]);
+        Assert.assertEquals("0,a,SENT,10000,,\r", pings[3]);
+    }
+}
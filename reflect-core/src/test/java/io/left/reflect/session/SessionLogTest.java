@@ -0,0 +1,141 @@
+package io.left.reflect.session;
+
+import io.left.reflect.ping.PingRecord;
+import io.left.reflect.ping.PingSummary;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class SessionLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void append_isReadBack() throws IOException {
+        File file = folder.newFile();
+        SessionLog log = SessionLog.create(file, 1234, 5678);
+        PingRecord<String> sent = PingRecord.sent(7, "peer", 100);
+        log.append(sent);
+        sent.markReceived(350);
+        log.append(sent);
+        log.append(PingRecord.echoed(3, "other"));
+        log.close();
+
+        SessionReader reader = new SessionReader(file);
+        SessionEntry entry = new SessionEntry();
+        Assert.assertEquals(1234, reader.getStartWallMillis());
+        Assert.assertEquals(5678, reader.getStartNanos());
+
+        Assert.assertTrue(reader.next(entry));
+        Assert.assertEquals(7, entry.getSequence());
+        Assert.assertEquals("peer", entry.getPeer());
+        Assert.assertEquals(PingRecord.Status.SENT, entry.getStatus());
+        Assert.assertEquals(-1, entry.getRttNanos());
+
+        Assert.assertTrue(reader.next(entry));
+        Assert.assertEquals(PingRecord.Status.RECEIVED, entry.getStatus());
+        Assert.assertEquals(350, entry.getReceiveNanos());
+        Assert.assertEquals(250, entry.getRttNanos());
+
+        Assert.assertTrue(reader.next(entry));
+        Assert.assertEquals("other", entry.getPeer());
+        Assert.assertEquals(PingRecord.Status.ECHOED, entry.getStatus());
+
+        Assert.assertFalse(reader.next(entry));
+        reader.close();
+    }
+
+    @Test
+    public void close_trimsFileToRecords() throws IOException {
+        File file = folder.newFile();
+        SessionLog log = SessionLog.create(file, 0, 0);
+        // More than one chunk of the mapping, from a single peer.
+        for (int i = 0; i < 5000; i++) {
+            log.append(PingRecord.sent(i, "peer", i));
+        }
+        log.close();
+
+        Assert.assertEquals((1 + 1 + 5000) * SessionLog.RECORD_SIZE, file.length());
+        Assert.assertEquals(5000, SessionLog.recover(file).getSent());
+    }
+
+    @Test
+    public void recover_tornRecord_keepsRecordsBeforeIt() throws IOException {
+        File file = folder.newFile();
+        SessionLog log = SessionLog.create(file, 0, 0);
+        for (int i = 0; i < 10; i++) {
+            log.append(PingRecord.sent(i, "peer", i));
+        }
+        // Leave the log open, as a crash would, then damage the last record.
+        log.sync();
+        long lastRecord = 11 * SessionLog.RECORD_SIZE;
+        RandomAccessFile raw = new RandomAccessFile(file, "rw");
+        raw.seek(lastRecord + 8);
+        raw.writeLong(-1);
+        raw.close();
+
+        PingSummary summary = SessionLog.recover(file);
+
+        Assert.assertEquals(9, summary.getSent());
+        Assert.assertEquals(lastRecord, file.length());
+    }
+
+    @Test
+    public void recover_countsEveryChangeOfStatus() throws IOException {
+        File file = folder.newFile();
+        SessionLog log = SessionLog.create(file, 0, 0);
+        PingRecord<String> received = PingRecord.sent(0, "peer", 0);
+        PingRecord<String> lost = PingRecord.sent(1, "peer", 0);
+        PingRecord<String> late = PingRecord.sent(2, "peer", 0);
+        log.append(received);
+        log.append(lost);
+        log.append(late);
+        received.markReceived(1000);
+        log.append(received);
+        lost.markLost();
+        log.append(lost);
+        late.markLost();
+        log.append(late);
+        late.markReceived(3000);
+        log.append(late);
+        log.append(PingRecord.echoed(9, "peer"));
+        log.close();
+
+        PingSummary summary = SessionLog.recover(file);
+
+        Assert.assertEquals(3, summary.getSent());
+        Assert.assertEquals(2, summary.getReceived());
+        Assert.assertEquals(2, summary.getLost());
+        Assert.assertEquals(1, summary.getLate());
+        Assert.assertEquals(1, summary.getEchoed());
+        Assert.assertEquals(2000, summary.getMeanRttNanos(), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void reader_notASessionLog_throws() throws IOException {
+        File file = folder.newFile();
+        RandomAccessFile raw = new RandomAccessFile(file, "rw");
+        raw.write(new byte[SessionLog.RECORD_SIZE * 2]);
+        raw.close();
+
+        new SessionReader(file);
+    }
+
+    @Test
+    public void store_start_keepsNewestSessions() throws IOException {
+        SessionStore store = new SessionStore(new File(folder.getRoot(), "sessions"), 2);
+        store.start(1000, 0).close();
+        store.start(2000, 0).close();
+        store.start(3000, 0).close();
+
+        Assert.assertEquals(2, store.list().size());
+        Assert.assertTrue(store.list().get(0).getName().contains("2000"));
+        Assert.assertTrue(store.list().get(1).getName().contains("3000"));
+    }
+}
@@ -0,0 +1,179 @@
+package io.left.reflect.sim;
+
+import io.left.reflect.engine.MeshEventDispatcher;
+import io.left.reflect.engine.PingResponder;
+import io.left.reflect.engine.PingSender;
+import io.left.reflect.ping.PingEvent;
+import io.left.reflect.transport.MeshTransport;
+import io.left.reflect.transport.TransportException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class SimulatedMeshTest {
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private ScheduledExecutorService scheduler;
+    private SimulatedMesh<String> mesh;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        mesh = new SimulatedMesh<>(scheduler, 42);
+    }
+
+    @After
+    public void tearDown() {
+        mesh.shutdown();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Makes a peer echo pings, handling them on the mesh's thread.
+     */
+    private PingResponder<String> respond(MeshTransport<String> transport,
+                                          PingResponder.Listener<String> listener) {
+        PingResponder<String> responder = new PingResponder<>(transport,
+                new MeshEventDispatcher(Runnable::run), listener);
+        transport.setReceiver(responder);
+        return responder;
+    }
+
+    private static PingResponder.Listener<String> onPingEvent(PingListener listener) {
+        return new PingResponder.Listener<String>() {
+            @Override
+            public void onPingEvent(PingEvent<String> event) {
+                listener.onPingEvent(event);
+            }
+
+            @Override
+            public void onData(String peer, byte[] payload) {
+            }
+
+            @Override
+            public void onEchoFailed(String peer, TransportException cause) {
+            }
+        };
+    }
+
+    private interface PingListener {
+        void onPingEvent(PingEvent<String> event);
+    }
+
+    @Test
+    public void send_crossesHopsOfBothPeers() throws Exception {
+        MeshTransport<String> near = mesh.join("near", new LinkProfile()
+                .setHops(1).setHopLatency(LatencyModel.constant(MILLI)));
+        MeshTransport<String> far = mesh.join("far", new LinkProfile()
+                .setHops(3).setHopLatency(LatencyModel.constant(MILLI)));
+        CountDownLatch received = new CountDownLatch(1);
+        long[] elapsed = new long[1];
+        long start = System.nanoTime();
+        far.setReceiver((peer, payload, receiveNanos) -> {
+            elapsed[0] = receiveNanos - start;
+            received.countDown();
+        });
+
+        near.send("far", new byte[] {1});
+
+        Assert.assertTrue(received.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(elapsed[0] >= 4 * MILLI);
+        Assert.assertEquals(1, mesh.getDelivered());
+    }
+
+    @Test
+    public void send_throughLossyHop_isDropped() throws Exception {
+        MeshTransport<String> sender = mesh.join("sender", new LinkProfile().setHopLossRate(1));
+        mesh.join("recipient", new LinkProfile());
+
+        sender.send("recipient", new byte[] {1});
+
+        Assert.assertEquals(1, mesh.getDropped());
+        Assert.assertEquals(0, mesh.getDelivered());
+    }
+
+    @Test
+    public void send_overCappedRadio_queues() throws Exception {
+        MeshTransport<String> sender = mesh.join("sender", new LinkProfile().setHops(0)
+                .setBytesPerSecond(100_000));
+        MeshTransport<String> recipient = mesh.join("recipient", new LinkProfile().setHops(0));
+        CountDownLatch received = new CountDownLatch(2);
+        recipient.setReceiver((peer, payload, receiveNanos) -> received.countDown());
+        long start = System.nanoTime();
+
+        // Two 1000 byte payloads take 10 ms each at 100 kB/s.
+        sender.send("recipient", new byte[1000]);
+        sender.send("recipient", new byte[1000]);
+
+        Assert.assertTrue(received.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(System.nanoTime() - start >= 20 * MILLI);
+    }
+
+    @Test
+    public void setReachable_notifiesPeersAndRefusesSends() throws Exception {
+        MeshTransport<String> stay = mesh.join("stay", new LinkProfile());
+        List<String> changes = Collections.synchronizedList(new ArrayList<>());
+        stay.setPeerListener((peer, reachable) -> changes.add(peer + " " + reachable));
+
+        mesh.join("leave", new LinkProfile());
+        mesh.setReachable("leave", false);
+
+        Assert.assertEquals(2, changes.size());
+        Assert.assertEquals("leave true", changes.get(0));
+        Assert.assertEquals("leave false", changes.get(1));
+        try {
+            stay.send("leave", new byte[] {1});
+            Assert.fail("Sent to an unreachable peer.");
+        } catch (TransportException te) {
+            Assert.assertFalse(te instanceof TransportException.TransportDisconnectedException);
+        }
+    }
+
+    @Test(expected = TransportException.TransportDisconnectedException.class)
+    public void send_afterShutdown_throwsDisconnected() throws Exception {
+        MeshTransport<String> sender = mesh.join("sender", new LinkProfile());
+        mesh.join("recipient", new LinkProfile());
+        mesh.shutdown();
+
+        sender.send("recipient", new byte[] {1});
+    }
+
+    @Test
+    public void pingPipeline_hundredsOfPeers_allReturn() throws Exception {
+        final int peers = 300;
+        final int pingsPerPeer = 5;
+        MeshTransport<String> hub = mesh.join("hub", new LinkProfile().setHops(0));
+        PingSender<String> sender = new PingSender<>(hub, scheduler, 5000, 0);
+        CountDownLatch returned = new CountDownLatch(peers * pingsPerPeer);
+        respond(hub, onPingEvent(event -> {
+            if (event.getType() == PingEvent.Type.RETURNED
+                    && sender.onReturned(event.getSequence()) != null) {
+                returned.countDown();
+            }
+        }));
+        LinkProfile profile = new LinkProfile().setHops(3)
+                .setHopLatency(LatencyModel.exponential(MILLI, MILLI));
+        for (int i = 0; i < peers; i++) {
+            respond(mesh.join("peer" + i, profile), onPingEvent(event -> { }));
+        }
+
+        for (int round = 0; round < pingsPerPeer; round++) {
+            for (int i = 0; i < peers; i++) {
+                sender.send("peer" + i);
+            }
+        }
+
+        Assert.assertTrue(returned.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(2 * peers * pingsPerPeer, mesh.getDelivered());
+    }
+}
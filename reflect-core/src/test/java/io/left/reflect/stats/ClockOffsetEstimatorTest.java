@@ -0,0 +1,87 @@
+package io.left.reflect.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class ClockOffsetEstimatorTest {
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    // The peer's clock started 42 s before this device's, and gains 50 us every second.
+    private static final long OFFSET = TimeUnit.SECONDS.toNanos(42);
+    private static final double SKEW = 50e-6;
+
+    private static long remoteClock(long localNanos) {
+        return OFFSET + localNanos + (long) (localNanos * SKEW);
+    }
+
+    @Test
+    public void estimate_beforeSamples_isUnknown() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+
+        Assert.assertEquals(0, estimator.getSampleCount());
+        Assert.assertTrue(Double.isNaN(estimator.getOffsetNanos(0)));
+        Assert.assertTrue(Double.isNaN(estimator.getSkew()));
+        Assert.assertTrue(Double.isNaN(estimator.getForwardDelayNanos()));
+    }
+
+    @Test
+    public void estimate_withQueueingOnForwardLeg_splitsOneWayDelays() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+        Random random = new Random(3);
+        long local = TimeUnit.SECONDS.toNanos(1000);
+        double forwardTotal = 0;
+        double reverseTotal = 0;
+        int samples = ClockOffsetEstimator.DEFAULT_CAPACITY;
+
+        for (int i = 0; i < samples; i++) {
+            // Both legs take 5 ms at best, but the forward one often queues for a while.
+            long forward = 5 * MILLI + (long) (-Math.log(1 - random.nextDouble()) * 10 * MILLI);
+            long reverse = 5 * MILLI + random.nextInt((int) MILLI);
+            long processing = random.nextInt((int) MILLI);
+            long received = local + forward;
+            long echoed = received + processing;
+            estimator.addSample(local, remoteClock(received), remoteClock(echoed),
+                    echoed + reverse);
+            forwardTotal += forward;
+            reverseTotal += reverse;
+            local += 100 * MILLI;
+        }
+
+        Assert.assertEquals(samples, estimator.getSampleCount());
+        Assert.assertEquals(remoteClock(local) - local, estimator.getOffsetNanos(local),
+                1.5 * MILLI);
+        Assert.assertEquals(SKEW, estimator.getSkew(), 25e-6);
+        Assert.assertEquals(forwardTotal / samples, estimator.getForwardDelayNanos(),
+                1.5 * MILLI);
+        Assert.assertEquals(reverseTotal / samples, estimator.getReverseDelayNanos(),
+                1.5 * MILLI);
+    }
+
+    @Test
+    public void addSample_keepsOnlyTheLatestSamples() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator(4);
+        for (int i = 0; i < 4; i++) {
+            estimator.addSample(0, 1000 * MILLI, 1000 * MILLI, 2 * MILLI);
+        }
+        for (int i = 0; i < 4; i++) {
+            estimator.addSample(0, 2000 * MILLI, 2000 * MILLI, 2 * MILLI);
+        }
+
+        Assert.assertEquals(4, estimator.getSampleCount());
+        Assert.assertEquals(1999 * MILLI, estimator.getOffsetNanos(MILLI), 1);
+        Assert.assertEquals(MILLI, estimator.getForwardDelayNanos(), 1);
+        Assert.assertEquals(MILLI, estimator.getReverseDelayNanos(), 1);
+    }
+
+    @Test
+    public void addSample_timestampsRunningBackwards_isIgnored() {
+        ClockOffsetEstimator estimator = new ClockOffsetEstimator();
+
+        estimator.addSample(10, 5, 6, 9);
+        estimator.addSample(10, 6, 5, 20);
+
+        Assert.assertEquals(0, estimator.getSampleCount());
+    }
+}
@@ -0,0 +1,70 @@
+package io.left.reflect.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+    private static final long HIGHEST = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    public void percentiles_withinResolution() {
+        LatencyHistogram histogram = new LatencyHistogram(HIGHEST, 2);
+        // 1 ms to 1000 ms, one of each.
+        for (long ms = 1; ms <= 1000; ms++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(ms));
+        }
+
+        Assert.assertEquals(1000, histogram.getTotalCount());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1), histogram.getMin());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), histogram.getMax());
+        Assert.assertEquals(500.5e6, histogram.getMean(), 1);
+        assertClose(500e6, histogram.getValueAtPercentile(50));
+        assertClose(900e6, histogram.getValueAtPercentile(90));
+        assertClose(990e6, histogram.getValueAtPercentile(99));
+        assertClose(999e6, histogram.getValueAtPercentile(99.9));
+        Assert.assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+        assertClose(histogram.getMin(), histogram.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void percentiles_smallValues() {
+        LatencyHistogram histogram = new LatencyHistogram(HIGHEST, 2);
+        histogram.record(1_500);
+        histogram.record(80_000);
+
+        // Near the lowest discernible value, resolution is absolute rather than relative.
+        Assert.assertEquals(1_500, histogram.getValueAtPercentile(50),
+                LatencyHistogram.LOWEST_DISCERNIBLE_NANOS);
+        Assert.assertEquals(80_000, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void record_outOfRange_isClamped() {
+        LatencyHistogram histogram = new LatencyHistogram(HIGHEST, 2);
+        histogram.record(-5);
+        histogram.record(HIGHEST * 10);
+
+        Assert.assertEquals(0, histogram.getMin());
+        Assert.assertEquals(HIGHEST, histogram.getMax());
+        Assert.assertEquals(HIGHEST, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void reset_forgetsValues() {
+        LatencyHistogram histogram = new LatencyHistogram(HIGHEST, 2);
+        histogram.record(1_000_000);
+
+        histogram.reset();
+
+        Assert.assertEquals(0, histogram.getTotalCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(0, histogram.getMin());
+    }
+
+    private static void assertClose(double expected, long actual) {
+        // Two significant digits: within 1% of the value.
+        Assert.assertEquals(expected, actual, expected / 100);
+    }
+}
@@ -0,0 +1,53 @@
+package io.left.reflect.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ChurnAggregatorTest {
+    private final List<String> changes = new ArrayList<>();
+
+    private void onPeerChanged(String peer, boolean present) {
+        changes.add((present ? "+" : "-") + peer);
+    }
+
+    @Test
+    public void drain_reportsNetStateInFirstSeenOrder() {
+        ChurnAggregator<String> churn = new ChurnAggregator<>();
+        churn.onJoined("a");
+        churn.onJoined("b");
+        churn.onLeft("a");
+        churn.onLeft("c");
+        churn.onJoined("a");
+        churn.onLeft("b");
+
+        churn.drain(this::onPeerChanged);
+
+        Assert.assertEquals(3, changes.size());
+        Assert.assertEquals("+a", changes.get(0));
+        Assert.assertEquals("-b", changes.get(1));
+        Assert.assertEquals("-c", changes.get(2));
+        Assert.assertEquals(6, churn.getEvents());
+        Assert.assertEquals(3, churn.getCoalesced());
+        Assert.assertEquals(1, churn.getBatches());
+        Assert.assertTrue(churn.isEmpty());
+    }
+
+    @Test
+    public void drain_startsANewBurst() {
+        ChurnAggregator<String> churn = new ChurnAggregator<>();
+        churn.onJoined("a");
+        churn.drain(this::onPeerChanged);
+
+        churn.drain(this::onPeerChanged);
+        churn.onLeft("a");
+        churn.drain(this::onPeerChanged);
+
+        Assert.assertEquals(2, changes.size());
+        Assert.assertEquals("-a", changes.get(1));
+        Assert.assertEquals(0, churn.getCoalesced());
+        Assert.assertEquals(2, churn.getBatches());
+    }
+}
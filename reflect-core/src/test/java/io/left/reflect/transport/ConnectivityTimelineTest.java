@@ -0,0 +1,54 @@
+package io.left.reflect.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConnectivityTimelineTest {
+    private static final long MINUTE = 60_000;
+
+    @Test
+    public void statistics_beforeTransitions_areUnknown() {
+        ConnectivityTimeline timeline = new ConnectivityTimeline();
+
+        Assert.assertFalse(timeline.isUp());
+        Assert.assertTrue(Double.isNaN(timeline.getUptimeRatio(MINUTE)));
+        Assert.assertTrue(Double.isNaN(timeline.getMeanSessionMillis(MINUTE)));
+        Assert.assertTrue(Double.isNaN(timeline.getFlapsPerHour(MINUTE)));
+    }
+
+    @Test
+    public void statistics_overSessions() {
+        ConnectivityTimeline timeline = new ConnectivityTimeline();
+        // Up for 10 minutes, down for 5, up for 20, down for 15, then up for the last 10.
+        timeline.record(true, 0);
+        timeline.record(false, 10 * MINUTE);
+        timeline.record(true, 15 * MINUTE);
+        // Announced twice: not a transition.
+        timeline.record(true, 16 * MINUTE);
+        timeline.record(false, 35 * MINUTE);
+        timeline.record(true, 50 * MINUTE);
+        long now = 60 * MINUTE;
+
+        Assert.assertTrue(timeline.isUp());
+        Assert.assertEquals(5, timeline.getTransitionCount());
+        Assert.assertEquals(40.0 / 60, timeline.getUptimeRatio(now), 1e-9);
+        Assert.assertEquals(40.0 / 3 * MINUTE, timeline.getMeanSessionMillis(now), 1e-6);
+        Assert.assertEquals(2, timeline.getFlapsPerHour(now), 1e-9);
+    }
+
+    @Test
+    public void record_beyondCapacity_keepsTheLatestTransitions() {
+        ConnectivityTimeline timeline = new ConnectivityTimeline(4);
+        // Flaps every minute for an hour, then stays up.
+        for (int minute = 0; minute < 60; minute++) {
+            timeline.record(minute % 2 == 0, minute * MINUTE);
+        }
+        timeline.record(true, 60 * MINUTE);
+
+        // Only minutes 57 to 60 are kept: down, up, down, up.
+        Assert.assertEquals(4, timeline.getTransitionCount());
+        Assert.assertEquals(2.0 / 4, timeline.getUptimeRatio(61 * MINUTE), 1e-9);
+        Assert.assertEquals(MINUTE, timeline.getMeanSessionMillis(61 * MINUTE), 1e-6);
+        Assert.assertEquals(2 * 60.0 / 4, timeline.getFlapsPerHour(61 * MINUTE), 1e-9);
+    }
+}
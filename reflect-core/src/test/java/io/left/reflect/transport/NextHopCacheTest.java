@@ -0,0 +1,84 @@
+package io.left.reflect.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class NextHopCacheTest {
+    private static final long TTL_MILLIS = 1000;
+    private static final long TTL_NANOS = TimeUnit.MILLISECONDS.toNanos(TTL_MILLIS);
+
+    @Test
+    public void get_withinTtl_hits() {
+        NextHopCache<String> cache = new NextHopCache<>(TTL_MILLIS);
+
+        Assert.assertNull(cache.get("far", 0));
+        cache.put("far", "relay", 0, cache.getGeneration());
+
+        Assert.assertEquals("relay", cache.get("far", TTL_NANOS - 1));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(0.5, cache.getHitRate(), 0);
+    }
+
+    @Test
+    public void get_afterTtl_misses() {
+        NextHopCache<String> cache = new NextHopCache<>(TTL_MILLIS);
+        cache.put("far", "relay", 0, cache.getGeneration());
+
+        Assert.assertNull(cache.get("far", TTL_NANOS));
+        Assert.assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void put_nullHop_isNotRemembered() {
+        NextHopCache<String> cache = new NextHopCache<>(TTL_MILLIS);
+
+        Assert.assertFalse(cache.put("far", null, 0, cache.getGeneration()));
+
+        Assert.assertNull(cache.get("far", 0));
+        Assert.assertTrue(Double.isNaN(new NextHopCache<String>(TTL_MILLIS).getHitRate()));
+    }
+
+    @Test
+    public void invalidateVia_forgetsRoutesToAndThroughPeer() {
+        NextHopCache<String> cache = new NextHopCache<>(TTL_MILLIS);
+        cache.put("relay", "relay", 0, cache.getGeneration());
+        cache.put("far", "relay", 0, cache.getGeneration());
+        cache.put("other", "bridge", 0, cache.getGeneration());
+
+        cache.invalidateVia("relay");
+
+        Assert.assertNull(cache.get("relay", 0));
+        Assert.assertNull(cache.get("far", 0));
+        Assert.assertEquals("bridge", cache.get("other", 0));
+    }
+
+    @Test
+    public void invalidate_onlyForgetsRouteToPeer() {
+        NextHopCache<String> cache = new NextHopCache<>(TTL_MILLIS);
+        cache.put("relay", "relay", 0, cache.getGeneration());
+        cache.put("far", "relay", 0, cache.getGeneration());
+
+        cache.invalidate("relay");
+
+        Assert.assertNull(cache.get("relay", 0));
+        Assert.assertEquals("relay", cache.get("far", 0));
+    }
+
+    @Test
+    public void put_afterInvalidationDuringLookup_isDropped() {
+        NextHopCache<String> cache = new NextHopCache<>(TTL_MILLIS);
+        long generation = cache.getGeneration();
+        // The relay leaves while the route through it is being looked up.
+        cache.invalidateVia("relay");
+
+        Assert.assertFalse(cache.put("far", "relay", 0, generation));
+        Assert.assertNull(cache.get("far", 0));
+
+        // Looked up again after the invalidation, the route is kept.
+        Assert.assertTrue(cache.put("far", "bridge", 0, cache.getGeneration()));
+        Assert.assertEquals("bridge", cache.get("far", 0));
+    }
+}
@@ -0,0 +1,77 @@
+package io.left.reflect.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PeerRegistryTest {
+    @Test
+    public void add_keepsJoiningOrderAndIgnoresDuplicates() {
+        PeerRegistry<String> registry = new PeerRegistry<>();
+
+        Assert.assertTrue(registry.add("a"));
+        Assert.assertTrue(registry.add("b"));
+        Assert.assertFalse(registry.add("a"));
+        Assert.assertTrue(registry.add("c"));
+
+        Assert.assertEquals(3, registry.size());
+        Assert.assertEquals("a", registry.get(0));
+        Assert.assertEquals("b", registry.get(1));
+        Assert.assertEquals("c", registry.get(2));
+        Assert.assertEquals(2, registry.indexOf("c"));
+        Assert.assertTrue(registry.contains("b"));
+        Assert.assertFalse(registry.contains("d"));
+        Assert.assertEquals(-1, registry.indexOf("d"));
+    }
+
+    @Test
+    public void remove_closesTheGapInOrder() {
+        PeerRegistry<String> registry = new PeerRegistry<>();
+        for (String peer : new String[] {"a", "b", "c", "d", "e"}) {
+            registry.add(peer);
+        }
+
+        Assert.assertTrue(registry.remove("b"));
+        Assert.assertTrue(registry.remove("d"));
+        Assert.assertFalse(registry.remove("d"));
+
+        Assert.assertEquals(3, registry.size());
+        Assert.assertFalse(registry.contains("b"));
+        Assert.assertEquals("a", registry.get(0));
+        Assert.assertEquals("c", registry.get(1));
+        Assert.assertEquals("e", registry.get(2));
+        Assert.assertEquals(2, registry.indexOf("e"));
+
+        // A peer that rejoins goes to the end.
+        registry.add("b");
+        Assert.assertEquals(3, registry.indexOf("b"));
+    }
+
+    @Test
+    public void churn_beyondCapacity_keepsEveryPeer() {
+        PeerRegistry<Integer> registry = new PeerRegistry<>();
+        for (int i = 0; i < 1000; i++) {
+            registry.add(i);
+            if (i % 2 == 1) {
+                registry.remove(i - 1);
+            }
+        }
+
+        Assert.assertEquals(500, registry.size());
+        for (int position = 0; position < 500; position++) {
+            Assert.assertEquals(Integer.valueOf(2 * position + 1), registry.get(position));
+        }
+
+        registry.clear();
+        Assert.assertEquals(0, registry.size());
+        Assert.assertFalse(registry.contains(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_pastTheEnd_throws() {
+        PeerRegistry<String> registry = new PeerRegistry<>();
+        registry.add("a");
+        registry.remove("a");
+
+        registry.get(0);
+    }
+}